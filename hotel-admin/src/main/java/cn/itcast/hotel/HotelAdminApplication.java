@@ -1,5 +1,7 @@
 package cn.itcast.hotel;
 
+import cn.itcast.hotel.config.IdProperties;
+import cn.itcast.id.SnowflakeIdGenerator;
 import com.baomidou.mybatisplus.annotation.DbType;
 import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
 import com.baomidou.mybatisplus.extension.plugins.inner.PaginationInnerInterceptor;
@@ -23,4 +25,15 @@ public class HotelAdminApplication {
         interceptor.addInnerInterceptor(new PaginationInnerInterceptor(DbType.MYSQL));
         return interceptor;
     }
+
+    /**
+     * IdType.ASSIGN_ID 使用的id生成器
+     */
+    @Bean
+    public SnowflakeIdGenerator idGenerator(IdProperties properties) {
+        if (properties.getNodeId() == null) {
+            throw new IllegalStateException("没有配置hotel.id.node-id，同时运行的每个实例需要配置不同的节点号（0-31）");
+        }
+        return new SnowflakeIdGenerator(properties.getNodeId());
+    }
 }
@@ -0,0 +1,110 @@
+package cn.itcast.hotel.cache;
+
+import cn.itcast.hotel.config.ListProperties;
+import cn.itcast.hotel.mapper.HotelMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 缓存的酒店总数，分页时不用每次 SELECT COUNT(*)。
+ * 新增、删除提交后直接增减，过期后在后台线程重新统计，读取时不等待；批量导入后标记为过期。
+ * 只用于分页显示，是近似值：
+ * 重新统计时先查询再覆盖缓存的值，查询之后、覆盖之前提交的增减会被覆盖丢掉（查询结果可能也没有包含它），
+ * 总数会偏差几条，直到下一次重新统计（hotel.list.count-refresh-interval）后恢复
+ */
+@Slf4j
+@Component
+public class HotelCountCache {
+
+    @Autowired
+    private HotelMapper hotelMapper;
+
+    @Autowired
+    private ListProperties properties;
+
+    private final AtomicLong count = new AtomicLong(-1);
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+    private volatile long refreshedAt;
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "hotel-count-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 第一次调用时同步统计，之后直接返回缓存的值，过期时触发后台统计
+     */
+    public long get() {
+        long value = count.get();
+        if (value < 0) {
+            return refresh();
+        }
+        if (System.currentTimeMillis() - refreshedAt > properties.getCountRefreshInterval().toMillis()
+                && refreshing.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                try {
+                    refresh();
+                } catch (RuntimeException e) {
+                    log.warn("统计酒店总数失败：{}", e.getMessage());
+                } finally {
+                    refreshing.set(false);
+                }
+            });
+        }
+        return value;
+    }
+
+    /**
+     * 当前事务提交后增减总数，没有事务时立即增减
+     */
+    public void addAfterCommit(long delta) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            add(delta);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                add(delta);
+            }
+        });
+    }
+
+    /**
+     * 下次读取时重新统计
+     */
+    public void invalidate() {
+        refreshedAt = 0;
+    }
+
+    private void add(long delta) {
+        count.getAndUpdate(value -> value < 0 ? value : Math.max(0, value + delta));
+    }
+
+    private long refresh() {
+        long value = hotelMapper.selectCount(null);
+        count.set(value);
+        refreshedAt = System.currentTimeMillis();
+        return value;
+    }
+}
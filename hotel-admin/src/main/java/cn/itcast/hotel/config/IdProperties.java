@@ -0,0 +1,19 @@
+package cn.itcast.hotel.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 酒店id生成的配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "hotel.id")
+public class IdProperties {
+    /**
+     * 节点号，0-31，同时运行的每个实例必须不同。
+     * 没有默认值，未配置时启动失败，避免多个实例都用0生成重复的id
+     */
+    private Long nodeId;
+}
@@ -0,0 +1,22 @@
+package cn.itcast.hotel.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 批量导入酒店的配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "hotel.import")
+public class ImportProperties {
+    /**
+     * 每批写入的行数，一批是一个事务、一次JDBC批量写入和一条MQ消息
+     */
+    private int chunkSize = 500;
+    /**
+     * 报告中最多列出的错误行数，超过的只计数
+     */
+    private int maxErrors = 1000;
+}
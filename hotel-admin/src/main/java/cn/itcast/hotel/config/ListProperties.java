@@ -0,0 +1,28 @@
+package cn.itcast.hotel.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 酒店列表分页的配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "hotel.list")
+public class ListProperties {
+    /**
+     * 缓存的酒店总数多久重新统计一次，期间按新增、删除增减
+     */
+    private Duration countRefreshInterval = Duration.ofSeconds(30);
+    /**
+     * 总数不超过这个值时，按页码分页仍然每次精确统计总数；超过后使用缓存的总数
+     */
+    private long exactCountThreshold = 10000;
+    /**
+     * 每页最多条数，超过时返回400
+     */
+    private int maxSize = 100;
+}
@@ -0,0 +1,44 @@
+package cn.itcast.hotel.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 酒店变更消息发件箱的配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "hotel.outbox")
+public class OutboxProperties {
+    /**
+     * 没有新消息通知时，多久扫描一次发件箱
+     */
+    private Duration pollInterval = Duration.ofSeconds(1);
+    /**
+     * 每批最多发送的消息数
+     */
+    private int batchSize = 200;
+    /**
+     * 一批消息等待MQ确认的最长时间，超时未确认的下次重发
+     */
+    private Duration confirmTimeout = Duration.ofSeconds(5);
+    /**
+     * 消息被退回或拒绝的最多次数，达到后标记为失败，不再发送
+     */
+    private int maxAttempts = 10;
+    /**
+     * 消息第一次被退回或拒绝后的重发间隔，之后每次加倍
+     */
+    private Duration retryInterval = Duration.ofSeconds(1);
+    /**
+     * 已发送的消息保留多久
+     */
+    private Duration retention = Duration.ofDays(7);
+    /**
+     * 多久清理一次过期的已发送消息
+     */
+    private Duration purgeInterval = Duration.ofHours(1);
+}
@@ -11,4 +11,8 @@ public class MqConstants {
     public final static String HOTEL_INSERT_KEY = "hotel.insert";
     //删除的RoutingKey
     public final static String HOTEL_DELETE_KEY = "hotel.delete";
+    //批量导入的RoutingKey，一条消息包含一批酒店id
+    public final static String HOTEL_BATCH_KEY = "hotel.batch";
+    //删除消息中酒店被删除的时间（数据库时钟，ISO格式），消费者用它作为删除的版本号
+    public final static String DELETE_TIME_HEADER = "hotel-delete-time";
 }
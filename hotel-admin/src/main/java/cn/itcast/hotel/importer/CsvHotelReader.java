@@ -0,0 +1,117 @@
+package cn.itcast.hotel.importer;
+
+import cn.itcast.hotel.pojo.Hotel;
+
+import java.io.BufferedReader;
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * 读取CSV：逗号分隔，含逗号或引号的值用双引号括起来，引号写两遍；一行一条记录，值中不能换行
+ */
+public class CsvHotelReader extends HotelRowReader {
+
+    /**
+     * 列名（去掉下划线后转小写）到Hotel属性的写入方法
+     */
+    private static final Map<String, BiConsumer<Hotel, String>> COLUMNS = new HashMap<>();
+
+    static {
+        COLUMNS.put("id", (hotel, value) -> hotel.setId(Long.valueOf(value)));
+        COLUMNS.put("name", Hotel::setName);
+        COLUMNS.put("address", Hotel::setAddress);
+        COLUMNS.put("price", (hotel, value) -> hotel.setPrice(Integer.valueOf(value)));
+        COLUMNS.put("score", (hotel, value) -> hotel.setScore(Integer.valueOf(value)));
+        COLUMNS.put("brand", Hotel::setBrand);
+        COLUMNS.put("city", Hotel::setCity);
+        COLUMNS.put("starname", Hotel::setStarName);
+        COLUMNS.put("business", Hotel::setBusiness);
+        COLUMNS.put("longitude", Hotel::setLongitude);
+        COLUMNS.put("latitude", Hotel::setLatitude);
+        COLUMNS.put("pic", Hotel::setPic);
+    }
+
+    private List<BiConsumer<Hotel, String>> header;
+    private final List<String> values = new ArrayList<>();
+    private final StringBuilder value = new StringBuilder();
+
+    public CsvHotelReader(BufferedReader reader) {
+        super(reader);
+    }
+
+    @Override
+    protected HotelRow parse(long lineNumber, String line) {
+        if (!split(line)) {
+            return HotelRow.error(lineNumber, "引号没有闭合");
+        }
+        if (header == null) {
+            header = parseHeader();
+            return null;
+        }
+        if (values.size() != header.size()) {
+            return HotelRow.error(lineNumber, "列数应为" + header.size() + "，实际为" + values.size());
+        }
+        Hotel hotel = new Hotel();
+        for (int i = 0; i < values.size(); i++) {
+            String text = values.get(i).trim();
+            if (text.isEmpty()) {
+                continue;
+            }
+            try {
+                header.get(i).accept(hotel, text);
+            } catch (NumberFormatException e) {
+                return HotelRow.error(lineNumber, "第" + (i + 1) + "列不是整数：" + text);
+            }
+        }
+        return HotelRow.of(lineNumber, hotel);
+    }
+
+    private List<BiConsumer<Hotel, String>> parseHeader() {
+        List<BiConsumer<Hotel, String>> columns = new ArrayList<>(values.size());
+        for (String name : values) {
+            BiConsumer<Hotel, String> column = COLUMNS.get(name.trim().replace("_", "").toLowerCase(Locale.ROOT));
+            if (column == null) {
+                throw new InvalidParameterException("CSV表头中有未知的列：" + name);
+            }
+            columns.add(column);
+        }
+        return columns;
+    }
+
+    /**
+     * 把一行拆成values
+     * @return 引号是否闭合
+     */
+    private boolean split(String line) {
+        values.clear();
+        value.setLength(0);
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    value.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return !quoted;
+    }
+}
@@ -0,0 +1,218 @@
+package cn.itcast.hotel.importer;
+
+import cn.itcast.hotel.cache.HotelCountCache;
+import cn.itcast.hotel.config.ImportProperties;
+import cn.itcast.hotel.constants.MqConstants;
+import cn.itcast.hotel.mapper.HotelOutboxMapper;
+import cn.itcast.hotel.outbox.OutboxRelay;
+import cn.itcast.hotel.pojo.Hotel;
+import cn.itcast.hotel.pojo.HotelOutbox;
+import cn.itcast.hotel.pojo.ImportReport;
+import cn.itcast.hotel.service.IHotelService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量导入酒店：流式读取上传内容，按 chunk-size 分批，每批一个事务：
+ * JDBC批量写入（MySQL连接开启rewriteBatchedStatements后合并成多行insert），
+ * 再写一条包含整批id的发件箱消息。出错的行记入报告，不影响其他行。
+ * 只有带id的行按id覆盖已有酒店（upsert）；没有id的行用生成的id普通insert，
+ * 万一生成的id和已有酒店重复，这一行报主键冲突，而不是覆盖别的酒店
+ */
+@Slf4j
+@Component
+public class HotelImporter {
+
+    private static final String INSERT_SQL = "INSERT INTO tb_hotel "
+            + "(id, name, address, price, score, brand, city, star_name, business, longitude, latitude, pic) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPSERT_SQL = INSERT_SQL + " ON DUPLICATE KEY UPDATE "
+            + "name = VALUES(name), address = VALUES(address), price = VALUES(price), score = VALUES(score), "
+            + "brand = VALUES(brand), city = VALUES(city), star_name = VALUES(star_name), "
+            + "business = VALUES(business), longitude = VALUES(longitude), latitude = VALUES(latitude), "
+            + "pic = VALUES(pic)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private HotelOutboxMapper outboxMapper;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private IHotelService hotelService;
+
+    @Autowired
+    private HotelCountCache countCache;
+
+    @Autowired
+    private ImportProperties properties;
+
+    public ImportReport importHotels(BufferedReader reader, ImportFormat format) throws IOException {
+        long start = System.nanoTime();
+        ImportReport report = new ImportReport();
+        HotelRowReader rows = format.open(reader);
+        List<HotelRow> chunk = new ArrayList<>(properties.getChunkSize());
+        HotelRow row;
+        while ((row = rows.next()) != null) {
+            report.setTotal(report.getTotal() + 1);
+            // 1.格式或必填项有误的行直接记入报告
+            String error = row.getError() != null ? row.getError() : validate(row.getHotel());
+            if (error != null) {
+                addError(report, row, error);
+                continue;
+            }
+            chunk.add(row);
+            // 2.攒够一批写入一次
+            if (chunk.size() >= properties.getChunkSize()) {
+                write(chunk, report);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            write(chunk, report);
+        }
+        if (report.getImported() > 0) {
+            // 带id的行分不清新增和修改，重新统计总数
+            countCache.invalidate();
+        }
+        report.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        log.info("批量导入酒店{}行，成功{}行，失败{}行，耗时{}ms",
+                report.getTotal(), report.getImported(), report.getFailed(), report.getElapsedMillis());
+        return report;
+    }
+
+    /**
+     * 一批在一个事务中写入；整批失败时回滚到保存点，再逐行写入找出出错的行
+     */
+    private void write(List<HotelRow> chunk, ImportReport report) {
+        List<Long> ids = transactionTemplate.execute(status -> {
+            // 没有id的行生成id后普通insert，带id的行upsert
+            Set<HotelRow> inserts = Collections.newSetFromMap(new IdentityHashMap<>());
+            List<HotelRow> upserts = new ArrayList<>(chunk.size());
+            for (HotelRow row : chunk) {
+                if (row.getHotel().getId() == null) {
+                    row.getHotel().setId(hotelService.nextId());
+                    inserts.add(row);
+                } else {
+                    upserts.add(row);
+                }
+            }
+            List<Long> written = new ArrayList<>(chunk.size());
+            Object batch = status.createSavepoint();
+            try {
+                if (!inserts.isEmpty()) {
+                    jdbcTemplate.batchUpdate(INSERT_SQL, inserts, inserts.size(),
+                            (ps, row) -> bind(ps, row.getHotel()));
+                }
+                if (!upserts.isEmpty()) {
+                    jdbcTemplate.batchUpdate(UPSERT_SQL, upserts, upserts.size(),
+                            (ps, row) -> bind(ps, row.getHotel()));
+                }
+                status.releaseSavepoint(batch);
+                chunk.forEach(row -> written.add(row.getHotel().getId()));
+            } catch (DataAccessException e) {
+                status.rollbackToSavepoint(batch);
+                for (HotelRow row : chunk) {
+                    Object single = status.createSavepoint();
+                    try {
+                        jdbcTemplate.update(inserts.contains(row) ? INSERT_SQL : UPSERT_SQL,
+                                ps -> bind(ps, row.getHotel()));
+                        status.releaseSavepoint(single);
+                        written.add(row.getHotel().getId());
+                    } catch (DataAccessException ex) {
+                        status.rollbackToSavepoint(single);
+                        addError(report, row, ex.getMostSpecificCause().getMessage());
+                    }
+                }
+            }
+            // 一批只发一条消息
+            if (!written.isEmpty()) {
+                StringJoiner payload = new StringJoiner(",");
+                written.forEach(id -> payload.add(id.toString()));
+                outboxMapper.insert(HotelOutbox.of(MqConstants.HOTEL_BATCH_KEY, payload));
+                outboxRelay.wakeUpAfterCommit();
+            }
+            return written;
+        });
+        report.setImported(report.getImported() + ids.size());
+    }
+
+    private static void bind(PreparedStatement ps, Hotel hotel) throws SQLException {
+        ps.setLong(1, hotel.getId());
+        ps.setString(2, hotel.getName());
+        ps.setString(3, hotel.getAddress());
+        ps.setInt(4, hotel.getPrice());
+        ps.setInt(5, hotel.getScore());
+        ps.setString(6, hotel.getBrand());
+        ps.setString(7, hotel.getCity());
+        ps.setString(8, hotel.getStarName());
+        ps.setString(9, hotel.getBusiness());
+        ps.setString(10, hotel.getLongitude());
+        ps.setString(11, hotel.getLatitude());
+        ps.setString(12, hotel.getPic());
+    }
+
+    /**
+     * @return 错误信息，没有错误时返回null
+     */
+    private static String validate(Hotel hotel) {
+        if (isBlank(hotel.getName()) || isBlank(hotel.getAddress()) || isBlank(hotel.getBrand())
+                || isBlank(hotel.getCity())) {
+            return "name、address、brand、city不能为空";
+        }
+        if (hotel.getPrice() == null || hotel.getPrice() < 0 || hotel.getScore() == null || hotel.getScore() < 0) {
+            return "price、score不能为空或负数";
+        }
+        if (!inRange(hotel.getLatitude(), 90) || !inRange(hotel.getLongitude(), 180)) {
+            return "经纬度不合法：" + hotel.getLatitude() + ", " + hotel.getLongitude();
+        }
+        return null;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private static boolean inRange(String value, double limit) {
+        if (value == null) {
+            return false;
+        }
+        try {
+            double number = Double.parseDouble(value);
+            return number >= -limit && number <= limit;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private void addError(ImportReport report, HotelRow row, String message) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < properties.getMaxErrors()) {
+            Long id = row.getHotel() == null ? null : row.getHotel().getId();
+            report.getErrors().add(new ImportReport.RowError(row.getLine(), id, message));
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package cn.itcast.hotel.importer;
+
+import cn.itcast.hotel.pojo.Hotel;
+import lombok.Getter;
+
+/**
+ * 读到的一行：解析成功时有hotel，失败时有error
+ */
+@Getter
+public class HotelRow {
+    private final long line;
+    private final Hotel hotel;
+    private final String error;
+
+    private HotelRow(long line, Hotel hotel, String error) {
+        this.line = line;
+        this.hotel = hotel;
+        this.error = error;
+    }
+
+    public static HotelRow of(long line, Hotel hotel) {
+        return new HotelRow(line, hotel, null);
+    }
+
+    public static HotelRow error(long line, String error) {
+        return new HotelRow(line, null, error);
+    }
+}
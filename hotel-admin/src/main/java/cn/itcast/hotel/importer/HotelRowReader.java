@@ -0,0 +1,40 @@
+package cn.itcast.hotel.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * 逐行读取上传的内容，一次只解析一行，不把整个文件读进内存
+ */
+public abstract class HotelRowReader {
+
+    private final BufferedReader reader;
+    private long lineNumber;
+
+    protected HotelRowReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * @return 下一行数据，读完时返回null；解析失败的行也会返回，由调用方记录错误
+     */
+    public HotelRow next() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            HotelRow row = parse(lineNumber, line);
+            if (row != null) {
+                return row;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return 这一行对应的数据，表头等不是数据的行返回null
+     */
+    protected abstract HotelRow parse(long lineNumber, String line);
+}
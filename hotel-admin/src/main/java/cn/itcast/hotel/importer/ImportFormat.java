@@ -0,0 +1,48 @@
+package cn.itcast.hotel.importer;
+
+import java.io.BufferedReader;
+import java.security.InvalidParameterException;
+
+/**
+ * 批量导入支持的格式
+ */
+public enum ImportFormat {
+    /**
+     * 第一行是表头，列名为Hotel的属性名（如 starName 或 star_name），列的顺序任意
+     */
+    CSV,
+    /**
+     * 每行一个Hotel的JSON对象
+     */
+    JSON_LINES;
+
+    public HotelRowReader open(BufferedReader reader) {
+        return this == CSV ? new CsvHotelReader(reader) : new JsonLinesHotelReader(reader);
+    }
+
+    /**
+     * 优先使用format参数，没有时根据Content-Type判断。
+     * 普通JSON（application/json）是一个完整的文档，不能逐行读取，不支持
+     * @param format      csv、jsonl 或 ndjson
+     * @param contentType 例如 text/csv、application/x-ndjson
+     */
+    public static ImportFormat resolve(String format, String contentType) {
+        String value = format != null ? format : contentType;
+        if (value == null) {
+            throw new InvalidParameterException("请通过format参数或Content-Type指定导入格式：csv或jsonl");
+        }
+        // 去掉 ;charset=utf-8 之类的参数，Content-Type 只看子类型
+        String type = value.split(";")[0].trim().toLowerCase();
+        type = type.substring(type.indexOf('/') + 1);
+        switch (type) {
+            case "csv":
+                return CSV;
+            case "jsonl":
+            case "ndjson":
+            case "x-ndjson":
+                return JSON_LINES;
+            default:
+                throw new InvalidParameterException("不支持的导入格式：" + value + "，请使用csv或jsonl");
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package cn.itcast.hotel.importer;
+
+import cn.itcast.hotel.pojo.Hotel;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.BufferedReader;
+
+/**
+ * 读取JSON Lines：每行一个Hotel的JSON对象
+ */
+public class JsonLinesHotelReader extends HotelRowReader {
+
+    private static final ObjectReader READER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, true)
+            .readerFor(Hotel.class);
+
+    public JsonLinesHotelReader(BufferedReader reader) {
+        super(reader);
+    }
+
+    @Override
+    protected HotelRow parse(long lineNumber, String line) {
+        try {
+            return HotelRow.of(lineNumber, READER.readValue(line));
+        } catch (JsonProcessingException e) {
+            return HotelRow.error(lineNumber, "JSON格式错误：" + e.getOriginalMessage());
+        }
+    }
+}
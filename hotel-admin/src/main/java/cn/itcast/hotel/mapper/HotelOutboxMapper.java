@@ -0,0 +1,7 @@
+package cn.itcast.hotel.mapper;
+
+import cn.itcast.hotel.pojo.HotelOutbox;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+
+public interface HotelOutboxMapper extends BaseMapper<HotelOutbox> {
+}
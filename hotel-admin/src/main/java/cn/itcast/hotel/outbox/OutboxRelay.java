@@ -0,0 +1,228 @@
+package cn.itcast.hotel.outbox;
+
+import cn.itcast.hotel.config.OutboxProperties;
+import cn.itcast.hotel.constants.MqConstants;
+import cn.itcast.hotel.mapper.HotelOutboxMapper;
+import cn.itcast.hotel.pojo.HotelOutbox;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 把发件箱中未发送的消息按id顺序投递到MQ，收到publisher confirm后标记为已发送。
+ * 消息以mandatory发送，没有路由到任何队列的消息会被退回，虽然也会收到确认，但仍然保留为未发送。
+ * 被退回或拒绝的消息推迟到 next_attempt_time 再发送，间隔逐次加倍，不挡住后面的消息；
+ * 达到 max-attempts 次后标记为失败，不再发送。
+ * 事务提交后会立即唤醒，否则按 poll-interval 定时扫描，应用重启或MQ故障后未确认的消息会重发。
+ * 同一条消息可能投递多次，消费者按id重新同步，重复消息没有影响。
+ * 删除消息带上写入发件箱的时间，消费者用它作为删除的版本号，见 MqConstants.DELETE_TIME_HEADER
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+
+    @Autowired
+    private HotelOutboxMapper outboxMapper;
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private OutboxProperties properties;
+
+    private final Semaphore signal = new Semaphore(0);
+    private volatile boolean running = true;
+    private Thread worker;
+    private long lastPurge;
+
+    @PostConstruct
+    public void init() {
+        worker = new Thread(this::run, "hotel-outbox-relay");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        worker.interrupt();
+    }
+
+    /**
+     * 当前事务提交后唤醒发送线程，没有事务时立即唤醒
+     */
+    public void wakeUpAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            signal.release();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                signal.release();
+            }
+        });
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                signal.tryAcquire(properties.getPollInterval().toMillis(), TimeUnit.MILLISECONDS);
+                // 等待期间的多次唤醒合并成一次发送
+                signal.drainPermits();
+                relay();
+                purge();
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                log.warn("发件箱消息发送失败，稍后重试：{}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 发送所有未发送的消息，直到发件箱为空或者有消息未被确认
+     */
+    void relay() throws InterruptedException {
+        while (true) {
+            LocalDateTime now = LocalDateTime.now();
+            List<HotelOutbox> pending = outboxMapper.selectList(new LambdaQueryWrapper<HotelOutbox>()
+                    .eq(HotelOutbox::getStatus, HotelOutbox.PENDING)
+                    .and(w -> w.isNull(HotelOutbox::getNextAttemptTime)
+                            .or().le(HotelOutbox::getNextAttemptTime, now))
+                    .orderByAsc(HotelOutbox::getId)
+                    .last("LIMIT " + properties.getBatchSize()));
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<HotelOutbox> rejected = new ArrayList<>();
+            List<Long> confirmed = send(pending, rejected);
+            if (!confirmed.isEmpty()) {
+                outboxMapper.update(null, new LambdaUpdateWrapper<HotelOutbox>()
+                        .set(HotelOutbox::getStatus, HotelOutbox.SENT)
+                        .set(HotelOutbox::getSendTime, LocalDateTime.now())
+                        .in(HotelOutbox::getId, confirmed));
+            }
+            for (HotelOutbox outbox : rejected) {
+                deferOrFail(outbox);
+            }
+            log.debug("发件箱发送消息：{}，已确认：{}，被退回或拒绝：{}", pending.size(), confirmed.size(), rejected.size());
+            // 有消息未收到确认时MQ可能不可用，等下次扫描
+            if (confirmed.size() + rejected.size() < pending.size() || pending.size() < properties.getBatchSize()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 被退回或拒绝的消息推迟重发，第n次推迟 retry-interval * 2^(n-1)；达到 max-attempts 次后标记为失败
+     */
+    private void deferOrFail(HotelOutbox outbox) {
+        int attempts = outbox.getAttempts() + 1;
+        LambdaUpdateWrapper<HotelOutbox> update = new LambdaUpdateWrapper<HotelOutbox>()
+                .set(HotelOutbox::getAttempts, attempts)
+                .eq(HotelOutbox::getId, outbox.getId());
+        if (attempts >= properties.getMaxAttempts()) {
+            update.set(HotelOutbox::getStatus, HotelOutbox.FAILED);
+            log.error("发件箱消息被退回或拒绝{}次，不再发送，id：{}，RoutingKey：{}",
+                    attempts, outbox.getId(), outbox.getRoutingKey());
+        } else {
+            long delay = properties.getRetryInterval().toMillis() << Math.min(attempts - 1, 20);
+            update.set(HotelOutbox::getNextAttemptTime, LocalDateTime.now().plus(delay, ChronoUnit.MILLIS));
+        }
+        outboxMapper.update(null, update);
+    }
+
+    /**
+     * 一批消息先全部发出，再统一等待确认，一批只等待一次往返
+     * @param rejected 收集被退回或被MQ拒绝的消息，未收到确认的不算
+     * @return 已被MQ确认的消息id
+     */
+    private List<Long> send(List<HotelOutbox> pending, List<HotelOutbox> rejected) throws InterruptedException {
+        List<CorrelationData> correlations = new ArrayList<>(pending.size());
+        for (HotelOutbox outbox : pending) {
+            CorrelationData correlation = new CorrelationData(String.valueOf(outbox.getId()));
+            rabbitTemplate.convertAndSend(MqConstants.HOTEL_EXCHANGE, outbox.getRoutingKey(),
+                    body(outbox), message -> {
+                        if (MqConstants.HOTEL_DELETE_KEY.equals(outbox.getRoutingKey())) {
+                            message.getMessageProperties().setHeader(MqConstants.DELETE_TIME_HEADER,
+                                    outbox.getCreateTime().toString());
+                        }
+                        return message;
+                    }, correlation);
+            correlations.add(correlation);
+        }
+        long deadline = System.nanoTime() + properties.getConfirmTimeout().toNanos();
+        List<Long> confirmed = new ArrayList<>(pending.size());
+        for (int i = 0; i < pending.size(); i++) {
+            try {
+                CorrelationData.Confirm confirm = correlations.get(i).getFuture()
+                        .get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (confirm.isAck() && correlations.get(i).getReturnedMessage() != null) {
+                    // 退回的消息先于确认到达，此时correlation中已经有退回的消息
+                    log.warn("发件箱消息没有路由到队列，id：{}，RoutingKey：{}",
+                            pending.get(i).getId(), pending.get(i).getRoutingKey());
+                    rejected.add(pending.get(i));
+                } else if (confirm.isAck()) {
+                    confirmed.add(pending.get(i).getId());
+                } else {
+                    log.warn("发件箱消息被MQ拒绝，id：{}，原因：{}", pending.get(i).getId(), confirm.getReason());
+                    rejected.add(pending.get(i));
+                }
+            } catch (ExecutionException | TimeoutException e) {
+                log.warn("发件箱消息未收到确认，id：{}", pending.get(i).getId());
+            }
+        }
+        return confirmed;
+    }
+
+    /**
+     * 批量消息是逗号分隔的id，发送为long[]；其他消息是单个id
+     */
+    private static Object body(HotelOutbox outbox) {
+        String payload = outbox.getPayload();
+        if (!MqConstants.HOTEL_BATCH_KEY.equals(outbox.getRoutingKey())) {
+            return Long.valueOf(payload);
+        }
+        String[] parts = payload.split(",");
+        long[] ids = new long[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            ids[i] = Long.parseLong(parts[i]);
+        }
+        return ids;
+    }
+
+    /**
+     * 定期删除过期的已发送消息
+     */
+    private void purge() {
+        long now = System.currentTimeMillis();
+        if (now - lastPurge < properties.getPurgeInterval().toMillis()) {
+            return;
+        }
+        lastPurge = now;
+        int deleted = outboxMapper.delete(new LambdaQueryWrapper<HotelOutbox>()
+                .eq(HotelOutbox::getStatus, HotelOutbox.SENT)
+                .lt(HotelOutbox::getSendTime, LocalDateTime.now().minus(properties.getRetention())));
+        if (deleted > 0) {
+            log.info("清理已发送的发件箱消息：{}", deleted);
+        }
+    }
+}
@@ -8,7 +8,7 @@ import lombok.Data;
 @Data
 @TableName("tb_hotel")
 public class Hotel {
-    @TableId(type = IdType.INPUT)
+    @TableId(type = IdType.ASSIGN_ID)
     private Long id;
     private String name;
     private String address;
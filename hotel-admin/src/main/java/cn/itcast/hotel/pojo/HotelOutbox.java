@@ -0,0 +1,62 @@
+package cn.itcast.hotel.pojo;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 待发送的酒店变更消息，和 tb_hotel 的修改在同一个本地事务中写入，
+ * 由 OutboxRelay 异步投递到MQ
+ */
+@Data
+@TableName("tb_hotel_outbox")
+public class HotelOutbox {
+    /**
+     * 未发送
+     */
+    public static final int PENDING = 0;
+    /**
+     * 已被MQ确认
+     */
+    public static final int SENT = 1;
+    /**
+     * 被退回或拒绝的次数达到 max-attempts，不再发送，需要人工处理
+     */
+    public static final int FAILED = 2;
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+    /**
+     * 消息的RoutingKey，例如 hotel.insert
+     */
+    private String routingKey;
+    /**
+     * 消息内容：酒店id，批量消息是逗号分隔的多个id
+     */
+    private String payload;
+    private Integer status;
+    /**
+     * 被MQ退回或拒绝的次数
+     */
+    private Integer attempts;
+    /**
+     * 被退回或拒绝后，下次发送的时间；为null时立即发送
+     */
+    private LocalDateTime nextAttemptTime;
+    /**
+     * 写入时间，由数据库生成，和酒店的修改在同一个事务中；删除消息用它作为酒店的删除时间
+     */
+    private LocalDateTime createTime;
+    private LocalDateTime sendTime;
+
+    public static HotelOutbox of(String routingKey, Object payload) {
+        HotelOutbox outbox = new HotelOutbox();
+        outbox.setRoutingKey(routingKey);
+        outbox.setPayload(String.valueOf(payload));
+        outbox.setStatus(PENDING);
+        return outbox;
+    }
+}
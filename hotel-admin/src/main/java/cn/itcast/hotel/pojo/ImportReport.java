@@ -0,0 +1,38 @@
+package cn.itcast.hotel.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量导入的结果，出错的行不影响其他行
+ */
+@Data
+public class ImportReport {
+    /**
+     * 读到的数据行数，不含表头和空行
+     */
+    private long total;
+    private long imported;
+    private long failed;
+    private long elapsedMillis;
+    /**
+     * 出错的行，最多 hotel.import.max-errors 条
+     */
+    private List<RowError> errors = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        /**
+         * 在上传内容中的行号，从1开始
+         */
+        private long line;
+        private Long id;
+        private String message;
+    }
+}
@@ -1,8 +1,39 @@
 package cn.itcast.hotel.service;
 
 import cn.itcast.hotel.pojo.Hotel;
+import cn.itcast.hotel.pojo.PageResult;
 import com.baomidou.mybatisplus.extension.service.IService;
 
 public interface IHotelService extends IService<Hotel> {
 
+    /**
+     * 生成新酒店的id
+     */
+    Long nextId();
+
+    /**
+     * 按页码分页，按id排序；酒店较多时总数使用缓存的近似值
+     */
+    PageResult listPage(int page, int size);
+
+    /**
+     * 按id翻页：返回id大于lastId的下一页，不扫描前面的行，总数使用缓存的近似值
+     * @param lastId 上一页最后一个酒店的id，第一页传0
+     */
+    PageResult listAfter(long lastId, int size);
+
+    /**
+     * 新增酒店，生成id，同一事务中写入新增消息
+     */
+    void saveHotel(Hotel hotel);
+
+    /**
+     * 修改酒店，同一事务中写入修改消息
+     */
+    void updateHotel(Hotel hotel);
+
+    /**
+     * 删除酒店，同一事务中写入删除消息
+     */
+    void deleteHotel(Long id);
 }
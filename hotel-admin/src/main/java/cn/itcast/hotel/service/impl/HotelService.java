@@ -1,11 +1,95 @@
 package cn.itcast.hotel.service.impl;
 
+import cn.itcast.hotel.cache.HotelCountCache;
+import cn.itcast.hotel.config.ListProperties;
+import cn.itcast.hotel.constants.MqConstants;
 import cn.itcast.hotel.mapper.HotelMapper;
+import cn.itcast.hotel.mapper.HotelOutboxMapper;
+import cn.itcast.hotel.outbox.OutboxRelay;
 import cn.itcast.hotel.pojo.Hotel;
+import cn.itcast.hotel.pojo.HotelOutbox;
+import cn.itcast.hotel.pojo.PageResult;
 import cn.itcast.hotel.service.IHotelService;
+import cn.itcast.id.SnowflakeIdGenerator;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
 
 @Service
 public class HotelService extends ServiceImpl<HotelMapper, Hotel> implements IHotelService {
+
+    @Autowired
+    private HotelOutboxMapper outboxMapper;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private SnowflakeIdGenerator idGenerator;
+
+    @Autowired
+    private HotelCountCache countCache;
+
+    @Autowired
+    private ListProperties listProperties;
+
+    @Override
+    public PageResult listPage(int page, int size) {
+        long cached = countCache.get();
+        // 酒店较多时不再每页执行COUNT(*)
+        boolean exact = cached <= listProperties.getExactCountThreshold();
+        Page<Hotel> result = page(new Page<Hotel>(page, size).setSearchCount(exact),
+                new LambdaQueryWrapper<Hotel>().orderByAsc(Hotel::getId));
+        return new PageResult(exact ? result.getTotal() : cached, result.getRecords());
+    }
+
+    @Override
+    public PageResult listAfter(long lastId, int size) {
+        // 第一页且不统计总数，分页插件只追加LIMIT
+        Page<Hotel> result = page(new Page<Hotel>(1, size).setSearchCount(false),
+                new LambdaQueryWrapper<Hotel>().gt(Hotel::getId, lastId).orderByAsc(Hotel::getId));
+        return new PageResult(countCache.get(), result.getRecords());
+    }
+
+    @Override
+    public Long nextId() {
+        return idGenerator.nextId();
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void saveHotel(Hotel hotel) {
+        hotel.setId(nextId());
+        save(hotel);
+        countCache.addAfterCommit(1);
+        publish(MqConstants.HOTEL_INSERT_KEY, hotel.getId());
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void updateHotel(Hotel hotel) {
+        updateById(hotel);
+        publish(MqConstants.HOTEL_INSERT_KEY, hotel.getId());
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void deleteHotel(Long id) {
+        if (removeById(id)) {
+            countCache.addAfterCommit(-1);
+        }
+        publish(MqConstants.HOTEL_DELETE_KEY, id);
+    }
+
+    /**
+     * 消息先写入发件箱，事务提交后由 OutboxRelay 投递，请求线程不等待MQ
+     */
+    private void publish(String routingKey, Long id) {
+        outboxMapper.insert(HotelOutbox.of(routingKey, id));
+        outboxRelay.wakeUpAfterCommit();
+    }
 }
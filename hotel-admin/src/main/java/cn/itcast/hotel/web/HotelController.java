@@ -1,14 +1,21 @@
 package cn.itcast.hotel.web;
 
-import cn.itcast.hotel.constants.MqConstants;
+import cn.itcast.hotel.config.ListProperties;
+import cn.itcast.hotel.importer.HotelImporter;
+import cn.itcast.hotel.importer.ImportFormat;
 import cn.itcast.hotel.pojo.Hotel;
+import cn.itcast.hotel.pojo.ImportReport;
 import cn.itcast.hotel.pojo.PageResult;
 import cn.itcast.hotel.service.IHotelService;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.security.InvalidParameterException;
 
 @RestController
@@ -19,31 +26,37 @@ public class HotelController {
     private IHotelService hotelService;
 
     @Autowired
-    private RabbitTemplate rabbitTemplate;
+    private HotelImporter hotelImporter;
+
+    @Autowired
+    private ListProperties listProperties;
 
     @GetMapping("/{id}")
     public Hotel queryById(@PathVariable("id") Long id){
         return hotelService.getById(id);
     }
 
+    /**
+     * 分页查询。传lastId时按id翻页（上一页最后一个酒店的id），不受页码深度影响；否则按页码分页
+     */
     @GetMapping("/list")
     public PageResult hotelList(
             @RequestParam(value = "page", defaultValue = "1") Integer page,
-            @RequestParam(value = "size", defaultValue = "1") Integer size
+            @RequestParam(value = "size", defaultValue = "1") Integer size,
+            @RequestParam(value = "lastId", required = false) Long lastId
     ){
-        Page<Hotel> result = hotelService.page(new Page<>(page, size));
-
-        return new PageResult(result.getTotal(), result.getRecords());
+        if (page < 1 || size < 1 || size > listProperties.getMaxSize()) {
+            throw new InvalidParameterException("page不能小于1，size应在1到" + listProperties.getMaxSize() + "之间");
+        }
+        if (lastId != null) {
+            return hotelService.listAfter(lastId, size);
+        }
+        return hotelService.listPage(page, size);
     }
 
     @PostMapping
     public void saveHotel(@RequestBody Hotel hotel){
-        double randomid = Math.random()*100000000;
-        long id = new Double(randomid).longValue();
-        System.out.println(id);
-        hotel.setId(id);
-        hotelService.save(hotel);
-        rabbitTemplate.convertAndSend(MqConstants.HOTEL_EXCHANGE,MqConstants.HOTEL_INSERT_KEY,hotel.getId());
+        hotelService.saveHotel(hotel);
     }
 
     @PutMapping()
@@ -51,15 +64,31 @@ public class HotelController {
         if (hotel.getId() == null) {
             throw new InvalidParameterException("id不能为空");
         }
-        hotelService.updateById(hotel);
+        hotelService.updateHotel(hotel);
+    }
 
-        rabbitTemplate.convertAndSend(MqConstants.HOTEL_EXCHANGE,MqConstants.HOTEL_INSERT_KEY,hotel.getId());
+    /**
+     * 批量导入，请求体是CSV或JSON Lines，边读边写入，有id的行覆盖已有酒店
+     * @param format csv 或 jsonl，不传时根据Content-Type判断
+     */
+    @PostMapping("/import")
+    public ImportReport importHotels(@RequestParam(value = "format", required = false) String format,
+                                     HttpServletRequest request) throws IOException {
+        ImportFormat importFormat = ImportFormat.resolve(format, request.getContentType());
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8))) {
+            return hotelImporter.importHotels(reader, importFormat);
+        }
     }
 
     @DeleteMapping("/{id}")
     public void deleteById(@PathVariable("id") Long id) {
-        hotelService.removeById(id);
+        hotelService.deleteHotel(id);
+    }
 
-        rabbitTemplate.convertAndSend(MqConstants.HOTEL_EXCHANGE,MqConstants.HOTEL_DELETE_KEY,id);
+    //请求参数不合法，例如分页大小超出范围、导入格式不支持、CSV表头中有未知的列
+    @ExceptionHandler(InvalidParameterException.class)
+    public ResponseEntity<String> badRequest(InvalidParameterException e){
+        return ResponseEntity.badRequest().body(e.getMessage());
     }
 }
@@ -0,0 +1,14 @@
+-- 酒店变更消息发件箱，和tb_hotel在同一个库中
+CREATE TABLE IF NOT EXISTS `tb_hotel_outbox` (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT,
+  `routing_key` varchar(64) NOT NULL COMMENT '消息的RoutingKey',
+  `payload` text NOT NULL COMMENT '消息内容，批量消息是逗号分隔的多个id',
+  `status` tinyint(4) NOT NULL DEFAULT '0' COMMENT '0：未发送，1：已发送，2：多次被退回或拒绝，不再发送',
+  `attempts` int(11) NOT NULL DEFAULT '0' COMMENT '被MQ退回或拒绝的次数',
+  `next_attempt_time` datetime(3) DEFAULT NULL COMMENT '被退回或拒绝后下次发送的时间',
+  `create_time` datetime(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) COMMENT '写入时间，和tb_hotel.update_time使用同一个时钟',
+  `send_time` datetime DEFAULT NULL,
+  PRIMARY KEY (`id`),
+  KEY `idx_status_id` (`status`, `id`),
+  KEY `idx_status_send_time` (`status`, `send_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
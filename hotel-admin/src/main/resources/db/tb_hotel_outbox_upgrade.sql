@@ -0,0 +1,7 @@
+-- 升级之前按 tb_hotel_outbox.sql 建好的表：create_time 改为由数据库生成，删除消息用它作为删除时间；
+-- 增加重发次数和下次发送时间，多次被退回或拒绝的消息标记为 status=2，不再挡住后面的消息
+ALTER TABLE `tb_hotel_outbox`
+  MODIFY COLUMN `create_time` datetime(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) COMMENT '写入时间，和tb_hotel.update_time使用同一个时钟',
+  MODIFY COLUMN `status` tinyint(4) NOT NULL DEFAULT '0' COMMENT '0：未发送，1：已发送，2：多次被退回或拒绝，不再发送',
+  ADD COLUMN `attempts` int(11) NOT NULL DEFAULT '0' COMMENT '被MQ退回或拒绝的次数' AFTER `status`,
+  ADD COLUMN `next_attempt_time` datetime(3) DEFAULT NULL COMMENT '被退回或拒绝后下次发送的时间' AFTER `attempts`;
@@ -3,7 +3,7 @@ package cn.itcast.hotel;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "hotel.id.node-id=0")
 class HotelAdminApplicationTests {
 
     @Test
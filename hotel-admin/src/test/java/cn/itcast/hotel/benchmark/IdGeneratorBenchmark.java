@@ -0,0 +1,130 @@
+package cn.itcast.hotel.benchmark;
+
+import cn.itcast.id.SnowflakeIdGenerator;
+import com.baomidou.mybatisplus.core.incrementer.DefaultIdentifierGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 酒店id的生成方式对比：原来的 Math.random()*100000000、MyBatis-Plus默认的雪花算法和 SnowflakeIdGenerator。
+ * generate* 是生成一个id的耗时；insert 是写入H2文件库的吞吐量（行/秒），表中先有10万行，
+ * 随机id分散写入B+树的各个页，递增id只追加在最后一页。H2和InnoDB的页结构不同，只看相对差距：
+ * mvn -P benchmark test-compile exec:exec -Dbenchmark=IdGeneratorBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdGeneratorBenchmark {
+
+    private static final int BATCH = 500;
+    private static final int EXISTING = 100000;
+
+    @State(Scope.Benchmark)
+    public static class Generators {
+        final SnowflakeIdGenerator snowflake = new SnowflakeIdGenerator(1);
+        final DefaultIdentifierGenerator mybatisPlus = new DefaultIdentifierGenerator();
+    }
+
+    @State(Scope.Benchmark)
+    public static class Table {
+        @Param({"random", "snowflake"})
+        String strategy;
+
+        Path dir;
+        Connection connection;
+        PreparedStatement insert;
+        SnowflakeIdGenerator snowflake;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException, SQLException {
+            dir = Files.createTempDirectory("id-benchmark");
+            connection = DriverManager.getConnection("jdbc:h2:file:" + dir.resolve("hotel") + ";MODE=MySQL", "sa", "");
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE tb_hotel (id BIGINT NOT NULL PRIMARY KEY, name VARCHAR(255) NOT NULL, "
+                        + "address VARCHAR(255) NOT NULL, price INT NOT NULL, score INT NOT NULL, "
+                        + "brand VARCHAR(32) NOT NULL, city VARCHAR(32) NOT NULL)");
+                statement.execute("INSERT INTO tb_hotel SELECT X, CONCAT('酒店', X), CONCAT('地址', X), 300, 45, "
+                        + "'如家', '上海' FROM SYSTEM_RANGE(1, " + EXISTING + ")");
+            }
+            insert = connection.prepareStatement("INSERT INTO tb_hotel VALUES (?, ?, ?, ?, ?, ?, ?) "
+                    + "ON DUPLICATE KEY UPDATE name = VALUES(name)");
+            snowflake = new SnowflakeIdGenerator(1);
+        }
+
+        long nextId() {
+            return "random".equals(strategy) ? (long) (Math.random() * 100000000) : snowflake.nextId();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException, SQLException {
+            connection.close();
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    @Benchmark
+    public long generateRandom() {
+        return (long) (Math.random() * 100000000);
+    }
+
+    @Benchmark
+    public Number generateMybatisPlus(Generators generators) {
+        return generators.mybatisPlus.nextId(null);
+    }
+
+    @Benchmark
+    public long generateSnowflake(Generators generators) {
+        return generators.snowflake.nextId();
+    }
+
+    /**
+     * 一批500行，结果按单行计算
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BATCH)
+    public int[] insert(Table table) throws SQLException {
+        PreparedStatement insert = table.insert;
+        for (int i = 0; i < BATCH; i++) {
+            long id = table.nextId();
+            insert.setLong(1, id);
+            insert.setString(2, "压测酒店" + id);
+            insert.setString(3, "压测路" + i + "号");
+            insert.setInt(4, 300);
+            insert.setInt(5, 45);
+            insert.setString(6, "如家");
+            insert.setString(7, "上海");
+            insert.addBatch();
+        }
+        return insert.executeBatch();
+    }
+}
@@ -0,0 +1,144 @@
+package cn.itcast.hotel.importer;
+
+import cn.itcast.hotel.constants.MqConstants;
+import cn.itcast.hotel.load.InMemoryRabbitTemplate;
+import cn.itcast.hotel.mapper.HotelOutboxMapper;
+import cn.itcast.hotel.pojo.Hotel;
+import cn.itcast.hotel.pojo.HotelOutbox;
+import cn.itcast.hotel.pojo.ImportReport;
+import cn.itcast.hotel.service.IHotelService;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.security.InvalidParameterException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doReturn;
+
+/**
+ * 使用H2和内存MQ，验证批量导入的分批写入、逐行报错和批量消息，生成的id重复时不覆盖已有酒店
+ */
+@ActiveProfiles("load")
+@SpringBootTest(properties = "hotel.import.chunk-size=3")
+class HotelImporterTest {
+
+    @TestConfiguration
+    static class RabbitConfig {
+        @Bean
+        public InMemoryRabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
+            return new InMemoryRabbitTemplate(connectionFactory, MqConstants.HOTEL_INSERT_KEY, 2000);
+        }
+    }
+
+    @Autowired
+    private HotelImporter importer;
+
+    @SpyBean
+    private IHotelService hotelService;
+
+    @Autowired
+    private HotelOutboxMapper outboxMapper;
+
+    @Test
+    void testCsvImportReportsBadRowsAndUpserts() throws IOException {
+        String tooLong = String.join("", Collections.nCopies(300, "长"));
+        String csv = "id,name,address,price,score,brand,city,star_name,business,longitude,latitude,pic\n"
+                + "5,\"导入酒店, 更新\",导入路5号,399,46,如家,上海,三钻,外滩地区,121.5,31.2,\n"
+                + ",导入酒店A,导入路1号,199,40,汉庭,上海,,,121.4,31.1,\n"
+                + ",,导入路2号,199,40,汉庭,上海,,,121.4,31.1,\n"
+                + ",导入酒店B,导入路3号,abc,40,汉庭,上海,,,121.4,31.1,\n"
+                + "\n"
+                + "," + tooLong + ",导入路4号,299,40,汉庭,上海,,,121.4,31.1,\n"
+                + ",导入酒店C,导入路6号,299,40,汉庭,北京,,,116.4,39.9,\n";
+
+        long lastOutboxId = lastOutboxId();
+        ImportReport report = importer.importHotels(reader(csv), ImportFormat.CSV);
+
+        assertEquals(6, report.getTotal());
+        assertEquals(3, report.getImported());
+        assertEquals(3, report.getFailed());
+        assertEquals(Arrays.asList(4L, 5L, 7L), report.getErrors().stream()
+                .map(ImportReport.RowError::getLine).collect(Collectors.toList()));
+        Hotel updated = hotelService.getById(5L);
+        assertEquals("导入酒店, 更新", updated.getName());
+        assertEquals(399, updated.getPrice());
+
+        // 有效的4行分成两批，第二批中超长的一行回滚，其余照常写入，每批一条消息
+        List<HotelOutbox> batches = outboxMapper.selectList(new LambdaQueryWrapper<HotelOutbox>()
+                .eq(HotelOutbox::getRoutingKey, MqConstants.HOTEL_BATCH_KEY)
+                .gt(HotelOutbox::getId, lastOutboxId)
+                .orderByAsc(HotelOutbox::getId));
+        assertEquals(2, batches.size());
+        assertTrue(batches.get(0).getPayload().startsWith("5,"));
+        assertEquals(1, batches.get(1).getPayload().split(",").length);
+    }
+
+    @Test
+    void testJsonLinesImport() throws IOException {
+        String jsonl = "{\"id\":8,\"name\":\"导入酒店J\",\"address\":\"导入路8号\",\"price\":500,\"score\":48,"
+                + "\"brand\":\"希尔顿\",\"city\":\"上海\",\"longitude\":\"121.5\",\"latitude\":\"31.2\"}\n"
+                + "{\"id\":9,\"name\":\n";
+
+        ImportReport report = importer.importHotels(reader(jsonl), ImportFormat.JSON_LINES);
+
+        assertEquals(2, report.getTotal());
+        assertEquals(1, report.getImported());
+        assertEquals(2L, report.getErrors().get(0).getLine());
+        assertEquals("导入酒店J", hotelService.getById(8L).getName());
+    }
+
+    @Test
+    void testGeneratedIdNeverOverwritesExistingHotel() throws IOException {
+        // 生成的id恰好和已有酒店重复
+        doReturn(6L).when(hotelService).nextId();
+        String before = hotelService.getById(6L).getName();
+        String csv = "name,address,price,score,brand,city,longitude,latitude\n"
+                + "冲突酒店,冲突路1号,199,40,汉庭,上海,121.4,31.1\n";
+
+        ImportReport report = importer.importHotels(reader(csv), ImportFormat.CSV);
+
+        assertEquals(0, report.getImported());
+        assertEquals(1, report.getFailed());
+        assertEquals(6L, report.getErrors().get(0).getId());
+        assertEquals(before, hotelService.getById(6L).getName());
+    }
+
+    @Test
+    void testUnknownCsvColumnIsRejected() {
+        String csv = "name,nickname\n导入酒店,别名\n";
+        assertThrows(InvalidParameterException.class, () -> importer.importHotels(reader(csv), ImportFormat.CSV));
+    }
+
+    @Test
+    void testOnlyLineDelimitedJsonIsAccepted() {
+        assertEquals(ImportFormat.CSV, ImportFormat.resolve(null, "text/csv; charset=UTF-8"));
+        assertEquals(ImportFormat.JSON_LINES, ImportFormat.resolve("jsonl", "application/json"));
+        assertEquals(ImportFormat.JSON_LINES, ImportFormat.resolve(null, "application/x-ndjson"));
+        assertThrows(InvalidParameterException.class, () -> ImportFormat.resolve(null, "application/json"));
+        assertThrows(InvalidParameterException.class, () -> ImportFormat.resolve("json", null));
+    }
+
+    private long lastOutboxId() {
+        HotelOutbox last = outboxMapper.selectOne(new LambdaQueryWrapper<HotelOutbox>()
+                .orderByDesc(HotelOutbox::getId).last("LIMIT 1"));
+        return last == null ? 0 : last.getId();
+    }
+
+    private static BufferedReader reader(String content) {
+        return new BufferedReader(new StringReader(content));
+    }
+}
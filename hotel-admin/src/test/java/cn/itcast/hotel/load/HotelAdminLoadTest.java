@@ -0,0 +1,129 @@
+package cn.itcast.hotel.load;
+
+import cn.itcast.hotel.constants.MqConstants;
+import cn.itcast.hotel.pojo.Hotel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 端到端压测：真实启动应用，MySQL换成H2，RabbitMQ换成内存队列，
+ * 按权重混合查询、分页（页码和按id翻页）、新增、修改、批量导入和删除请求。
+ * 默认跳过，运行方式：
+ * mvn test -Dtest=HotelAdminLoadTest -Dload=true [-Dload.threads=32 -Dload.duration=60s -Dload.warmup=10s]
+ */
+@EnabledIfSystemProperty(named = "load", matches = "true")
+@ActiveProfiles("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class HotelAdminLoadTest {
+
+    private static final String[] BRANDS = {"如家", "7天酒店", "汉庭", "希尔顿", "万怡"};
+    private static final String[] CITIES = {"上海", "北京", "深圳", "杭州"};
+    private static final int HOTELS = 2000;
+
+    @TestConfiguration
+    static class RabbitConfig {
+        @Bean
+        public InMemoryRabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
+            return new InMemoryRabbitTemplate(connectionFactory, MqConstants.HOTEL_INSERT_KEY, HOTELS);
+        }
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private InMemoryRabbitTemplate rabbitTemplate;
+
+    private final RestTemplate restTemplate = new RestTemplate(new SimpleClientHttpRequestFactory());
+
+    @Test
+    void mixedLoad() throws InterruptedException {
+        String base = "http://127.0.0.1:" + port + "/hotel";
+        LoadDriver driver = new LoadDriver()
+                .add("get", 40, () -> restTemplate.getForObject(base + "/{id}", String.class, randomId()))
+                .add("list", 15, () -> restTemplate.getForObject(base + "/list?page={page}&size=10",
+                        String.class, 1 + random().nextInt(HOTELS / 10)))
+                .add("list.keyset", 15, () -> restTemplate.getForObject(base + "/list?lastId={id}&size=10",
+                        String.class, random().nextInt(HOTELS)))
+                .add("save", 10, () -> restTemplate.postForObject(base, randomHotel(null), Void.class))
+                .add("update", 15, () -> restTemplate.put(base, randomHotel(randomId())))
+                .add("import", 2, () -> restTemplate.postForObject(base + "/import", csv(50), String.class))
+                .add("delete", 5, () -> {
+                    // 只删除压测中新增的酒店，保证查询和修改的数据一直存在；还没有新增的酒店时跳过
+                    Long id = rabbitTemplate.pollInsertedId();
+                    if (id == null) {
+                        throw new LoadDriver.Skip();
+                    }
+                    restTemplate.delete(base + "/{id}", id);
+                });
+
+        String report = driver.run(Integer.getInteger("load.threads", 32),
+                duration("load.warmup", "10s"), duration("load.duration", "60s"));
+        System.out.println(report);
+        System.out.println("MQ消息数：" + rabbitTemplate.receivedCounts() + "，未消费：" + rabbitTemplate.backlog());
+    }
+
+    private static Hotel randomHotel(Long id) {
+        ThreadLocalRandom random = random();
+        Hotel hotel = new Hotel();
+        hotel.setId(id);
+        hotel.setName("压测酒店" + random.nextInt(100000));
+        hotel.setAddress("压测路" + random.nextInt(1000) + "号");
+        hotel.setPrice(100 + random.nextInt(2900));
+        hotel.setScore(35 + random.nextInt(15));
+        hotel.setBrand(BRANDS[random.nextInt(BRANDS.length)]);
+        hotel.setCity(CITIES[random.nextInt(CITIES.length)]);
+        hotel.setStarName("四钻");
+        hotel.setBusiness("外滩地区");
+        hotel.setLatitude(String.valueOf(31.0 + random.nextInt(1000) / 1000.0));
+        hotel.setLongitude(String.valueOf(121.0 + random.nextInt(1000) / 1000.0));
+        return hotel;
+    }
+
+    /**
+     * 一半修改已有酒店，一半新增
+     */
+    private static HttpEntity<String> csv(int rows) {
+        StringBuilder csv = new StringBuilder("id,name,address,price,score,brand,city,starName,business,longitude,latitude\n");
+        for (int i = 0; i < rows; i++) {
+            Hotel hotel = randomHotel(i % 2 == 0 ? randomId() : null);
+            csv.append(hotel.getId() == null ? "" : hotel.getId()).append(',')
+                    .append(hotel.getName()).append(',').append(hotel.getAddress()).append(',')
+                    .append(hotel.getPrice()).append(',').append(hotel.getScore()).append(',')
+                    .append(hotel.getBrand()).append(',').append(hotel.getCity()).append(',')
+                    .append(hotel.getStarName()).append(',').append(hotel.getBusiness()).append(',')
+                    .append(hotel.getLongitude()).append(',').append(hotel.getLatitude()).append('\n');
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("text/csv;charset=UTF-8"));
+        return new HttpEntity<>(csv.toString(), headers);
+    }
+
+    private static long randomId() {
+        return 1 + random().nextInt(HOTELS);
+    }
+
+    private static ThreadLocalRandom random() {
+        return ThreadLocalRandom.current();
+    }
+
+    private static Duration duration(String property, String defaultValue) {
+        return DurationStyle.detectAndParse(System.getProperty(property, defaultValue));
+    }
+}
@@ -0,0 +1,126 @@
+package cn.itcast.hotel.load;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 压测用的RabbitMQ替身：消息照常序列化，然后放进内存队列并立即确认，由一个后台线程消费。
+ * unroutableKeys 中的RoutingKey模拟没有绑定队列：消息被退回后再确认，和broker的顺序一致。
+ * 新增消息里大于 minTrackedId 的酒店id会被记下来，压测时用来删除自己新增的酒店
+ */
+public class InMemoryRabbitTemplate extends RabbitTemplate implements AutoCloseable {
+
+    private static class Envelope {
+        private final String routingKey;
+        private final Message message;
+
+        Envelope(String routingKey, Message message) {
+            this.routingKey = routingKey;
+            this.message = message;
+        }
+    }
+
+    private final BlockingQueue<Envelope> queue = new LinkedBlockingQueue<>();
+    private final Map<String, LongAdder> received = new ConcurrentHashMap<>();
+    private final Map<String, Message> lastMessages = new ConcurrentHashMap<>();
+    private final Queue<Long> insertedIds = new ConcurrentLinkedQueue<>();
+    private final Set<String> unroutableKeys = ConcurrentHashMap.newKeySet();
+    private final String insertKey;
+    private final long minTrackedId;
+    private final Thread consumer;
+
+    /**
+     * 连接工厂只是为了通过初始化校验，发送消息不会建立连接
+     */
+    public InMemoryRabbitTemplate(ConnectionFactory connectionFactory, String insertKey, long minTrackedId) {
+        super(connectionFactory);
+        this.insertKey = insertKey;
+        this.minTrackedId = minTrackedId;
+        this.consumer = new Thread(this::consume, "in-memory-rabbit");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @Override
+    public void send(String exchange, String routingKey, Message message, CorrelationData correlationData) {
+        if (unroutableKeys.contains(routingKey)) {
+            if (correlationData != null) {
+                correlationData.setReturnedMessage(message);
+            }
+        } else {
+            queue.add(new Envelope(routingKey, message));
+        }
+        if (correlationData != null) {
+            // 放进队列即视为broker已确认
+            correlationData.getFuture().set(new CorrelationData.Confirm(true, null));
+        }
+    }
+
+    /**
+     * 这些RoutingKey的消息没有路由到队列，会被退回
+     */
+    public Set<String> unroutableKeys() {
+        return unroutableKeys;
+    }
+
+    /**
+     * 取出一个新增过的酒店id，没有时返回null
+     */
+    public Long pollInsertedId() {
+        return insertedIds.poll();
+    }
+
+    /**
+     * 各个RoutingKey收到的消息数
+     */
+    public Map<String, Long> receivedCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        received.forEach((key, count) -> counts.put(key, count.sum()));
+        return counts;
+    }
+
+    /**
+     * 这个RoutingKey最近消费的一条消息，没有时返回null
+     */
+    public Message lastMessage(String routingKey) {
+        return lastMessages.get(routingKey);
+    }
+
+    public int backlog() {
+        return queue.size();
+    }
+
+    @Override
+    public void close() {
+        consumer.interrupt();
+    }
+
+    private void consume() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Envelope envelope;
+            try {
+                envelope = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            Object body = getMessageConverter().fromMessage(envelope.message);
+            lastMessages.put(envelope.routingKey, envelope.message);
+            received.computeIfAbsent(envelope.routingKey, k -> new LongAdder()).increment();
+            if (insertKey.equals(envelope.routingKey) && body instanceof Long && (Long) body > minTrackedId) {
+                insertedIds.add((Long) body);
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package cn.itcast.hotel.outbox;
+
+import cn.itcast.hotel.constants.MqConstants;
+import cn.itcast.hotel.load.InMemoryRabbitTemplate;
+import cn.itcast.hotel.mapper.HotelOutboxMapper;
+import cn.itcast.hotel.pojo.Hotel;
+import cn.itcast.hotel.pojo.HotelOutbox;
+import cn.itcast.hotel.service.IHotelService;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 使用H2和内存MQ，验证发件箱消息随事务写入、提交后被发送，被退回的消息推迟重发、不挡住后面的消息，
+ * 多次被退回后标记为失败；删除消息带上数据库记录的删除时间
+ */
+@ActiveProfiles("load")
+@SpringBootTest(properties = {
+        // 单独的库：缓存的其他测试上下文也有发送线程，共用一个库时会把这里被退回的消息发出去
+        "spring.datasource.url=jdbc:h2:mem:hotel-outbox;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "hotel.outbox.batch-size=1",
+        "hotel.outbox.max-attempts=3",
+        "hotel.outbox.retry-interval=100ms"
+})
+class HotelOutboxTest {
+
+    @TestConfiguration
+    static class RabbitConfig {
+        @Bean
+        public InMemoryRabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
+            return new InMemoryRabbitTemplate(connectionFactory, MqConstants.HOTEL_INSERT_KEY, 2000);
+        }
+    }
+
+    @Autowired
+    private IHotelService hotelService;
+
+    @Autowired
+    private HotelOutboxMapper outboxMapper;
+
+    @Autowired
+    private InMemoryRabbitTemplate rabbitTemplate;
+
+    @Test
+    void testSavedHotelIsRelayed() throws InterruptedException {
+        Hotel hotel = hotel();
+        hotelService.saveHotel(hotel);
+
+        HotelOutbox outbox = waitUntilSent(hotel.getId());
+        assertEquals(MqConstants.HOTEL_INSERT_KEY, outbox.getRoutingKey());
+        assertNotNull(outbox.getSendTime());
+    }
+
+    @Test
+    void testDeleteMessageCarriesDeleteTime() throws InterruptedException {
+        Hotel hotel = hotel();
+        hotelService.saveHotel(hotel);
+        hotelService.deleteHotel(hotel.getId());
+
+        HotelOutbox outbox = null;
+        Message message = null;
+        for (int i = 0; i < 50 && message == null; i++) {
+            Thread.sleep(100);
+            outbox = outboxMapper.selectOne(new LambdaQueryWrapper<HotelOutbox>()
+                    .eq(HotelOutbox::getRoutingKey, MqConstants.HOTEL_DELETE_KEY)
+                    .eq(HotelOutbox::getPayload, String.valueOf(hotel.getId()))
+                    .eq(HotelOutbox::getStatus, HotelOutbox.SENT));
+            Message last = rabbitTemplate.lastMessage(MqConstants.HOTEL_DELETE_KEY);
+            if (outbox != null && last != null
+                    && hotel.getId().equals(rabbitTemplate.getMessageConverter().fromMessage(last))) {
+                message = last;
+            }
+        }
+        assertNotNull(message, "删除消息未发送");
+        assertNotNull(outbox.getCreateTime());
+        assertEquals(outbox.getCreateTime().toString(),
+                message.getMessageProperties().getHeaders().get(MqConstants.DELETE_TIME_HEADER));
+    }
+
+    @Test
+    void testFailedWriteLeavesNoMessage() {
+        Hotel hotel = hotel();
+        hotel.setName(null);
+        assertThrows(RuntimeException.class, () -> hotelService.saveHotel(hotel));
+
+        assertEquals(0, outboxMapper.selectCount(new LambdaQueryWrapper<HotelOutbox>()
+                .eq(HotelOutbox::getPayload, String.valueOf(hotel.getId()))));
+    }
+
+    @Test
+    void testReturnedMessageIsDeferredThenFailed() throws InterruptedException {
+        rabbitTemplate.unroutableKeys().add("hotel.unroutable");
+        HotelOutbox returned = HotelOutbox.of("hotel.unroutable", 1L);
+        outboxMapper.insert(returned);
+        try {
+            // 每批只发一条，被退回的消息推迟后，之后的消息照常发送
+            Hotel hotel = hotel();
+            hotelService.saveHotel(hotel);
+            waitUntilSent(hotel.getId());
+            HotelOutbox deferred = outboxMapper.selectById(returned.getId());
+            assertNotEquals(HotelOutbox.SENT, deferred.getStatus());
+            assertTrue(deferred.getAttempts() >= 1);
+
+            // 间隔100ms、200ms重发，第3次被退回后不再发送
+            for (int i = 0; i < 50 && outboxMapper.selectById(returned.getId()).getStatus() != HotelOutbox.FAILED; i++) {
+                Thread.sleep(100);
+            }
+            HotelOutbox failed = outboxMapper.selectById(returned.getId());
+            assertEquals(HotelOutbox.FAILED, failed.getStatus());
+            assertEquals(3, failed.getAttempts());
+        } finally {
+            outboxMapper.deleteById(returned.getId());
+            rabbitTemplate.unroutableKeys().clear();
+        }
+    }
+
+    private HotelOutbox waitUntilSent(Long id) throws InterruptedException {
+        for (int i = 0; i < 50; i++) {
+            HotelOutbox outbox = outboxMapper.selectOne(new LambdaQueryWrapper<HotelOutbox>()
+                    .eq(HotelOutbox::getPayload, String.valueOf(id)));
+            if (outbox != null && outbox.getStatus() == HotelOutbox.SENT) {
+                return outbox;
+            }
+            Thread.sleep(100);
+        }
+        fail("发件箱消息未发送，id：" + id + "，MQ消息数：" + rabbitTemplate.receivedCounts());
+        return null;
+    }
+
+    private static Hotel hotel() {
+        Hotel hotel = new Hotel();
+        hotel.setName("发件箱测试酒店");
+        hotel.setAddress("测试路1号");
+        hotel.setPrice(300);
+        hotel.setScore(45);
+        hotel.setBrand("如家");
+        hotel.setCity("上海");
+        hotel.setLatitude("31.2");
+        hotel.setLongitude("121.5");
+        return hotel;
+    }
+}
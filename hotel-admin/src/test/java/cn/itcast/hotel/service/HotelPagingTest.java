@@ -0,0 +1,95 @@
+package cn.itcast.hotel.service;
+
+import cn.itcast.hotel.constants.MqConstants;
+import cn.itcast.hotel.load.InMemoryRabbitTemplate;
+import cn.itcast.hotel.pojo.Hotel;
+import cn.itcast.hotel.pojo.PageResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 使用H2，验证按id翻页和按页码分页的结果一致，缓存的总数随新增、删除变化，以及分页大小的校验
+ */
+@ActiveProfiles("load")
+@SpringBootTest(properties = "hotel.list.exact-count-threshold=100")
+@AutoConfigureMockMvc
+class HotelPagingTest {
+
+    @TestConfiguration
+    static class RabbitConfig {
+        @Bean
+        public InMemoryRabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
+            return new InMemoryRabbitTemplate(connectionFactory, MqConstants.HOTEL_INSERT_KEY, 2000);
+        }
+    }
+
+    @Autowired
+    private IHotelService hotelService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void testKeysetPagesMatchOffsetPages() {
+        PageResult second = hotelService.listPage(2, 10);
+        PageResult third = hotelService.listPage(3, 10);
+        List<Hotel> secondHotels = second.getHotels();
+        long lastId = secondHotels.get(secondHotels.size() - 1).getId();
+
+        PageResult keyset = hotelService.listAfter(lastId, 10);
+
+        assertEquals(ids(third), ids(keyset));
+        assertEquals(third.getTotal(), keyset.getTotal());
+        assertEquals(ids(hotelService.listPage(1, 10)), ids(hotelService.listAfter(0, 10)));
+    }
+
+    @Test
+    void testCachedTotalFollowsChanges() {
+        long before = hotelService.listAfter(0, 1).getTotal();
+        assertEquals(hotelService.count(), before);
+
+        Hotel hotel = new Hotel();
+        hotel.setName("分页测试酒店");
+        hotel.setAddress("测试路2号");
+        hotel.setPrice(300);
+        hotel.setScore(45);
+        hotel.setBrand("如家");
+        hotel.setCity("上海");
+        hotel.setLatitude("31.2");
+        hotel.setLongitude("121.5");
+        hotelService.saveHotel(hotel);
+        assertEquals(before + 1, hotelService.listPage(1, 1).getTotal());
+
+        hotelService.deleteHotel(hotel.getId());
+        hotelService.deleteHotel(hotel.getId());
+        assertEquals(before, hotelService.listAfter(0, 1).getTotal());
+    }
+
+    @Test
+    void testInvalidPageSizeIsBadRequest() throws Exception {
+        mockMvc.perform(get("/hotel/list").param("lastId", "0").param("size", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/hotel/list").param("size", "101"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/hotel/list").param("lastId", "0").param("size", "100"))
+                .andExpect(status().isOk());
+    }
+
+    private static List<Long> ids(PageResult result) {
+        return result.getHotels().stream().map(Hotel::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,14 @@
+-- 压测用的发件箱，结构和MySQL一致；tb_hotel和酒店数据在 hotel-load-support 的 load/hotel-schema.sql
+DROP TABLE IF EXISTS tb_hotel_outbox;
+CREATE TABLE tb_hotel_outbox (
+  id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+  routing_key VARCHAR(64) NOT NULL,
+  payload VARCHAR NOT NULL,
+  status TINYINT NOT NULL DEFAULT 0,
+  attempts INT NOT NULL DEFAULT 0,
+  next_attempt_time TIMESTAMP(3),
+  create_time TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+  send_time TIMESTAMP
+);
+CREATE INDEX idx_status_id ON tb_hotel_outbox (status, id);
+CREATE INDEX idx_status_send_time ON tb_hotel_outbox (status, send_time);
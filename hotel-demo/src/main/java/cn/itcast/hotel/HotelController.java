@@ -1,14 +1,24 @@
 package cn.itcast.hotel;
 
 
+import cn.itcast.hotel.pojo.MapParams;
+import cn.itcast.hotel.pojo.MapResult;
 import cn.itcast.hotel.pojo.PageResult;
 import cn.itcast.hotel.pojo.RequestParams;
+import cn.itcast.hotel.pojo.SearchPage;
 import cn.itcast.hotel.service.IHotelService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
 
 @RestController
 @RequestMapping("/hotel")
@@ -18,18 +28,64 @@ public class HotelController {
     private IHotelService hotelService;
 
     @PostMapping("/list")
-    public PageResult search(@RequestBody RequestParams params){
-        return hotelService.search(params);
+    public DeferredResult<PageResult> search(@RequestBody RequestParams params){
+        return defer(hotelService.searchAsync(params));
     }
 
     @PostMapping("/filters")
-    public Map<String , List<String>> getfilters(@RequestBody RequestParams params){
-        return hotelService.filters(params);
+    public DeferredResult<Map<String , List<String>>> getfilters(@RequestBody RequestParams params){
+        return defer(hotelService.filtersAsync(params));
     }
+    //结果列表和过滤项一起返回，搜索页只需要一次请求
+    @PostMapping("/page")
+    public DeferredResult<SearchPage> searchPage(@RequestBody RequestParams params){
+        return defer(hotelService.searchPageAsync(params));
+    }
+
+    //地图视口内的酒店，缩放级别低时返回聚合点，放大后返回标记
+    @PostMapping("/map")
+    public DeferredResult<MapResult> map(@RequestBody MapParams params){
+        if (params.getTopLeft() == null || params.getBottomRight() == null || params.getZoom() == null
+                || params.getZoom() < 0 || params.getTopLeft().getLat() < params.getBottomRight().getLat()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "需要视口的topLeft、bottomRight和缩放级别zoom");
+        }
+        return defer(hotelService.mapAsync(params));
+    }
+
     //Request URL: http://localhost:8089/hotel/suggestion?key=s
     @GetMapping("/suggestion")
     public List<String> getSuggestions(@RequestParam("key") String prefix){
         return hotelService.getSuggestions(prefix);
     }
 
+    /**
+     * 等待ES响应时不占用Tomcat线程；请求超时或者出错时取消还没完成的ES请求
+     */
+    private static <T> DeferredResult<T> defer(CompletableFuture<T> future) {
+        DeferredResult<T> result = new DeferredResult<>();
+        result.onTimeout(() -> future.cancel(false));
+        result.onError(e -> future.cancel(false));
+        future.whenComplete((value, e) -> {
+            if (e == null) {
+                result.setResult(value);
+                return;
+            }
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (cause instanceof TimeoutException) {
+                result.setErrorResult(new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, cause.getMessage()));
+            } else if (cause instanceof IllegalArgumentException) {
+                result.setErrorResult(new ResponseStatusException(HttpStatus.BAD_REQUEST, cause.getMessage()));
+            } else {
+                result.setErrorResult(cause);
+            }
+        });
+        return result;
+    }
+
+    //请求参数不合法，例如无效的分页游标
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> badRequest(IllegalArgumentException e){
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
 }
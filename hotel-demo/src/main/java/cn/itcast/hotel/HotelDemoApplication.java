@@ -1,15 +1,13 @@
 package cn.itcast.hotel;
 
 
-import org.apache.http.HttpHost;
-import org.elasticsearch.client.RestClient;
-import org.elasticsearch.client.RestHighLevelClient;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableAsync;
 
 @MapperScan("cn.itcast.hotel.mapper")
+@EnableAsync
 @SpringBootApplication
 public class HotelDemoApplication {
 
@@ -17,13 +15,4 @@ public class HotelDemoApplication {
         SpringApplication.run(HotelDemoApplication.class, args);
     }
 
-    @Bean
-    public RestHighLevelClient client(){
-        return new RestHighLevelClient(
-                RestClient.builder(
-                        HttpHost.create("http://192.168.125.100:9200")
-                )
-        );
-    }
-
 }
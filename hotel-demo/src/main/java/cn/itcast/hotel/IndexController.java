@@ -0,0 +1,75 @@
+package cn.itcast.hotel;
+
+import cn.itcast.hotel.constants.HotelConstants;
+import cn.itcast.hotel.index.HotelIndexManager;
+import cn.itcast.hotel.index.HotelReindexer;
+import cn.itcast.hotel.pojo.IndexVersions;
+import cn.itcast.hotel.pojo.RebuildReport;
+import cn.itcast.hotel.pojo.ReindexReport;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/index")
+public class IndexController {
+
+    @Autowired
+    private HotelReindexer reindexer;
+
+    @Autowired
+    private HotelIndexManager indexManager;
+
+    //Request URL: http://localhost:8089/index/reindex?resume=true
+    //原地重建当前版本的索引，不修改映射；在后台执行，立即返回任务状态
+    @PostMapping("/reindex")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public ReindexReport reindex(@RequestParam(value = "resume", defaultValue = "false") Boolean resume){
+        return reindexer.submit(HotelConstants.INDEX_ALIAS, resume);
+    }
+
+    //查询正在执行或最近一次重建的进度和结果
+    @GetMapping("/reindex")
+    public ReindexReport reindexStatus(){
+        return reindexer.status();
+    }
+
+    //重建到新版本的索引，完成后切换别名；在后台执行，立即返回任务状态
+    @PostMapping("/rebuild")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public RebuildReport rebuild() throws IOException {
+        return indexManager.submitRebuild();
+    }
+
+    //查询正在执行或最近一次重建到新版本的进度和结果
+    @GetMapping("/rebuild")
+    public RebuildReport rebuildStatus(){
+        return indexManager.rebuildStatus();
+    }
+
+    //别名切回上一个版本
+    @PostMapping("/rollback")
+    public IndexVersions rollback() throws IOException {
+        return indexManager.rollback();
+    }
+
+    @GetMapping("/versions")
+    public IndexVersions versions() throws IOException {
+        return indexManager.versions();
+    }
+
+    //已有重建任务在执行，或其他实例正在重建、回滚
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<String> conflict(IllegalStateException e){
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+    }
+}
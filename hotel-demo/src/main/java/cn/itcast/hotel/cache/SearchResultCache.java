@@ -0,0 +1,204 @@
+package cn.itcast.hotel.cache;
+
+import cn.itcast.hotel.config.SearchCacheProperties;
+import cn.itcast.hotel.pojo.GeoLocation;
+import cn.itcast.hotel.pojo.HotelChangeEvent;
+import cn.itcast.hotel.pojo.HotelDoc;
+import cn.itcast.hotel.pojo.PageResult;
+import cn.itcast.hotel.pojo.RequestParams;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.elasticsearch.common.geo.GeoUtils;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * 酒店搜索结果的本地缓存，key是规范化后的查询条件。
+ * 收到酒店变化事件时，只淘汰可能受影响的查询：过滤条件能命中变化前或变化后的文档，或者结果页里包含这个酒店。
+ * 事件由 HotelChangeBroadcaster 广播到所有实例，每个实例的缓存都会淘汰
+ */
+@Slf4j
+@Component
+public class SearchResultCache {
+
+    @Autowired
+    private SearchCacheProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private AsyncCache<RequestParams, PageResult> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "hotelSearch");
+    }
+
+    /**
+     * 规范化查询条件：去掉空白、空串转为null，位置对齐到网格中心。
+     * 缓存的结果用规范化后的条件查询，保证和key一致；返回前再按用户的真实位置计算距离和排序
+     */
+    public RequestParams normalize(RequestParams params) {
+        RequestParams key = new RequestParams();
+        BeanUtils.copyProperties(params, key);
+        key.setKey(StringUtils.trimToNull(params.getKey()));
+        // 只有price和score会改变排序，其余都按默认排序
+        String sortBy = StringUtils.trimToNull(params.getSortBy());
+        key.setSortBy("price".equals(sortBy) || "score".equals(sortBy) ? sortBy : null);
+        key.setBrand(StringUtils.trimToNull(params.getBrand()));
+        key.setCity(StringUtils.trimToNull(params.getCity()));
+        key.setStarName(StringUtils.trimToNull(params.getStarName()));
+        key.setLocation(quantize(params.getLocation()));
+        return key;
+    }
+
+    /**
+     * 查询缓存，未命中时用规范化后的条件调用loader查询并放入缓存
+     */
+    public PageResult get(RequestParams params, Function<RequestParams, PageResult> loader) {
+        if (!properties.isEnabled()) {
+            return loader.apply(params);
+        }
+        return locate(cache.synchronous().get(normalize(params), loader), params);
+    }
+
+    /**
+     * 异步查询缓存，同一个key同时只有一个请求发到ES。
+     * 返回的是缓存中future的副本，调用方取消它不会影响其它等待同一结果的请求
+     */
+    public CompletableFuture<PageResult> getAsync(RequestParams params, Function<RequestParams, CompletableFuture<PageResult>> loader) {
+        if (!properties.isEnabled()) {
+            return loader.apply(params);
+        }
+        return cache.get(normalize(params), (k, executor) -> loader.apply(k)).thenApply(page -> locate(page, params));
+    }
+
+    /**
+     * 缓存的结果是按网格中心查的，按用户的真实位置重新计算距离，再按距离重新排序。
+     * 按价格、评分排序时距离是第二排序条件，只在价格、评分相同的酒店之间调整顺序。
+     * 缓存中的对象是共享的，这里返回副本
+     */
+    private PageResult locate(PageResult page, RequestParams params) {
+        GeoLocation location = params.getLocation();
+        if (location == null || page.getHotels() == null || properties.getGeohashPrecision() <= 0) {
+            return page;
+        }
+        List<HotelDoc> hotels = new ArrayList<>(page.getHotels().size());
+        for (HotelDoc hotel : page.getHotels()) {
+            HotelDoc copy = new HotelDoc();
+            BeanUtils.copyProperties(hotel, copy);
+            if (hotel.getLocation() != null) {
+                copy.setDistance(GeoUtils.arcDistance(location.getLat(), location.getLon(),
+                        hotel.getLocation().getLat(), hotel.getLocation().getLon()) / 1000);
+            }
+            hotels.add(copy);
+        }
+        Comparator<HotelDoc> byDistance = Comparator.comparing(
+                SearchResultCache::distanceOf, Comparator.nullsLast(Comparator.naturalOrder()));
+        String sortBy = StringUtils.trimToNull(params.getSortBy());
+        if ("price".equals(sortBy)) {
+            byDistance = Comparator.comparing(HotelDoc::getPrice, Comparator.nullsLast(Comparator.<Integer>naturalOrder()))
+                    .thenComparing(byDistance);
+        } else if ("score".equals(sortBy)) {
+            byDistance = Comparator.comparing(HotelDoc::getScore, Comparator.nullsLast(Comparator.<Integer>reverseOrder()))
+                    .thenComparing(byDistance);
+        }
+        hotels.sort(byDistance);
+        PageResult result = new PageResult(page.getTotal(), hotels);
+        result.setNextCursor(page.getNextCursor());
+        return result;
+    }
+
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    @EventListener
+    public void onHotelChanged(HotelChangeEvent event) {
+        long before = cache.synchronous().estimatedSize();
+        cache.asMap().entrySet().removeIf(entry ->
+                matches(entry.getKey(), event.getBefore())
+                        || matches(entry.getKey(), event.getAfter())
+                        || contains(entry.getValue(), event.getId()));
+        log.debug("酒店{}变化，淘汰搜索缓存{}条", event.getId(), before - cache.synchronous().estimatedSize());
+    }
+
+    /**
+     * 判断查询条件是否可能命中这个文档。关键字查询无法在本地判断，一律认为命中
+     */
+    private boolean matches(RequestParams params, HotelDoc doc) {
+        if (doc == null) {
+            return false;
+        }
+        if (params.getKey() != null) {
+            return true;
+        }
+        if (params.getCity() != null && !params.getCity().equals(doc.getCity())) {
+            return false;
+        }
+        if (params.getBrand() != null && !params.getBrand().equals(doc.getBrand())) {
+            return false;
+        }
+        if (params.getStarName() != null && !params.getStarName().equals(doc.getStarName())) {
+            return false;
+        }
+        if (params.getMinPrice() != null && params.getMaxPrice() != null && doc.getPrice() != null) {
+            return doc.getPrice() >= params.getMinPrice() && doc.getPrice() <= params.getMaxPrice();
+        }
+        return true;
+    }
+
+    /**
+     * 还在查询中的结果可能是变化前查的，也一并淘汰
+     */
+    private boolean contains(CompletableFuture<PageResult> future, Long id) {
+        if (!future.isDone() || future.isCompletedExceptionally()) {
+            return true;
+        }
+        PageResult result = future.join();
+        if (result.getHotels() == null) {
+            return false;
+        }
+        for (HotelDoc hotel : result.getHotels()) {
+            if (id.equals(hotel.getId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Double distanceOf(HotelDoc hotel) {
+        return hotel.getDistance() instanceof Number ? ((Number) hotel.getDistance()).doubleValue() : null;
+    }
+
+    private GeoLocation quantize(GeoLocation location) {
+        int precision = properties.getGeohashPrecision();
+        if (location == null || precision <= 0) {
+            return location;
+        }
+        return location.snap(Math.min(precision, 12));
+    }
+}
@@ -0,0 +1,190 @@
+package cn.itcast.hotel.cdc;
+
+import cn.itcast.hotel.config.CdcProperties;
+import cn.itcast.hotel.constants.MqConstants;
+import cn.itcast.hotel.mapper.HotelMapper;
+import cn.itcast.hotel.pojo.Hotel;
+import cn.itcast.hotel.service.IHotelService;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * 增量同步：按 (update_time, id) 的高水位轮询 tb_hotel 中修改过的行，读出的整行直接转换成文档写入索引，
+ * 不再按id回查数据库。直接执行的SQL和批量修改也能同步到索引库。
+ * 每批写入成功后把断点记到文件，重启后从断点继续。
+ * 物理删除查不到，删除仍然通过MQ的删除消息同步。
+ * 读出的行在写入前可能已经被删除，写入带着修改时间作为版本号，比删除时的版本旧，不会让已删除的酒店复活
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "hotel.cdc", name = "enabled", havingValue = "true")
+public class HotelChangePoller {
+
+    /**
+     * 已同步的最后一行
+     */
+    public static class Position {
+        private final LocalDateTime updateTime;
+        private final long id;
+
+        public Position(LocalDateTime updateTime, long id) {
+            this.updateTime = updateTime;
+            this.id = id;
+        }
+
+        public LocalDateTime getUpdateTime() {
+            return updateTime;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        @Override
+        public String toString() {
+            return updateTime + "#" + id;
+        }
+    }
+
+    private static final Position START = new Position(LocalDateTime.of(1970, 1, 1, 0, 0), 0L);
+
+    @Autowired
+    private HotelMapper hotelMapper;
+
+    @Autowired
+    private IHotelService hotelService;
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private CdcProperties properties;
+
+    private volatile boolean running = true;
+    private volatile Position position;
+    private Thread worker;
+    private int attempts;
+
+    @PostConstruct
+    public void init() {
+        position = readCheckpoint();
+        log.info("开始增量同步酒店，断点：{}", position);
+        worker = new Thread(this::run, "hotel-cdc-poller");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        worker.interrupt();
+    }
+
+    public Position position() {
+        return position;
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                // 读满一批说明还有积压，立即读下一批
+                if (poll() < properties.getBatchSize()) {
+                    Thread.sleep(properties.getPollInterval().toMillis());
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                log.warn("增量同步酒店失败，稍后重试：{}", e.getMessage());
+                try {
+                    Thread.sleep(properties.getPollInterval().toMillis());
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 读取并写入一批修改过的行
+     * @return 读到的行数，写入失败需要重试时返回0
+     */
+    int poll() {
+        Position from = position;
+        // 1.按 (update_time, id) 顺序读取断点之后的行，修改时间相同的行用id区分
+        // update_time由数据库写入，截止时间也用数据库的时钟，不受应用服务器时钟偏差的影响
+        LocalDateTime until = hotelMapper.now().minus(properties.getLag());
+        List<Hotel> hotels = hotelMapper.selectList(new LambdaQueryWrapper<Hotel>()
+                .lt(Hotel::getUpdateTime, until)
+                .and(w -> w.gt(Hotel::getUpdateTime, from.getUpdateTime())
+                        .or(x -> x.eq(Hotel::getUpdateTime, from.getUpdateTime()).gt(Hotel::getId, from.getId())))
+                .orderByAsc(Hotel::getUpdateTime).orderByAsc(Hotel::getId)
+                .last("limit " + properties.getBatchSize()));
+        if (hotels.isEmpty()) {
+            return 0;
+        }
+        // 2.整行直接写入索引，失败时不推进断点，下次重新读取
+        Set<Long> failed = hotelService.bulkUpsert(hotels);
+        if (!failed.isEmpty()) {
+            if (++attempts <= properties.getMaxRetries()) {
+                log.warn("增量同步酒店失败{}条，第{}次重试", failed.size(), attempts);
+                return 0;
+            }
+            // 重试后仍然失败的，逐条投递到死信队列，不再阻塞后面的修改
+            for (Long id : failed) {
+                log.error("酒店增量同步失败，投递到死信队列，id：{}", id);
+                rabbitTemplate.convertAndSend(MqConstants.HOTEL_EXCHANGE, MqConstants.HOTEL_ERROR_KEY + ".insert", id);
+            }
+        }
+        attempts = 0;
+        // 3.推进断点
+        Hotel last = hotels.get(hotels.size() - 1);
+        position = new Position(last.getUpdateTime(), last.getId());
+        writeCheckpoint(position);
+        log.debug("增量同步酒店{}条，断点：{}", hotels.size(), position);
+        return hotels.size();
+    }
+
+    private Position readCheckpoint() {
+        Path path = Paths.get(properties.getCheckpointFile());
+        if (!Files.exists(path)) {
+            return START;
+        }
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            Properties checkpoint = new Properties();
+            checkpoint.load(reader);
+            return new Position(LocalDateTime.parse(checkpoint.getProperty("updateTime")),
+                    Long.parseLong(checkpoint.getProperty("id", "0")));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void writeCheckpoint(Position position) {
+        Properties checkpoint = new Properties();
+        checkpoint.setProperty("updateTime", position.getUpdateTime().toString());
+        checkpoint.setProperty("id", String.valueOf(position.getId()));
+        try (Writer writer = Files.newBufferedWriter(Paths.get(properties.getCheckpointFile()), StandardCharsets.UTF_8)) {
+            checkpoint.store(writer, null);
+        } catch (IOException e) {
+            log.warn("写入断点失败", e);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package cn.itcast.hotel.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 在多个实例之间广播酒店文档变化的配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "hotel.mq.broadcast")
+public class BroadcastProperties {
+    /**
+     * 是否广播。只消费到MQ消息的实例知道文档变了，其他实例的搜索缓存、过滤项和自动补全要靠广播更新；
+     * 只部署一个实例或者没有RabbitMQ时可以关闭
+     */
+    private boolean enabled = true;
+}
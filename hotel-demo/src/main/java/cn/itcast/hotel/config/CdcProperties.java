@@ -0,0 +1,41 @@
+package cn.itcast.hotel.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 按 tb_hotel.update_time 增量同步索引的配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "hotel.cdc")
+public class CdcProperties {
+    /**
+     * 是否开启增量同步，需要 tb_hotel 有 update_time 列，见 db/tb_hotel_update_time.sql
+     */
+    private boolean enabled = false;
+    /**
+     * 没有新的修改时，多久查询一次
+     */
+    private Duration pollInterval = Duration.ofSeconds(1);
+    /**
+     * 每次最多读取的行数
+     */
+    private int batchSize = 500;
+    /**
+     * 只读取修改时间早于 数据库当前时间-lag 的行。
+     * 要大于最长的写事务时间，否则提交较晚的修改可能被跳过
+     */
+    private Duration lag = Duration.ofSeconds(5);
+    /**
+     * 写入失败后的重试次数，超过后投递到死信队列并跳过
+     */
+    private int maxRetries = 3;
+    /**
+     * 断点文件，记录已经同步的最后一行的修改时间和id
+     */
+    private String checkpointFile = "cdc.checkpoint";
+}
@@ -0,0 +1,130 @@
+package cn.itcast.hotel.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpHost;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
+import org.elasticsearch.client.Node;
+import org.elasticsearch.client.NodeSelector;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestClientBuilder;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.sniff.SniffOnFailureListener;
+import org.elasticsearch.client.sniff.Sniffer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * ES客户端：多节点轮询和故障转移，连接池、超时、压缩可配置，可选定期嗅探节点，
+ * 连接池的使用情况作为指标暴露
+ */
+@Slf4j
+@Configuration
+public class EsClientConfig {
+
+    @Autowired
+    private EsClientProperties properties;
+
+    /**
+     * 节点请求失败时记录日志，开启嗅探时还会提前重新嗅探节点
+     */
+    private final SniffOnFailureListener sniffOnFailureListener = new SniffOnFailureListener() {
+        @Override
+        public void onFailure(Node node) {
+            log.warn("ES节点{}请求失败，暂时跳过该节点", node.getHost());
+            if (properties.getSniff().isEnabled()) {
+                super.onFailure(node);
+            }
+        }
+    };
+
+    @Bean
+    public PoolingNHttpClientConnectionManager esConnectionManager() {
+        IOReactorConfig reactorConfig = IOReactorConfig.custom()
+                .setIoThreadCount(properties.getIoThreads() > 0
+                        ? properties.getIoThreads() : Runtime.getRuntime().availableProcessors())
+                .setConnectTimeout((int) properties.getConnectTimeout().toMillis())
+                .setSoTimeout((int) properties.getSocketTimeout().toMillis())
+                .setSoKeepAlive(true)
+                .build();
+        try {
+            PoolingNHttpClientConnectionManager manager = new PoolingNHttpClientConnectionManager(
+                    new DefaultConnectingIOReactor(reactorConfig),
+                    RegistryBuilder.<SchemeIOSessionStrategy>create()
+                            .register("http", NoopIOSessionStrategy.INSTANCE)
+                            .register("https", SSLIOSessionStrategy.getDefaultStrategy())
+                            .build());
+            manager.setMaxTotal(properties.getMaxConnTotal());
+            manager.setDefaultMaxPerRoute(properties.getMaxConnPerRoute());
+            return manager;
+        } catch (IOReactorException e) {
+            throw new IllegalStateException("创建ES连接池失败", e);
+        }
+    }
+
+    @Bean
+    public RestHighLevelClient client(PoolingNHttpClientConnectionManager esConnectionManager) {
+        HttpHost[] hosts = properties.getHosts().stream().map(HttpHost::create).toArray(HttpHost[]::new);
+        long keepAlive = properties.getKeepAlive().toMillis();
+        RestClientBuilder builder = RestClient.builder(hosts)
+                .setNodeSelector(NodeSelector.SKIP_DEDICATED_MASTERS)
+                .setCompressionEnabled(properties.isCompression())
+                .setFailureListener(sniffOnFailureListener)
+                .setRequestConfigCallback(config -> config
+                        .setConnectTimeout((int) properties.getConnectTimeout().toMillis())
+                        .setSocketTimeout((int) properties.getSocketTimeout().toMillis())
+                        .setConnectionRequestTimeout((int) properties.getConnectionRequestTimeout().toMillis()))
+                .setHttpClientConfigCallback(httpClient -> httpClient
+                        .setConnectionManager(esConnectionManager)
+                        // 服务端没有声明时按配置的时间保持，声明了就取较小的
+                        .setKeepAliveStrategy((response, context) -> {
+                            long declared = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                            return declared > 0 ? Math.min(declared, keepAlive) : keepAlive;
+                        }));
+        return new RestHighLevelClient(builder);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "hotel.es.sniff", name = "enabled", havingValue = "true")
+    public Sniffer sniffer(RestHighLevelClient client) {
+        Sniffer sniffer = Sniffer.builder(client.getLowLevelClient())
+                .setSniffIntervalMillis((int) properties.getSniff().getInterval().toMillis())
+                .setSniffAfterFailureDelayMillis((int) properties.getSniff().getDelayAfterFailure().toMillis())
+                .build();
+        sniffOnFailureListener.setSniffer(sniffer);
+        return sniffer;
+    }
+
+    @Bean
+    public MeterBinder esConnectionPoolMetrics(PoolingNHttpClientConnectionManager esConnectionManager) {
+        return registry -> {
+            gauge(registry, esConnectionManager, "leased", PoolStats::getLeased);
+            gauge(registry, esConnectionManager, "pending", PoolStats::getPending);
+            gauge(registry, esConnectionManager, "available", PoolStats::getAvailable);
+            gauge(registry, esConnectionManager, "max", PoolStats::getMax);
+        };
+    }
+
+    private void gauge(MeterRegistry registry, PoolingNHttpClientConnectionManager manager,
+                       String state, ToDoubleFunction<PoolStats> value) {
+        Gauge.builder("hotel.es.pool.connections", manager, m -> value.applyAsDouble(m.getTotalStats()))
+                .tag("state", state)
+                .description("ES客户端连接池的连接数")
+                .register(registry);
+    }
+}
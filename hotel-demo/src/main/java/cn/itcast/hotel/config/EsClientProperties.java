@@ -0,0 +1,72 @@
+package cn.itcast.hotel.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ES客户端的连接配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "hotel.es")
+public class EsClientProperties {
+    /**
+     * 节点地址，请求在节点间轮询，失败的节点暂时跳过
+     */
+    private List<String> hosts = new ArrayList<>(Collections.singletonList("http://192.168.125.100:9200"));
+    /**
+     * 建立连接的超时时间
+     */
+    private Duration connectTimeout = Duration.ofSeconds(1);
+    /**
+     * 等待响应数据的超时时间
+     */
+    private Duration socketTimeout = Duration.ofSeconds(30);
+    /**
+     * 从连接池获取连接的超时时间，池满时请求最多排队这么久
+     */
+    private Duration connectionRequestTimeout = Duration.ofSeconds(1);
+    /**
+     * 连接池的总连接数
+     */
+    private int maxConnTotal = 200;
+    /**
+     * 每个节点的连接数
+     */
+    private int maxConnPerRoute = 100;
+    /**
+     * IO线程数，0表示使用CPU核数
+     */
+    private int ioThreads = 0;
+    /**
+     * 空闲连接保持时间，要比ES和中间负载均衡的空闲超时短
+     */
+    private Duration keepAlive = Duration.ofMinutes(1);
+    /**
+     * 是否压缩请求体并接受gzip响应
+     */
+    private boolean compression = true;
+    /**
+     * 定期从集群获取节点列表
+     */
+    private Sniff sniff = new Sniff();
+
+    @Data
+    public static class Sniff {
+        private boolean enabled = false;
+        /**
+         * 获取节点列表的间隔
+         */
+        private Duration interval = Duration.ofMinutes(5);
+        /**
+         * 请求失败后提前获取节点列表的延迟
+         */
+        private Duration delayAfterFailure = Duration.ofMinutes(1);
+    }
+}
@@ -0,0 +1,26 @@
+package cn.itcast.hotel.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 本地过滤项统计的配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "hotel.facet")
+public class FacetProperties {
+    /**
+     * 是否由本地统计回答没有关键字的过滤项查询
+     */
+    private boolean enabled = true;
+    /**
+     * 启动时分批扫描tb_hotel的每批条数
+     */
+    private int scanSize = 1000;
+    /**
+     * 每个过滤项最多返回的值的个数，与ES聚合的size一致
+     */
+    private int size = 100;
+}
@@ -0,0 +1,32 @@
+package cn.itcast.hotel.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 索引版本管理的配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "hotel.index")
+public class IndexProperties {
+    /**
+     * 重建完成后恢复的副本数
+     */
+    private int replicas = 1;
+    /**
+     * 重建完成后恢复的刷新间隔
+     */
+    private String refreshInterval = "1s";
+    /**
+     * 保留的历史版本数（不含当前版本），更早的版本在切换后删除
+     */
+    private int retainVersions = 1;
+    /**
+     * 重新读取写别名 hotel_write 的间隔，重建时新索引加入写别名后等待两个间隔再开始写入
+     */
+    private Duration writeAliasRefresh = Duration.ofSeconds(5);
+}
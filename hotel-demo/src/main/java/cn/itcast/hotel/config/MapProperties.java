@@ -0,0 +1,30 @@
+package cn.itcast.hotel.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 地图查询的配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "hotel.map")
+public class MapProperties {
+    /**
+     * 缩放级别达到多少时返回单个酒店的标记，低于它返回聚合点
+     */
+    private int markerZoom = 15;
+    /**
+     * 最多返回的标记数，超过时按评分取前面的
+     */
+    private int maxMarkers = 200;
+    /**
+     * 最多返回的聚合点数
+     */
+    private int maxClusters = 1000;
+    /**
+     * 聚合网格比地图瓦片细几级，2表示一个256像素的瓦片分成4×4个网格
+     */
+    private int precisionOffset = 2;
+}
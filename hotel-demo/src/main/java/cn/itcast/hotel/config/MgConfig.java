@@ -1,10 +1,18 @@
 package cn.itcast.hotel.config;
 
 import cn.itcast.hotel.constants.MqConstants;
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Base64UrlNamingStrategy;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.FanoutExchange;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
 import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -23,6 +31,28 @@ public class MgConfig {
         return new Queue(MqConstants.HOTEL_DELETE_QUEUE,true);
     }
     @Bean
+    public Queue batchQueue(){
+        return new Queue(MqConstants.HOTEL_BATCH_QUEUE,true);
+    }
+    @Bean
+    public Queue errorQueue(){
+        return new Queue(MqConstants.HOTEL_ERROR_QUEUE,true);
+    }
+    @Bean
+    public TopicExchange retryExchange(){
+        return new TopicExchange(MqConstants.HOTEL_RETRY_EXCHANGE,true,false);
+    }
+
+    /**
+     * 延迟重试队列：没有消费者，消息到期后转回 hotel.topic，按原来的RoutingKey回到新增或删除队列
+     */
+    @Bean
+    public Queue retryQueue(){
+        return QueueBuilder.durable(MqConstants.HOTEL_RETRY_QUEUE)
+                .deadLetterExchange(MqConstants.HOTEL_EXCHANGE)
+                .build();
+    }
+    @Bean
     public Binding insertQueueBinding(){
        return BindingBuilder.bind(insertQueue()).to(topicExchange()).with(MqConstants.HOTEL_INSERT_KEY);
     }
@@ -30,4 +60,54 @@ public class MgConfig {
     public Binding deleteQueueBinding(){
         return BindingBuilder.bind(deleteQueue()).to(topicExchange()).with(MqConstants.HOTEL_DELETE_KEY);
     }
+    @Bean
+    public Binding batchQueueBinding(){
+        return BindingBuilder.bind(batchQueue()).to(topicExchange()).with(MqConstants.HOTEL_BATCH_KEY);
+    }
+    @Bean
+    public Binding retryQueueBinding(){
+        return BindingBuilder.bind(retryQueue()).to(retryExchange()).with("#");
+    }
+    @Bean
+    public Binding errorQueueBinding(){
+        return BindingBuilder.bind(errorQueue()).to(topicExchange()).with(MqConstants.HOTEL_ERROR_KEY + ".#");
+    }
+
+    /**
+     * 批量消费的监听容器：攒够 size 条或 receiveTimeout 内没有新消息时，一次性交给监听方法
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory batchListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            MqBatchProperties properties){
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(properties.getSize());
+        factory.setPrefetchCount(properties.getSize());
+        factory.setReceiveTimeout(properties.getReceiveTimeout());
+        return factory;
+    }
+
+    /**
+     * 广播酒店文档变化：每个实例一个自动删除的临时队列，实例下线后队列随之删除
+     */
+    @Configuration
+    @ConditionalOnProperty(prefix = "hotel.mq.broadcast", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public static class BroadcastConfig {
+        @Bean
+        public FanoutExchange changeExchange(){
+            return new FanoutExchange(MqConstants.HOTEL_CHANGE_EXCHANGE, true, false);
+        }
+        @Bean
+        public Queue changeQueue(){
+            return new AnonymousQueue(new Base64UrlNamingStrategy("hotel.change."));
+        }
+        @Bean
+        public Binding changeQueueBinding(){
+            return BindingBuilder.bind(changeQueue()).to(changeExchange());
+        }
+    }
 }
@@ -0,0 +1,26 @@
+package cn.itcast.hotel.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 批量消费酒店新增/删除消息的配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "hotel.mq.batch")
+public class MqBatchProperties {
+    /**
+     * 是否开启批量消费，关闭时使用逐条消费的 HotelListener
+     */
+    private boolean enabled = false;
+    /**
+     * 每批最多消息数
+     */
+    private int size = 500;
+    /**
+     * 等待下一条消息的最长时间（毫秒），超时后立即处理已攒下的消息
+     */
+    private long receiveTimeout = 1000;
+}
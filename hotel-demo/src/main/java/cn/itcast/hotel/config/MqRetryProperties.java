@@ -0,0 +1,22 @@
+package cn.itcast.hotel.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 酒店同步失败后经延迟队列重试的配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "hotel.mq.retry")
+public class MqRetryProperties {
+    /**
+     * 最多重试次数，超过后投递到死信队列
+     */
+    private int maxRetries = 3;
+    /**
+     * 第一次重试的延迟（毫秒），之后每次加倍
+     */
+    private long interval = 500;
+}
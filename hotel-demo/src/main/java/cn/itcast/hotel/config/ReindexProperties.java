@@ -0,0 +1,34 @@
+package cn.itcast.hotel.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 全量重建索引的配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "hotel.reindex")
+public class ReindexProperties {
+    /**
+     * 每次从tb_hotel读取的行数
+     */
+    private int chunkSize = 1000;
+    /**
+     * 转换文档并发送bulk请求的线程数，也就是同时在途的bulk请求数
+     */
+    private int workers = 4;
+    /**
+     * 已读取但未处理完的批次上限，超过后暂停读库
+     */
+    private int queueSize = 8;
+    /**
+     * 单个bulk请求的最大字节数
+     */
+    private long maxBulkBytes = 5 * 1024 * 1024;
+    /**
+     * 断点文件，记录已经写入成功的最大id
+     */
+    private String checkpointFile = "reindex.checkpoint";
+}
@@ -0,0 +1,33 @@
+package cn.itcast.hotel.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 搜索结果缓存的配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "hotel.cache.search")
+public class SearchCacheProperties {
+    /**
+     * 是否开启搜索结果缓存
+     */
+    private boolean enabled = true;
+    /**
+     * 最多缓存的查询条件数
+     */
+    private long maximumSize = 10000;
+    /**
+     * 写入后的过期时间
+     */
+    private Duration ttl = Duration.ofSeconds(60);
+    /**
+     * 按距离排序时，把用户位置对齐到所在geohash网格的中心，附近的用户共用同一个缓存。
+     * 网格的geohash长度，6约为1.2km×0.6km，小于等于0表示不对齐
+     */
+    private int geohashPrecision = 6;
+}
@@ -0,0 +1,32 @@
+package cn.itcast.hotel.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 搜索相关的配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "hotel.search")
+public class SearchProperties {
+    /**
+     * 游标分页时point in time的保持时间，两次翻页的间隔不能超过它
+     */
+    private Duration cursorKeepAlive = Duration.ofMinutes(1);
+    /**
+     * 单个ES请求的超时时间，超时后取消请求并返回504
+     */
+    private Duration timeout = Duration.ofSeconds(2);
+    /**
+     * 慢查询阈值，超过后在 hotel.slow-query 日志中打印DSL
+     */
+    private Duration slowQueryThreshold = Duration.ofMillis(500);
+    /**
+     * 解析ES响应的线程数，默认等于CPU核数
+     */
+    private int decodeThreads = Runtime.getRuntime().availableProcessors();
+}
@@ -0,0 +1,26 @@
+package cn.itcast.hotel.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 本地自动补全的配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "hotel.suggestion")
+public class SuggestionProperties {
+    /**
+     * 是否由本地前缀树回答自动补全
+     */
+    private boolean enabled = true;
+    /**
+     * 启动时分批扫描tb_hotel的每批条数
+     */
+    private int scanSize = 1000;
+    /**
+     * 返回的补全条数
+     */
+    private int size = 10;
+}
@@ -1,7 +1,39 @@
 package cn.itcast.hotel.constants;
 
 public class HotelConstants {
+    //查询使用的别名，指向当前版本的索引
+    public static final String INDEX_ALIAS = "hotel";
+    //写入使用的别名，重建期间包含旧索引和新索引，切换后包含当前版本和上一个版本
+    public static final String WRITE_ALIAS = "hotel_write";
+    //重建或回滚期间存在的锁索引，多个实例之间同时只有一个在修改索引版本
+    public static final String REBUILD_LOCK_INDEX = "hotel_rebuild_lock";
+    //各版本索引的前缀，例如 hotel_v1
+    public static final String INDEX_PREFIX = "hotel_v";
+    //文档中geohash字段的长度，9约为5m×5m，按更大的网格分桶时取前缀
+    public static final int GEOHASH_PRECISION = 9;
+
     public static final String MAPPING_TEMPLATE = "{\n" +
+            "  \"settings\": {\n" +
+            "    \"analysis\": {\n" +
+            "      \"analyzer\": {\n" +
+            "        \"completion_analyzer\": {\n" +
+            "          \"tokenizer\": \"keyword\",\n" +
+            "          \"filter\": \"py\"\n" +
+            "        }\n" +
+            "      },\n" +
+            "      \"filter\": {\n" +
+            "        \"py\": {\n" +
+            "          \"type\": \"pinyin\",\n" +
+            "          \"keep_full_pinyin\": false,\n" +
+            "          \"keep_joined_full_pinyin\": true,\n" +
+            "          \"keep_original\": true,\n" +
+            "          \"limit_first_letter_length\": 16,\n" +
+            "          \"remove_duplicated_term\": true,\n" +
+            "          \"none_chinese_pinyin_tokenize\": false\n" +
+            "        }\n" +
+            "      }\n" +
+            "    }\n" +
+            "  },\n" +
             "  \"mappings\": {\n" +
             "    \"properties\": {\n" +
             "      \"id\": {\n" +
@@ -43,6 +75,16 @@ public class HotelConstants {
             "      \"location\": {\n" +
             "        \"type\": \"geo_point\"\n" +
             "      },\n" +
+            "      \"geohash\": {\n" +
+            "        \"type\": \"keyword\"\n" +
+            "      },\n" +
+            "      \"isAD\": {\n" +
+            "        \"type\": \"boolean\"\n" +
+            "      },\n" +
+            "      \"suggestion\": {\n" +
+            "        \"type\": \"completion\",\n" +
+            "        \"analyzer\": \"completion_analyzer\"\n" +
+            "      },\n" +
             "      \"all\": {\n" +
             "        \"type\": \"text\",\n" +
             "        \"analyzer\": \"ik_max_word\"\n" +
@@ -11,4 +11,22 @@ public class MqConstants {
     public final static String HOTEL_INSERT_KEY = "hotel.insert";
     //删除的RoutingKey
     public final static String HOTEL_DELETE_KEY = "hotel.delete";
+    //批量导入的队列，一条消息包含一批酒店id
+    public final static String HOTEL_BATCH_QUEUE = "hotel.batch.queue";
+    //批量导入的RoutingKey
+    public final static String HOTEL_BATCH_KEY = "hotel.batch";
+    //重试后仍然失败的消息队列（死信）
+    public final static String HOTEL_ERROR_QUEUE = "hotel.error.queue";
+    //死信的RoutingKey，后面拼接 insert / delete
+    public final static String HOTEL_ERROR_KEY = "hotel.error";
+    //延迟重试的交换机，消息按原来的RoutingKey发送
+    public final static String HOTEL_RETRY_EXCHANGE = "hotel.retry.topic";
+    //延迟重试队列，没有消费者，消息到期后转回 hotel.topic
+    public final static String HOTEL_RETRY_QUEUE = "hotel.retry.queue";
+    //消息已经重试的次数
+    public final static String RETRY_HEADER = "hotel-retries";
+    //删除消息中酒店被删除的时间（数据库时钟，ISO格式），消费者用它作为删除的版本号
+    public final static String DELETE_TIME_HEADER = "hotel-delete-time";
+    //广播酒店文档变化的交换机，每个实例绑定一个自己的临时队列
+    public final static String HOTEL_CHANGE_EXCHANGE = "hotel.change.fanout";
 }
@@ -0,0 +1,247 @@
+package cn.itcast.hotel.facet;
+
+import cn.itcast.hotel.config.FacetProperties;
+import cn.itcast.hotel.mapper.HotelMapper;
+import cn.itcast.hotel.pojo.Hotel;
+import cn.itcast.hotel.pojo.HotelChangeEvent;
+import cn.itcast.hotel.pojo.HotelDoc;
+import cn.itcast.hotel.pojo.RequestParams;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 过滤项（品牌、城市、星级）的本地统计。
+ * 按 (城市, 品牌, 星级) 分组，每组再按价格记录文档数，价格精确到元，所以任意价格区间都能精确统计。
+ * 启动时从tb_hotel扫描建立，之后根据酒店变化事件增量维护，其他实例的变化通过广播收到。
+ * 修改时复制一份分组再整体替换（写时复制），查询读取当时的快照，不加锁。
+ */
+@Slf4j
+@Component
+public class FacetIndex {
+
+    /**
+     * 没有价格的酒店记在这个价格下，不会落入任何价格区间
+     */
+    private static final int NO_PRICE = Integer.MIN_VALUE;
+
+    @Autowired
+    private HotelMapper hotelMapper;
+
+    @Autowired
+    private FacetProperties properties;
+
+    /**
+     * 酒店id -> 所在的分组和价格，删除和修改时用来扣减旧的计数，只在持有锁时访问
+     */
+    private Map<Long, Entry> entries = new HashMap<>();
+    /**
+     * 分组 -> (价格 -> 文档数)。发布后不再修改，修改时整体替换
+     */
+    private volatile Map<Group, TreeMap<Integer, Integer>> groups = new HashMap<>();
+    /**
+     * 加载期间收到的变化事件，加载完成后重放
+     */
+    private List<HotelChangeEvent> pending;
+    private volatile boolean loaded = false;
+
+    /**
+     * 应用启动后异步扫描tb_hotel建立统计，失败时保持未加载状态，查询继续走ES
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        synchronized (this) {
+            pending = new ArrayList<>();
+        }
+        try {
+            long start = System.currentTimeMillis();
+            Map<Long, Entry> newEntries = new HashMap<>();
+            Map<Group, TreeMap<Integer, Integer>> newGroups = new HashMap<>();
+            long lastId = 0;
+            while (true) {
+                // 按id分批扫描，只查需要的列
+                List<Hotel> hotels = hotelMapper.selectList(new LambdaQueryWrapper<Hotel>()
+                        .select(Hotel::getId, Hotel::getCity, Hotel::getBrand, Hotel::getStarName, Hotel::getPrice)
+                        .gt(Hotel::getId, lastId)
+                        .orderByAsc(Hotel::getId)
+                        .last("limit " + properties.getScanSize()));
+                for (Hotel hotel : hotels) {
+                    Entry entry = entry(hotel.getCity(), hotel.getBrand(), hotel.getStarName(), hotel.getPrice());
+                    add(newEntries, newGroups, hotel.getId(), entry);
+                }
+                if (hotels.size() < properties.getScanSize()) {
+                    break;
+                }
+                lastId = hotels.get(hotels.size() - 1).getId();
+            }
+            synchronized (this) {
+                entries = newEntries;
+                groups = newGroups;
+                pending.forEach(this::apply);
+                pending = null;
+                loaded = true;
+            }
+            log.info("过滤项统计加载完成，酒店数：{}，分组数：{}，耗时：{}ms",
+                    newEntries.size(), newGroups.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            synchronized (this) {
+                pending = null;
+            }
+            log.warn("过滤项统计加载失败，过滤项查询将使用ES聚合", e);
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    @EventListener
+    public synchronized void onHotelChanged(HotelChangeEvent event) {
+        if (pending != null) {
+            pending.add(event);
+        }
+        apply(event);
+    }
+
+    /**
+     * 统计过滤项
+     * @return 品牌、城市、星级的可选值，按文档数降序；有关键字或尚未加载时返回null，由调用方查询ES
+     */
+    public Map<String, List<String>> filters(RequestParams params) {
+        if (!loaded || StringUtils.isNotBlank(params.getKey())) {
+            return null;
+        }
+        String city = StringUtils.trimToNull(params.getCity());
+        String brand = StringUtils.trimToNull(params.getBrand());
+        String starName = StringUtils.trimToNull(params.getStarName());
+        Integer minPrice = params.getMinPrice();
+        Integer maxPrice = params.getMaxPrice();
+        boolean priceFilter = minPrice != null && maxPrice != null;
+        if (priceFilter && minPrice > maxPrice) {
+            minPrice = maxPrice = NO_PRICE;
+        }
+
+        Map<String, Integer> brandCounts = new HashMap<>();
+        Map<String, Integer> cityCounts = new HashMap<>();
+        Map<String, Integer> starNameCounts = new HashMap<>();
+        for (Map.Entry<Group, TreeMap<Integer, Integer>> e : groups.entrySet()) {
+            Group group = e.getKey();
+            if ((city != null && !city.equals(group.getCity()))
+                    || (brand != null && !brand.equals(group.getBrand()))
+                    || (starName != null && !starName.equals(group.getStarName()))) {
+                continue;
+            }
+            int count = 0;
+            for (int c : (priceFilter ? e.getValue().subMap(minPrice, true, maxPrice, true) : e.getValue()).values()) {
+                count += c;
+            }
+            if (count == 0) {
+                continue;
+            }
+            increment(brandCounts, group.getBrand(), count);
+            increment(cityCounts, group.getCity(), count);
+            increment(starNameCounts, group.getStarName(), count);
+        }
+        Map<String, List<String>> result = new HashMap<>();
+        result.put("brand", top(brandCounts));
+        result.put("city", top(cityCounts));
+        result.put("starName", top(starNameCounts));
+        return result;
+    }
+
+    /**
+     * 只复制外层的Map和受影响的两个分组，其余分组与旧快照共用
+     */
+    private void apply(HotelChangeEvent event) {
+        HotelDoc doc = event.getAfter();
+        Entry old = entries.get(event.getId());
+        Entry entry = doc == null ? null : entry(doc.getCity(), doc.getBrand(), doc.getStarName(), doc.getPrice());
+        Map<Group, TreeMap<Integer, Integer>> next = new HashMap<>(groups);
+        if (old != null) {
+            next.computeIfPresent(old.getGroup(), (group, prices) -> new TreeMap<>(prices));
+        }
+        if (entry != null) {
+            next.computeIfPresent(entry.getGroup(), (group, prices) -> new TreeMap<>(prices));
+            add(entries, next, event.getId(), entry);
+        } else {
+            remove(entries, next, event.getId());
+        }
+        groups = next;
+    }
+
+    private static Entry entry(String city, String brand, String starName, Integer price) {
+        return new Entry(new Group(city, brand, starName), price == null ? NO_PRICE : price);
+    }
+
+    private static void add(Map<Long, Entry> entries, Map<Group, TreeMap<Integer, Integer>> groups, Long id, Entry entry) {
+        remove(entries, groups, id);
+        entries.put(id, entry);
+        groups.computeIfAbsent(entry.getGroup(), g -> new TreeMap<>())
+                .merge(entry.getPrice(), 1, Integer::sum);
+    }
+
+    private static void remove(Map<Long, Entry> entries, Map<Group, TreeMap<Integer, Integer>> groups, Long id) {
+        Entry old = entries.remove(id);
+        if (old == null) {
+            return;
+        }
+        TreeMap<Integer, Integer> prices = groups.get(old.getGroup());
+        if (prices.merge(old.getPrice(), -1, Integer::sum) == 0) {
+            prices.remove(old.getPrice());
+        }
+        if (prices.isEmpty()) {
+            groups.remove(old.getGroup());
+        }
+    }
+
+    private static void increment(Map<String, Integer> counts, String key, int count) {
+        // 与terms聚合一致，没有值的文档不参与统计
+        if (key != null) {
+            counts.merge(key, count, Integer::sum);
+        }
+    }
+
+    /**
+     * 与terms聚合的默认排序一致：文档数降序，相同时按值升序
+     */
+    private List<String> top(Map<String, Integer> counts) {
+        List<Map.Entry<String, Integer>> list = new ArrayList<>(counts.entrySet());
+        list.sort((a, b) -> a.getValue().equals(b.getValue())
+                ? a.getKey().compareTo(b.getKey())
+                : b.getValue() - a.getValue());
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < list.size() && i < properties.getSize(); i++) {
+            keys.add(list.get(i).getKey());
+        }
+        return keys;
+    }
+
+    @Data
+    private static class Group {
+        private final String city;
+        private final String brand;
+        private final String starName;
+    }
+
+    @Data
+    private static class Entry {
+        private final Group group;
+        private final Integer price;
+    }
+}
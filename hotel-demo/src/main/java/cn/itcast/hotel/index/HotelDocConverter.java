@@ -0,0 +1,76 @@
+package cn.itcast.hotel.index;
+
+import cn.itcast.hotel.pojo.Hotel;
+import cn.itcast.hotel.pojo.HotelDoc;
+import cn.itcast.hotel.suggest.SuggestionTokenizer;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.VersionType;
+import org.elasticsearch.rest.RestStatus;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 把一批tb_hotel的行转换成索引文档，重建索引和批量同步时使用，整批共用一个分词器。
+ * 所有写入都带外部版本号（数据库中的修改时间），重建、MQ同步和增量同步同时写一个索引时，旧的数据不会覆盖新的
+ */
+public class HotelDocConverter {
+
+    private HotelDocConverter() {
+    }
+
+    public static List<HotelDoc> convert(Collection<Hotel> hotels) {
+        SuggestionTokenizer tokenizer = new SuggestionTokenizer();
+        List<HotelDoc> docs = new ArrayList<>(hotels.size());
+        for (Hotel hotel : hotels) {
+            docs.add(new HotelDoc(hotel, tokenizer));
+        }
+        return docs;
+    }
+
+    /**
+     * 新增或修改文档，版本号不小于索引中的版本时才写入，否则返回版本冲突（409）
+     * @param hotel  读取时的行，修改时间为null时不带版本号
+     * @param source 文档的JSON
+     */
+    public static IndexRequest indexRequest(String index, Hotel hotel, byte[] source) {
+        IndexRequest request = new IndexRequest(index)
+                .id(hotel.getId().toString())
+                .source(source, XContentType.JSON);
+        if (hotel.getUpdateTime() != null) {
+            request.versionType(VersionType.EXTERNAL_GTE).version(version(hotel.getUpdateTime()));
+        }
+        return request;
+    }
+
+    /**
+     * 删除文档。ES会把删除的版本号保留 index.gc_deletes（默认60秒），
+     * 期间删除前读到的旧数据再写入会返回版本冲突，已删除的酒店不会复活
+     * @param version 酒店被删除的时间，不知道时用数据库的当前时间，见 version(LocalDateTime)
+     */
+    public static DeleteRequest deleteRequest(String index, Long id, long version) {
+        return new DeleteRequest(index, id.toString())
+                .versionType(VersionType.EXTERNAL_GTE)
+                .version(version);
+    }
+
+    /**
+     * 修改时间转换成版本号，按UTC换算，与JVM时区无关
+     */
+    public static long version(LocalDateTime updateTime) {
+        return updateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * 版本冲突说明索引中已经是更新的数据，不算失败
+     */
+    public static boolean isVersionConflict(BulkItemResponse item) {
+        return item.isFailed() && item.getFailure().getStatus() == RestStatus.CONFLICT;
+    }
+}
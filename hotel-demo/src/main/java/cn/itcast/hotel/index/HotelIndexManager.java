@@ -0,0 +1,434 @@
+package cn.itcast.hotel.index;
+
+import cn.itcast.hotel.cache.SearchResultCache;
+import cn.itcast.hotel.config.IndexProperties;
+import cn.itcast.hotel.constants.HotelConstants;
+import cn.itcast.hotel.pojo.IndexVersions;
+import cn.itcast.hotel.pojo.RebuildReport;
+import cn.itcast.hotel.pojo.ReindexReport;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.action.admin.cluster.settings.ClusterGetSettingsRequest;
+import org.elasticsearch.action.admin.cluster.settings.ClusterUpdateSettingsRequest;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
+import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
+import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.indices.CreateIndexRequest;
+import org.elasticsearch.client.indices.GetIndexRequest;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.rest.RestStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 酒店索引的版本管理。
+ * 每次重建都写入新的 hotel_v{N}，重建期间关闭刷新、不要副本，完成后恢复设置，再原子地把别名 hotel 切换过去。
+ * 写入的目标由别名 hotel_write 决定：重建期间它包含旧索引和新索引，切换后包含新版本和上一个版本，回滚时不丢数据。
+ * 别名保存在ES中，所有实例定期读取，重启后也不会丢失；没有这个别名时写入别名 hotel。
+ * 重建和回滚期间持有锁索引 hotel_rebuild_lock，其他实例同时发起时返回冲突。
+ */
+@Slf4j
+@Component
+public class HotelIndexManager {
+
+    private static final String AUTO_CREATE_INDEX = "action.auto_create_index";
+
+    @Autowired
+    private RestHighLevelClient client;
+
+    @Autowired
+    private HotelReindexer reindexer;
+
+    @Autowired
+    private SearchResultCache searchResultCache;
+
+    @Autowired
+    private IndexProperties properties;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+
+    /**
+     * 后台执行重建任务的线程，同时只有一个任务
+     */
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "hotel-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 正在执行或最近一次执行的重建任务
+     */
+    private volatile RebuildReport currentRebuild;
+
+    private final Object writeIndicesLock = new Object();
+    /**
+     * 上次读到的写入目标和读取的时间，没读过时为null
+     */
+    private volatile List<String> writeIndices;
+    private volatile long writeIndicesLoadedAt;
+
+    /**
+     * 写入时要同步更新的索引，最多每个刷新周期向ES读取一次别名 hotel_write；
+     * 读取失败时沿用上次的结果
+     */
+    public List<String> writeIndices() {
+        long refresh = properties.getWriteAliasRefresh().toMillis();
+        if (writeIndices != null && System.currentTimeMillis() - writeIndicesLoadedAt < refresh) {
+            return writeIndices;
+        }
+        synchronized (writeIndicesLock) {
+            if (writeIndices == null || System.currentTimeMillis() - writeIndicesLoadedAt >= refresh) {
+                try {
+                    writeIndices = loadWriteIndices();
+                } catch (IOException | ElasticsearchException e) {
+                    log.warn("读取别名{}失败，沿用上次的写入目标：{}", HotelConstants.WRITE_ALIAS, writeIndices, e);
+                    if (writeIndices == null) {
+                        writeIndices = Collections.singletonList(HotelConstants.INDEX_ALIAS);
+                    }
+                }
+                writeIndicesLoadedAt = System.currentTimeMillis();
+            }
+            return writeIndices;
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    /**
+     * 在后台线程中重建到新版本的索引并切换别名，立即返回任务状态，之后通过 rebuildStatus() 查询。
+     * 本实例或其他实例正在重建、回滚时抛出 IllegalStateException
+     */
+    public RebuildReport submitRebuild() throws IOException {
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new IllegalStateException("重建索引正在进行中");
+        }
+        try {
+            lock();
+        } catch (IOException | RuntimeException e) {
+            rebuilding.set(false);
+            throw e;
+        }
+        RebuildReport report = new RebuildReport();
+        report.setStatus(RebuildReport.Status.RUNNING);
+        currentRebuild = report;
+        rebuildExecutor.execute(() -> {
+            IndexVersions versions = null;
+            Exception error = null;
+            try {
+                versions = rebuild(report);
+            } catch (Exception e) {
+                error = e;
+                log.error("重建索引{}失败", report.getIndex(), e);
+            } finally {
+                unlock();
+                rebuilding.set(false);
+            }
+            // 释放锁之后再更新状态，查询到结束状态时可以立即再次重建
+            if (error == null) {
+                report.setVersions(versions);
+                report.setStatus(RebuildReport.Status.COMPLETED);
+            } else {
+                report.setError(error.toString());
+                report.setStatus(RebuildReport.Status.FAILED);
+            }
+        });
+        return report;
+    }
+
+    /**
+     * @return 正在执行或最近一次执行的重建任务，没有执行过时返回null
+     */
+    public RebuildReport rebuildStatus() {
+        RebuildReport report = currentRebuild;
+        if (report != null && report.getReindex() == null && report.getIndex() != null) {
+            // 写入新索引期间，进度就是重建器当前的任务
+            ReindexReport reindex = reindexer.status();
+            if (reindex != null && report.getIndex().equals(reindex.getIndex())) {
+                report.setReindex(reindex);
+            }
+        }
+        return report;
+    }
+
+    /**
+     * 重建索引并切换别名，在持有锁的后台线程中执行
+     */
+    private IndexVersions rebuild(RebuildReport rebuildReport) throws IOException {
+        String current = currentIndex();
+        List<String> versions = listVersions();
+        int next = versions.isEmpty() ? 1 : version(versions.get(versions.size() - 1)) + 1;
+        String index = HotelConstants.INDEX_PREFIX + next;
+        rebuildReport.setIndex(index);
+        disableAutoCreate();
+
+        // 1.创建新版本的索引，写入期间关闭刷新、不要副本
+        CreateIndexRequest createRequest = new CreateIndexRequest(index);
+        createRequest.source(HotelConstants.MAPPING_TEMPLATE, XContentType.JSON);
+        client.indices().create(createRequest, RequestOptions.DEFAULT);
+        updateSettings(index, "-1", 0);
+        log.info("开始重建索引{}，当前索引：{}", index, current);
+
+        // 2.新索引加入写别名，等所有实例都读到新的写入目标后再开始读库，之后的修改一定会写到新索引
+        IndicesAliasesRequest aliasesRequest = new IndicesAliasesRequest();
+        aliasesRequest.addAliasAction(IndicesAliasesRequest.AliasActions.add()
+                .index(index).alias(HotelConstants.WRITE_ALIAS));
+        if (current != null) {
+            aliasesRequest.addAliasAction(IndicesAliasesRequest.AliasActions.add()
+                    .index(current).alias(HotelConstants.WRITE_ALIAS));
+        }
+        client.indices().updateAliases(aliasesRequest, RequestOptions.DEFAULT);
+        invalidateWriteIndices();
+        ReindexReport report;
+        try {
+            awaitWriteAliasRefresh();
+            report = reindexer.reindex(index, false);
+            rebuildReport.setReindex(report);
+        } catch (RuntimeException e) {
+            abort(index);
+            throw e;
+        }
+        if (report.getError() != null) {
+            abort(index);
+            throw new IllegalStateException("重建索引" + index + "失败：" + report.getError());
+        }
+        // 有文档没写进去时不切换，否则这些酒店会从查询结果中消失
+        if (report.getFailed() > 0) {
+            abort(index);
+            throw new IllegalStateException("重建索引" + index + "有" + report.getFailed() + "条文档写入失败，未切换别名");
+        }
+
+        // 3.恢复设置并刷新
+        updateSettings(index, properties.getRefreshInterval(), properties.getReplicas());
+        client.indices().refresh(new RefreshRequest(index), RequestOptions.DEFAULT);
+
+        // 4.切换别名
+        switchAlias(current, index);
+        deleteOldVersions(index);
+        return versions();
+    }
+
+    /**
+     * 把别名切回上一个版本，重建期间不能回滚
+     */
+    public IndexVersions rollback() throws IOException {
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new IllegalStateException("重建索引正在进行中");
+        }
+        try {
+            lock();
+            try {
+                String current = currentIndex();
+                List<String> versions = listVersions();
+                int index = versions.indexOf(current);
+                if (index <= 0) {
+                    throw new IllegalStateException("没有可以回滚的版本，当前索引：" + current);
+                }
+                switchAlias(current, versions.get(index - 1));
+                return versions();
+            } finally {
+                unlock();
+            }
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    /**
+     * 创建锁索引，索引已存在说明其他实例正在重建或回滚。
+     * 持有锁的实例异常退出后锁不会释放，确认没有实例在重建后手动删除 hotel_rebuild_lock
+     */
+    private void lock() throws IOException {
+        CreateIndexRequest request = new CreateIndexRequest(HotelConstants.REBUILD_LOCK_INDEX);
+        request.settings(Settings.builder()
+                .put("index.number_of_shards", 1)
+                .put("index.number_of_replicas", 0));
+        try {
+            client.indices().create(request, RequestOptions.DEFAULT);
+        } catch (ElasticsearchStatusException e) {
+            if (e.status() == RestStatus.BAD_REQUEST
+                    && e.getDetailedMessage().contains("resource_already_exists_exception")) {
+                throw new IllegalStateException("其他实例正在重建或回滚索引，锁索引："
+                        + HotelConstants.REBUILD_LOCK_INDEX);
+            }
+            throw e;
+        }
+    }
+
+    private void unlock() {
+        try {
+            client.indices().delete(new DeleteIndexRequest(HotelConstants.REBUILD_LOCK_INDEX), RequestOptions.DEFAULT);
+        } catch (IOException | ElasticsearchException e) {
+            log.error("删除锁索引{}失败，需要手动删除后才能再次重建", HotelConstants.REBUILD_LOCK_INDEX, e);
+        }
+    }
+
+    /**
+     * @return 别名当前指向的索引，别名不存在时返回null；如果 hotel 还是一个普通索引，返回 hotel
+     */
+    public String currentIndex() throws IOException {
+        List<String> indices = aliasIndices(HotelConstants.INDEX_ALIAS);
+        if (!indices.isEmpty()) {
+            return indices.get(0);
+        }
+        boolean exists = client.indices().exists(new GetIndexRequest(HotelConstants.INDEX_ALIAS), RequestOptions.DEFAULT);
+        return exists ? HotelConstants.INDEX_ALIAS : null;
+    }
+
+    public IndexVersions versions() throws IOException {
+        IndexVersions result = new IndexVersions();
+        result.setCurrent(currentIndex());
+        result.setVersions(listVersions());
+        result.setWriteIndices(loadWriteIndices());
+        return result;
+    }
+
+    private List<String> listVersions() throws IOException {
+        String[] indices = client.indices()
+                .get(new GetIndexRequest(HotelConstants.INDEX_PREFIX + "*"), RequestOptions.DEFAULT)
+                .getIndices();
+        List<String> list = new ArrayList<>(Arrays.asList(indices));
+        list.sort(Comparator.comparingInt(HotelIndexManager::version));
+        return list;
+    }
+
+    /**
+     * @return 别名 hotel_write 包含的索引，别名不存在时返回别名 hotel
+     */
+    private List<String> loadWriteIndices() throws IOException {
+        List<String> indices = aliasIndices(HotelConstants.WRITE_ALIAS);
+        return indices.isEmpty() ? Collections.singletonList(HotelConstants.INDEX_ALIAS) : indices;
+    }
+
+    private List<String> aliasIndices(String alias) throws IOException {
+        List<String> indices = new ArrayList<>(client.indices()
+                .getAlias(new GetAliasesRequest(alias), RequestOptions.DEFAULT)
+                .getAliases().keySet());
+        Collections.sort(indices);
+        return indices;
+    }
+
+    /**
+     * 在一个请求里把别名从旧索引移到新索引，对查询来说是原子的。
+     * 旧的 hotel 如果是普通索引，同一个请求里把它删除，别名才能使用这个名字。
+     * 写别名只保留新旧两个版本，上一个版本继续同步写入，以便回滚
+     */
+    private void switchAlias(String from, String to) throws IOException {
+        List<String> writing = aliasIndices(HotelConstants.WRITE_ALIAS);
+        IndicesAliasesRequest request = new IndicesAliasesRequest();
+        request.addAliasAction(IndicesAliasesRequest.AliasActions.add()
+                .index(to).alias(HotelConstants.INDEX_ALIAS));
+        request.addAliasAction(IndicesAliasesRequest.AliasActions.add()
+                .index(to).alias(HotelConstants.WRITE_ALIAS));
+        if (HotelConstants.INDEX_ALIAS.equals(from)) {
+            request.addAliasAction(IndicesAliasesRequest.AliasActions.removeIndex().index(from));
+            from = null;
+        } else if (from != null) {
+            request.addAliasAction(IndicesAliasesRequest.AliasActions.remove()
+                    .index(from).alias(HotelConstants.INDEX_ALIAS));
+            request.addAliasAction(IndicesAliasesRequest.AliasActions.add()
+                    .index(from).alias(HotelConstants.WRITE_ALIAS));
+        }
+        for (String index : writing) {
+            if (!index.equals(to) && !index.equals(from) && !HotelConstants.INDEX_ALIAS.equals(index)) {
+                request.addAliasAction(IndicesAliasesRequest.AliasActions.remove()
+                        .index(index).alias(HotelConstants.WRITE_ALIAS));
+            }
+        }
+        client.indices().updateAliases(request, RequestOptions.DEFAULT);
+        invalidateWriteIndices();
+        searchResultCache.invalidateAll();
+        log.info("索引别名{}已从{}切换到{}", HotelConstants.INDEX_ALIAS, from, to);
+    }
+
+    private void deleteOldVersions(String current) throws IOException {
+        List<String> versions = listVersions();
+        int keep = versions.indexOf(current) - properties.getRetainVersions();
+        for (int i = 0; i < keep; i++) {
+            client.indices().delete(new DeleteIndexRequest(versions.get(i)), RequestOptions.DEFAULT);
+            log.info("删除旧版本索引{}", versions.get(i));
+        }
+    }
+
+    /**
+     * 先把索引移出写别名，等所有实例都不再写入它之后再删除，写别名恢复成重建前的样子
+     */
+    private void abort(String index) throws IOException {
+        IndicesAliasesRequest request = new IndicesAliasesRequest();
+        request.addAliasAction(IndicesAliasesRequest.AliasActions.remove()
+                .index(index).alias(HotelConstants.WRITE_ALIAS));
+        client.indices().updateAliases(request, RequestOptions.DEFAULT);
+        invalidateWriteIndices();
+        awaitWriteAliasRefresh();
+        client.indices().delete(new DeleteIndexRequest(index), RequestOptions.DEFAULT);
+        log.info("重建中止，已删除索引{}", index);
+    }
+
+    /**
+     * 禁止写入时自动创建 hotel_v* 索引。写入的目标是具体的索引名，索引被删除后还有写入到达时，
+     * ES会按动态映射重新创建它，listVersions() 会把它当成一个版本。
+     * 在集群设置 action.auto_create_index 前面加上 -hotel_v*，已经禁止时不修改
+     */
+    private void disableAutoCreate() throws IOException {
+        String value = client.cluster()
+                .getSettings(new ClusterGetSettingsRequest().includeDefaults(true), RequestOptions.DEFAULT)
+                .getSetting(AUTO_CREATE_INDEX);
+        String rule = "-" + HotelConstants.INDEX_PREFIX + "*";
+        if ("false".equals(value) || (value != null && value.contains(rule))) {
+            return;
+        }
+        String updated = rule + "," + (value == null || "true".equals(value) ? "+*" : value);
+        ClusterUpdateSettingsRequest request = new ClusterUpdateSettingsRequest();
+        request.persistentSettings(Settings.builder().put(AUTO_CREATE_INDEX, updated));
+        client.cluster().putSettings(request, RequestOptions.DEFAULT);
+        log.info("集群设置{}已从{}修改为{}", AUTO_CREATE_INDEX, value, updated);
+    }
+
+    private void invalidateWriteIndices() {
+        writeIndicesLoadedAt = 0;
+    }
+
+    /**
+     * 其他实例最多一个刷新周期后读到新的别名，再多等一个周期，留给已经发出的写入完成
+     */
+    private void awaitWriteAliasRefresh() {
+        try {
+            Thread.sleep(properties.getWriteAliasRefresh().toMillis() * 2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待写入目标刷新时被中断", e);
+        }
+    }
+
+    private void updateSettings(String index, String refreshInterval, int replicas) throws IOException {
+        UpdateSettingsRequest request = new UpdateSettingsRequest(index);
+        request.settings(Settings.builder()
+                .put("index.refresh_interval", refreshInterval)
+                .put("index.number_of_replicas", replicas));
+        client.indices().putSettings(request, RequestOptions.DEFAULT);
+    }
+
+    private static int version(String index) {
+        return Integer.parseInt(index.substring(HotelConstants.INDEX_PREFIX.length()));
+    }
+}
@@ -0,0 +1,330 @@
+package cn.itcast.hotel.index;
+
+import cn.itcast.hotel.config.ReindexProperties;
+import cn.itcast.hotel.mapper.HotelMapper;
+import cn.itcast.hotel.pojo.Hotel;
+import cn.itcast.hotel.pojo.HotelDoc;
+import cn.itcast.hotel.pojo.ReindexReport;
+import com.alibaba.fastjson.JSON;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 全量重建酒店索引。
+ * 按id分批读取tb_hotel，由线程池转换为HotelDoc并按字节数切分成bulk请求发送，多个bulk同时在途；
+ * 在途批次达到上限时暂停读库。每个批次完成后推进断点，中断后可以从断点继续；
+ * 有文档写入失败时断点停在第一条失败的文档之前，续传时重新写入。
+ */
+@Slf4j
+@Component
+public class HotelReindexer {
+
+    @Autowired
+    private HotelMapper hotelMapper;
+
+    @Autowired
+    private RestHighLevelClient client;
+
+    @Autowired
+    private ReindexProperties properties;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    /**
+     * 后台执行重建任务的线程，同时只有一个任务
+     */
+    private final ExecutorService jobExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "hotel-reindex");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 正在执行或最近一次执行的任务
+     */
+    private volatile ReindexReport current;
+
+    @PreDestroy
+    public void destroy() {
+        jobExecutor.shutdownNow();
+    }
+
+    /**
+     * 在后台线程中重建，立即返回任务状态，之后通过 status() 查询进度和结果
+     * @param index  目标索引
+     * @param resume 是否从上次的断点继续
+     */
+    public ReindexReport submit(String index, boolean resume) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("重建索引正在进行中");
+        }
+        ReindexReport report = newReport(index);
+        current = report;
+        jobExecutor.execute(() -> {
+            try {
+                doReindex(report, resume);
+            } catch (RuntimeException e) {
+                report.setError(e.toString());
+                report.setStatus(ReindexReport.Status.FAILED);
+                log.error("重建索引{}失败", index, e);
+            } finally {
+                running.set(false);
+            }
+        });
+        return report;
+    }
+
+    /**
+     * @return 正在执行或最近一次执行的任务，没有执行过时返回null
+     */
+    public ReindexReport status() {
+        return current;
+    }
+
+    /**
+     * 在当前线程中把tb_hotel全部写入索引，直到完成才返回
+     * @param index  目标索引
+     * @param resume 是否从上次的断点继续
+     */
+    public ReindexReport reindex(String index, boolean resume) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("重建索引正在进行中");
+        }
+        try {
+            ReindexReport report = newReport(index);
+            current = report;
+            return doReindex(report, resume);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private static ReindexReport newReport(String index) {
+        ReindexReport report = new ReindexReport();
+        report.setIndex(index);
+        report.setStatus(ReindexReport.Status.RUNNING);
+        return report;
+    }
+
+    private ReindexReport doReindex(ReindexReport report, boolean resume) {
+        String index = report.getIndex();
+        long startId = resume ? readCheckpoint(index) : 0L;
+        long start = System.nanoTime();
+        AtomicLong indexed = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        AtomicReference<Exception> error = new AtomicReference<>();
+        Checkpoint checkpoint = new Checkpoint(index, startId);
+        report.setResumedFrom(startId);
+        Semaphore permits = new Semaphore(properties.getQueueSize());
+        ExecutorService workers = Executors.newFixedThreadPool(properties.getWorkers());
+        log.info("开始重建索引{}，起始id：{}", index, startId);
+        try {
+            long lastId = startId;
+            long seq = 0;
+            while (error.get() == null) {
+                // 1.按id分批读取
+                List<Hotel> hotels = hotelMapper.selectList(new LambdaQueryWrapper<Hotel>()
+                        .gt(Hotel::getId, lastId)
+                        .orderByAsc(Hotel::getId)
+                        .last("limit " + properties.getChunkSize()));
+                if (hotels.isEmpty()) {
+                    break;
+                }
+                lastId = hotels.get(hotels.size() - 1).getId();
+                // 2.在途批次达到上限时阻塞，避免读库速度超过写ES的速度
+                permits.acquire();
+                long chunkSeq = seq++;
+                long chunkLastId = lastId;
+                workers.execute(() -> {
+                    try {
+                        long[] result = write(index, hotels);
+                        indexed.addAndGet(result[0]);
+                        failed.addAndGet(result[1]);
+                        checkpoint.complete(chunkSeq, chunkLastId, result[2]);
+                        long done = indexed.get();
+                        report.setIndexed(done);
+                        report.setFailed(failed.get());
+                        if (chunkSeq % 10 == 0) {
+                            log.info("重建索引{}：已写入{}条，{}条/秒", index, done, rate(done, start));
+                        }
+                    } catch (Exception e) {
+                        error.compareAndSet(null, e);
+                    } finally {
+                        permits.release();
+                    }
+                });
+                if (hotels.size() < properties.getChunkSize()) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            error.compareAndSet(null, e);
+        } finally {
+            workers.shutdown();
+            awaitTermination(workers);
+        }
+
+        report.setLastId(checkpoint.lastId());
+        report.setIndexed(indexed.get());
+        report.setFailed(failed.get());
+        report.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        report.setDocsPerSecond(rate(indexed.get(), start));
+        if (error.get() != null) {
+            report.setError(error.get().toString());
+            report.setStatus(ReindexReport.Status.FAILED);
+            log.error("重建索引{}中断，断点id：{}", index, report.getLastId(), error.get());
+        } else if (report.getFailed() > 0) {
+            report.setStatus(ReindexReport.Status.COMPLETED_WITH_ERRORS);
+            log.warn("重建索引{}完成，但有{}条写入失败，断点id：{}", index, report.getFailed(), report.getLastId());
+        } else {
+            report.setStatus(ReindexReport.Status.COMPLETED);
+            log.info("重建索引{}完成，写入{}条，失败{}条，{}条/秒", index, report.getIndexed(), report.getFailed(), report.getDocsPerSecond());
+        }
+        return report;
+    }
+
+    /**
+     * 转换一批酒店并写入索引，超过字节上限时拆成多个bulk请求。
+     * 修改时间作为版本号，MQ同步已经写入更新的数据时返回版本冲突，按已写入计算
+     * @return [成功条数, 失败条数, 失败的最小id（没有失败时为Long.MAX_VALUE）]
+     */
+    private long[] write(String index, List<Hotel> hotels) throws IOException {
+        long[] result = {0, 0, Long.MAX_VALUE};
+        BulkRequest request = new BulkRequest();
+        List<HotelDoc> hotelDocs = HotelDocConverter.convert(hotels);
+        for (int i = 0; i < hotels.size(); i++) {
+            request.add(HotelDocConverter.indexRequest(index, hotels.get(i), JSON.toJSONBytes(hotelDocs.get(i))));
+            if (request.estimatedSizeInBytes() >= properties.getMaxBulkBytes()) {
+                send(request, result);
+                request = new BulkRequest();
+            }
+        }
+        if (request.numberOfActions() > 0) {
+            send(request, result);
+        }
+        return result;
+    }
+
+    private void send(BulkRequest request, long[] result) throws IOException {
+        BulkResponse response = client.bulk(request, RequestOptions.DEFAULT);
+        for (BulkItemResponse item : response.getItems()) {
+            if (item.isFailed() && !HotelDocConverter.isVersionConflict(item)) {
+                result[1]++;
+                result[2] = Math.min(result[2], Long.parseLong(item.getId()));
+                log.warn("酒店{}写入失败：{}", item.getId(), item.getFailureMessage());
+            } else {
+                result[0]++;
+            }
+        }
+    }
+
+    private static double rate(long docs, long startNanos) {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return seconds <= 0 ? 0 : Math.round(docs / seconds * 10) / 10.0;
+    }
+
+    private static void awaitTermination(ExecutorService workers) {
+        try {
+            while (!workers.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.info("等待在途的bulk请求完成");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long readCheckpoint(String index) {
+        Path path = Paths.get(properties.getCheckpointFile());
+        if (!Files.exists(path)) {
+            return 0L;
+        }
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            Properties checkpoint = new Properties();
+            checkpoint.load(reader);
+            if (!index.equals(checkpoint.getProperty("index"))) {
+                return 0L;
+            }
+            return Long.parseLong(checkpoint.getProperty("lastId", "0"));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void writeCheckpoint(String index, long lastId) {
+        Properties checkpoint = new Properties();
+        checkpoint.setProperty("index", index);
+        checkpoint.setProperty("lastId", String.valueOf(lastId));
+        try (Writer writer = Files.newBufferedWriter(Paths.get(properties.getCheckpointFile()), StandardCharsets.UTF_8)) {
+            checkpoint.store(writer, null);
+        } catch (IOException e) {
+            log.warn("写入断点失败", e);
+        }
+    }
+
+    /**
+     * 批次可能乱序完成，只有前面的批次都完成后，断点才能推进到这个批次的最大id。
+     * 有文档写入失败时，断点最多推进到第一条失败的文档之前，续传时从它开始重新写入
+     */
+    private class Checkpoint {
+        private final String index;
+        private final TreeMap<Long, Long> completed = new TreeMap<>();
+        private long nextSeq = 0;
+        private long lastId;
+        /**
+         * 断点的上限：失败的最小id减1
+         */
+        private long hold = Long.MAX_VALUE;
+
+        Checkpoint(String index, long lastId) {
+            this.index = index;
+            this.lastId = lastId;
+        }
+
+        /**
+         * @param firstFailedId 这个批次中写入失败的最小id，没有失败时为Long.MAX_VALUE
+         */
+        synchronized void complete(long seq, long chunkLastId, long firstFailedId) {
+            completed.put(seq, chunkLastId);
+            if (firstFailedId != Long.MAX_VALUE) {
+                hold = Math.min(hold, firstFailedId - 1);
+            }
+            long previous = lastId;
+            while (completed.containsKey(nextSeq)) {
+                lastId = Math.max(lastId, Math.min(completed.remove(nextSeq++), hold));
+            }
+            if (lastId != previous) {
+                writeCheckpoint(index, lastId);
+            }
+        }
+
+        synchronized long lastId() {
+            return lastId;
+        }
+    }
+}
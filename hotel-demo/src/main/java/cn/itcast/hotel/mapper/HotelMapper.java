@@ -2,6 +2,15 @@ package cn.itcast.hotel.mapper;
 
 import cn.itcast.hotel.pojo.Hotel;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
 
 public interface HotelMapper extends BaseMapper<Hotel> {
+
+    /**
+     * 数据库的当前时间，和update_time使用同一个时钟
+     */
+    @Select("SELECT LOCALTIMESTAMP(3)")
+    LocalDateTime now();
 }
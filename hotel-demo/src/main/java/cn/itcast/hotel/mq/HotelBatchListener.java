@@ -0,0 +1,82 @@
+package cn.itcast.hotel.mq;
+
+import cn.itcast.hotel.constants.MqConstants;
+import cn.itcast.hotel.service.IHotelService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 批量监听酒店新增、修改和删除的业务，开启 hotel.mq.batch.enabled 后替代 HotelListener
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "hotel.mq.batch", name = "enabled", havingValue = "true")
+public class HotelBatchListener {
+
+    @Autowired
+    private IHotelService hotelService;
+
+    @Autowired
+    private HotelSyncRetry syncRetry;
+
+    private final MessageConverter messageConverter = new SimpleMessageConverter();
+
+    /**
+     * 同时监听新增和删除队列，一批消息合并成一次数据库查询和一次bulk请求。
+     * 失败的酒店交给 HotelSyncRetry 延迟重试，整批消息照常确认，不占着消费线程等待
+     * @param messages 一个时间窗口内收到的消息
+     */
+    @RabbitListener(queues = {MqConstants.HOTEL_INSERT_QUEUE, MqConstants.HOTEL_DELETE_QUEUE},
+            containerFactory = "batchListenerContainerFactory")
+    public void listenHotelChanges(List<Message> messages){
+        // 1.按id去重，新增和删除都交给数据库判断：行还在就写入最新数据，不在了就删除。
+        //   同一批中先删除、又用同一个id重新创建的酒店，会按重新创建后的数据写入
+        //   删除消息中的删除时间作为删除的版本号，同一个id有多个时取最晚的
+        Map<Long, Integer> retries = new LinkedHashMap<>();
+        Set<Long> deleted = new HashSet<>();
+        Map<Long, LocalDateTime> deleteTimes = new HashMap<>();
+        for (Message message : messages) {
+            Long id = (Long) messageConverter.fromMessage(message);
+            MessageProperties properties = message.getMessageProperties();
+            retries.merge(id, HotelSyncRetry.retries(properties), Math::max);
+            if (MqConstants.HOTEL_DELETE_QUEUE.equals(properties.getConsumerQueue())) {
+                deleted.add(id);
+                LocalDateTime deleteTime = HotelSyncRetry.deleteTime(properties);
+                if (deleteTime != null) {
+                    deleteTimes.merge(id, deleteTime, (a, b) -> a.isAfter(b) ? a : b);
+                }
+            }
+        }
+        List<Long> ids = new ArrayList<>(retries.keySet());
+        log.debug("批量同步酒店，消息数：{}，酒店数：{}", messages.size(), ids.size());
+
+        // 2.批量同步，失败的条目投递到延迟重试队列；ES不可用时整批重试
+        Collection<Long> failed;
+        try {
+            failed = hotelService.bulkSync(ids, deleteTimes);
+        } catch (RuntimeException e) {
+            log.warn("批量同步酒店失败：{}", e.getMessage());
+            failed = ids;
+        }
+        for (Long id : failed) {
+            syncRetry.retry(id, deleted.contains(id), deleteTimes.get(id), retries.get(id));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package cn.itcast.hotel.mq;
+
+import cn.itcast.hotel.constants.MqConstants;
+import cn.itcast.hotel.pojo.HotelChangeEvent;
+import com.alibaba.fastjson.JSON;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * 把本实例发布的酒店变化事件广播给其他实例，再把其他实例的事件作为本地事件发布。
+ * 同一条MQ消息只会被一个实例消费，本地的搜索缓存、过滤项和自动补全都依赖变化事件，不广播的话其他实例会一直是旧数据
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "hotel.mq.broadcast", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class HotelChangeBroadcaster {
+
+    private static final String ORIGIN_HEADER = "origin";
+
+    /**
+     * 本实例的标识，收到自己发出的广播时跳过
+     */
+    private final String origin = UUID.randomUUID().toString();
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @EventListener
+    public void onHotelChanged(HotelChangeEvent event) {
+        if (event.isRemote()) {
+            return;
+        }
+        try {
+            rabbitTemplate.convertAndSend(MqConstants.HOTEL_CHANGE_EXCHANGE, "", JSON.toJSONString(event), message -> {
+                message.getMessageProperties().setHeader(ORIGIN_HEADER, origin);
+                return message;
+            });
+        } catch (AmqpException e) {
+            // 广播失败不影响索引同步，其他实例的搜索缓存要等过期后才会更新
+            log.warn("广播酒店变化失败，id：{}，{}", event.getId(), e.getMessage());
+        }
+    }
+
+    @RabbitListener(queues = "#{changeQueue.name}")
+    public void listenHotelChanged(String body, @Header(name = ORIGIN_HEADER, required = false) String sender) {
+        if (origin.equals(sender)) {
+            return;
+        }
+        HotelChangeEvent event = JSON.parseObject(body, HotelChangeEvent.class);
+        event.setRemote(true);
+        eventPublisher.publishEvent(event);
+    }
+}
@@ -0,0 +1,52 @@
+package cn.itcast.hotel.mq;
+
+import cn.itcast.hotel.constants.MqConstants;
+import cn.itcast.hotel.service.IHotelService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 监听批量导入的消息，一条消息是hotel-admin导入的一批酒店，合并成一次数据库查询和一次bulk请求
+ */
+@Slf4j
+@Component
+public class HotelImportListener {
+
+    @Autowired
+    private IHotelService hotelService;
+
+    @Autowired
+    private HotelSyncRetry syncRetry;
+
+    /**
+     * 失败的酒店逐条交给 HotelSyncRetry，之后作为单条新增消息重试
+     * @param ids 一批新增或修改的酒店id
+     */
+    @RabbitListener(queues = MqConstants.HOTEL_BATCH_QUEUE)
+    public void listenHotelBatch(long[] ids){
+        List<Long> upsertIds = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            upsertIds.add(id);
+        }
+        log.debug("同步导入的酒店：{}条", upsertIds.size());
+
+        // 批量同步，ES不可用时整批重试
+        Collection<Long> failed;
+        try {
+            failed = hotelService.bulkSync(upsertIds, Collections.emptyMap());
+        } catch (RuntimeException e) {
+            log.warn("同步导入的酒店失败：{}", e.getMessage());
+            failed = upsertIds;
+        }
+        for (Long id : failed) {
+            syncRetry.retry(id, 0);
+        }
+    }
+}
@@ -2,32 +2,59 @@ package cn.itcast.hotel.mq;
 
 import cn.itcast.hotel.constants.MqConstants;
 import cn.itcast.hotel.service.IHotelService;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDateTime;
+
+@Slf4j
 @Component
+@ConditionalOnProperty(prefix = "hotel.mq.batch", name = "enabled", havingValue = "false", matchIfMissing = true)
 public class HotelListener {
 
     @Autowired
     private IHotelService hotelService;
 
+    @Autowired
+    private HotelSyncRetry syncRetry;
+
     /**
      * 监听酒店新增或修改的业务
      * @param  id 酒店id
+     * @param  retries 消息已经重试的次数，第一次投递时没有
      */
     @RabbitListener(queues = MqConstants.HOTEL_INSERT_QUEUE)
-    public void listenHotelInsertOrUpdate(Long id){
-        hotelService.insertById(id);
+    public void listenHotelInsertOrUpdate(Long id,
+                                          @Header(name = MqConstants.RETRY_HEADER, required = false) Integer retries){
+        try {
+            hotelService.insertById(id);
+        } catch (RuntimeException e) {
+            log.warn("同步酒店失败，id：{}，{}", id, e.getMessage());
+            syncRetry.retry(id, retries == null ? 0 : retries);
+        }
     }
 
     /**
      * 监听酒店删除的业务
      * @param  id 酒店id
+     * @param  retries 消息已经重试的次数，第一次投递时没有
+     * @param  deleteTime 酒店被删除的时间，没有时由数据库判断
      */
     @RabbitListener(queues = MqConstants.HOTEL_DELETE_QUEUE)
-    public void listenHotelDelete(Long id){
-        hotelService.deleteById(id);
+    public void listenHotelDelete(Long id,
+                                  @Header(name = MqConstants.RETRY_HEADER, required = false) Integer retries,
+                                  @Header(name = MqConstants.DELETE_TIME_HEADER, required = false) String deleteTime){
+        LocalDateTime time = HotelSyncRetry.deleteTime(deleteTime);
+        try {
+            hotelService.deleteById(id, time);
+        } catch (RuntimeException e) {
+            log.warn("删除酒店文档失败，id：{}，{}", id, e.getMessage());
+            syncRetry.retry(id, true, time, retries == null ? 0 : retries);
+        }
     }
 
 }
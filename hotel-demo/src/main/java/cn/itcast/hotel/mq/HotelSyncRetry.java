@@ -0,0 +1,83 @@
+package cn.itcast.hotel.mq;
+
+import cn.itcast.hotel.config.MqRetryProperties;
+import cn.itcast.hotel.constants.MqConstants;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * 同步失败的酒店不在消费线程中等待重试，而是投递到延迟重试队列：
+ * 消息到期后按原来的RoutingKey回到新增或删除队列，第n次重试延迟 interval * 2^(n-1)，
+ * 重试 max-retries 次后仍然失败的投递到死信队列。删除消息的删除时间随重试消息一起带上。
+ * 监听方法捕获异常后交给这里，不抛给容器，否则消息被立即重新投递，ES不可用时会无限循环。
+ * 重试队列先进先出，只在队头检查是否到期，队头延迟较长时后面的消息会跟着晚一些回来
+ */
+@Slf4j
+@Component
+public class HotelSyncRetry {
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private MqRetryProperties properties;
+
+    /**
+     * 重试新增或修改消息
+     * @param id      同步失败的酒店id
+     * @param retries 消息已经重试的次数，见 retries(MessageProperties)
+     */
+    public void retry(Long id, int retries) {
+        retry(id, false, null, retries);
+    }
+
+    /**
+     * @param id         同步失败的酒店id
+     * @param delete     是否来自删除消息，决定重试和死信的RoutingKey
+     * @param deleteTime 删除消息中的删除时间，没有时为null
+     * @param retries    消息已经重试的次数，见 retries(MessageProperties)
+     */
+    public void retry(Long id, boolean delete, LocalDateTime deleteTime, int retries) {
+        if (retries >= properties.getMaxRetries()) {
+            log.error("酒店同步重试{}次后仍然失败，投递到死信队列，id：{}", retries, id);
+            rabbitTemplate.convertAndSend(MqConstants.HOTEL_EXCHANGE,
+                    MqConstants.HOTEL_ERROR_KEY + (delete ? ".delete" : ".insert"), id);
+            return;
+        }
+        long delay = properties.getInterval() << retries;
+        log.warn("酒店同步失败，{}ms后第{}次重试，id：{}", delay, retries + 1, id);
+        rabbitTemplate.convertAndSend(MqConstants.HOTEL_RETRY_EXCHANGE,
+                delete ? MqConstants.HOTEL_DELETE_KEY : MqConstants.HOTEL_INSERT_KEY, id, message -> {
+                    message.getMessageProperties().setHeader(MqConstants.RETRY_HEADER, retries + 1);
+                    message.getMessageProperties().setExpiration(String.valueOf(delay));
+                    if (deleteTime != null) {
+                        message.getMessageProperties().setHeader(MqConstants.DELETE_TIME_HEADER, deleteTime.toString());
+                    }
+                    return message;
+                });
+    }
+
+    /**
+     * @return 消息已经重试的次数，第一次投递的消息为0
+     */
+    public static int retries(MessageProperties properties) {
+        Object value = properties.getHeaders().get(MqConstants.RETRY_HEADER);
+        return value instanceof Number ? ((Number) value).intValue() : 0;
+    }
+
+    /**
+     * @return 删除消息中酒店被删除的时间，没有时返回null
+     */
+    public static LocalDateTime deleteTime(MessageProperties properties) {
+        return deleteTime((String) properties.getHeaders().get(MqConstants.DELETE_TIME_HEADER));
+    }
+
+    public static LocalDateTime deleteTime(String header) {
+        return header == null ? null : LocalDateTime.parse(header);
+    }
+}
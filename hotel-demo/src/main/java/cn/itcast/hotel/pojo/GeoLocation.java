@@ -0,0 +1,86 @@
+package cn.itcast.hotel.pojo;
+
+import com.alibaba.fastjson.annotation.JSONCreator;
+import com.alibaba.fastjson.annotation.JSONField;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.elasticsearch.geometry.Rectangle;
+import org.elasticsearch.geometry.utils.Geohash;
+
+import java.util.Locale;
+
+/**
+ * 经纬度坐标，构造时校验范围。
+ * 序列化为 {"lat": 31.21, "lon": 121.5}，ES的geo_point直接使用，不需要再解析字符串；
+ * 反序列化同时兼容旧的 "31.21, 121.5" 字符串
+ */
+@Getter
+@EqualsAndHashCode
+public class GeoLocation {
+
+    private final double lat;
+    private final double lon;
+
+    @JsonCreator
+    @JSONCreator
+    public GeoLocation(@JsonProperty("lat") @JSONField(name = "lat") double lat,
+                       @JsonProperty("lon") @JSONField(name = "lon") double lon) {
+        if (!(lat >= -90 && lat <= 90) || !(lon >= -180 && lon <= 180)) {
+            throw new IllegalArgumentException("经纬度超出范围：" + lat + ", " + lon);
+        }
+        this.lat = lat;
+        this.lon = lon;
+    }
+
+    /**
+     * @param text "纬度, 经度"，例如 "31.21, 121.5"
+     */
+    @JsonCreator
+    public static GeoLocation parse(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return null;
+        }
+        int comma = text.indexOf(',');
+        if (comma < 0) {
+            throw new IllegalArgumentException("位置格式应为\"纬度, 经度\"：" + text);
+        }
+        try {
+            return new GeoLocation(Double.parseDouble(text.substring(0, comma).trim()),
+                    Double.parseDouble(text.substring(comma + 1).trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("位置格式应为\"纬度, 经度\"：" + text, e);
+        }
+    }
+
+    /**
+     * 数据库中的坐标缺失或不合法时返回null，文档不带位置
+     */
+    public static GeoLocation of(Double lat, Double lon) {
+        if (lat == null || lon == null || !(lat >= -90 && lat <= 90) || !(lon >= -180 && lon <= 180)) {
+            return null;
+        }
+        return new GeoLocation(lat, lon);
+    }
+
+    /**
+     * @param precision geohash的长度，1-12，越长网格越小，例如6约为1.2km×0.6km
+     */
+    public String geohash(int precision) {
+        return Geohash.stringEncode(lon, lat, precision);
+    }
+
+    /**
+     * 所在geohash网格的中心点，附近的坐标得到同一个点
+     */
+    public GeoLocation snap(int precision) {
+        Rectangle cell = Geohash.toBoundingBox(geohash(precision));
+        return new GeoLocation((cell.getMinLat() + cell.getMaxLat()) / 2, (cell.getMinLon() + cell.getMaxLon()) / 2);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%.6f, %.6f", lat, lon);
+    }
+}
@@ -6,6 +6,7 @@ import com.baomidou.mybatisplus.annotation.TableName;
 import lombok.Data;
 
 import java.io.Serializable;
+import java.time.LocalDateTime;
 
 @Data
 @TableName("tb_hotel")
@@ -20,7 +21,11 @@ public class Hotel{
     private String city;
     private String starName;
     private String business;
-    private String longitude;
-    private String latitude;
+    private Double longitude;
+    private Double latitude;
     private String pic;
+    /**
+     * 最后修改时间，由MySQL自动更新，也是ES文档的外部版本号（见 db/tb_hotel_update_time.sql）
+     */
+    private LocalDateTime updateTime;
 }
@@ -0,0 +1,33 @@
+package cn.itcast.hotel.pojo;
+
+import com.alibaba.fastjson.annotation.JSONField;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 索引库中一个酒店文档发生变化后发布的事件
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HotelChangeEvent {
+    private Long id;
+    /**
+     * 变化前的文档，新增时为null
+     */
+    private HotelDoc before;
+    /**
+     * 变化后的文档，删除时为null
+     */
+    private HotelDoc after;
+    /**
+     * 是否是其他实例广播过来的事件，这种事件不再转发
+     */
+    @JSONField(serialize = false, deserialize = false)
+    private boolean remote;
+
+    public HotelChangeEvent(Long id, HotelDoc before, HotelDoc after) {
+        this(id, before, after, false);
+    }
+}
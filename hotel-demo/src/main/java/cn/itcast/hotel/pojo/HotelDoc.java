@@ -1,11 +1,10 @@
 package cn.itcast.hotel.pojo;
 
+import cn.itcast.hotel.constants.HotelConstants;
+import cn.itcast.hotel.suggest.SuggestionTokenizer;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 
 @Data
@@ -20,13 +19,24 @@ public class HotelDoc {
     private String city;
     private String starName;
     private String business;
-    private String location;
+    private GeoLocation location;
+    /**
+     * 位置的geohash，前缀相同的酒店在同一个网格内，用于按网格分桶
+     */
+    private String geohash;
     private String pic;
     private Object distance;
     private Boolean isAD;
     private List<String> suggestion;
 
     public HotelDoc(Hotel hotel) {
+        this(hotel, new SuggestionTokenizer());
+    }
+
+    /**
+     * 批量转换时复用同一个分词器，见 HotelDocConverter
+     */
+    public HotelDoc(Hotel hotel, SuggestionTokenizer tokenizer) {
         this.id = hotel.getId();
         this.name = hotel.getName();
         this.address = hotel.getAddress();
@@ -36,15 +46,9 @@ public class HotelDoc {
         this.city = hotel.getCity();
         this.starName = hotel.getStarName();
         this.business = hotel.getBusiness();
-        this.location = hotel.getLatitude() + ", " + hotel.getLongitude();
+        this.location = GeoLocation.of(hotel.getLatitude(), hotel.getLongitude());
+        this.geohash = location == null ? null : location.geohash(HotelConstants.GEOHASH_PRECISION);
         this.pic = hotel.getPic();
-        if (this.business.contains("/") || this.business.contains("、")|| this.business.contains(",")){
-            String[] arr = this.business.split("[,/|、]");
-            this.suggestion = new ArrayList<>();
-            this.suggestion.add(this.brand);
-            Collections.addAll(this.suggestion,arr);
-        }else {
-            this.suggestion = Arrays.asList(this.brand,this.business);
-        }
+        this.suggestion = tokenizer.tokenize(this.brand, this.business);
     }
 }
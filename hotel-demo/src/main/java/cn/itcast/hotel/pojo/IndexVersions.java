@@ -0,0 +1,24 @@
+package cn.itcast.hotel.pojo;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 酒店索引的版本信息
+ */
+@Data
+public class IndexVersions {
+    /**
+     * 别名当前指向的索引
+     */
+    private String current;
+    /**
+     * 所有版本的索引，按版本号升序
+     */
+    private List<String> versions;
+    /**
+     * 写入时同步更新的索引
+     */
+    private List<String> writeIndices;
+}
@@ -0,0 +1,23 @@
+package cn.itcast.hotel.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 地图上一个网格内酒店的聚合点
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MapCluster {
+    /**
+     * 网格的瓦片坐标，例如 "12/3430/1673"
+     */
+    private String key;
+    private Long count;
+    /**
+     * 网格内酒店位置的中心，聚合点显示在这里
+     */
+    private GeoLocation center;
+}
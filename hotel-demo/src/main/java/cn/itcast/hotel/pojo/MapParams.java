@@ -0,0 +1,24 @@
+package cn.itcast.hotel.pojo;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 地图查询的参数：当前视口和缩放级别，其余过滤条件与列表查询相同
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class MapParams extends RequestParams {
+    /**
+     * 视口左上角
+     */
+    private GeoLocation topLeft;
+    /**
+     * 视口右下角
+     */
+    private GeoLocation bottomRight;
+    /**
+     * 地图缩放级别，与瓦片地图的级别一致，0-20
+     */
+    private Integer zoom;
+}
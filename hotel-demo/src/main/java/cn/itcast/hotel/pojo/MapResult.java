@@ -0,0 +1,21 @@
+package cn.itcast.hotel.pojo;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 地图查询的结果：缩放级别低时返回聚合点，放大后返回单个酒店的标记，另一个为null
+ */
+@Data
+public class MapResult {
+    /**
+     * 视口内的酒店总数
+     */
+    private Long total;
+    private List<MapCluster> clusters;
+    /**
+     * 只有id、名称、价格和位置
+     */
+    private List<HotelDoc> markers;
+}
@@ -8,6 +8,10 @@ import java.util.List;
 public class PageResult {
     private Long total;
     private List<HotelDoc> hotels;
+    /**
+     * 游标分页时下一页的游标，没有更多结果时为null
+     */
+    private String nextCursor;
 
     public PageResult(Long total, List<HotelDoc> hotels) {
         this.total = total;
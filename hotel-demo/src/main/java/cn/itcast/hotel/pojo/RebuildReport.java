@@ -0,0 +1,35 @@
+package cn.itcast.hotel.pojo;
+
+import lombok.Data;
+
+/**
+ * 一次重建到新版本索引的状态和结果
+ */
+@Data
+public class RebuildReport {
+    public enum Status {
+        RUNNING,
+        /** 已切换别名，见 versions */
+        COMPLETED,
+        /** 新索引已删除，别名没有切换，见 error */
+        FAILED
+    }
+
+    /**
+     * 新版本的索引，创建之前为null
+     */
+    private volatile String index;
+    private volatile Status status;
+    /**
+     * 写入新索引的进度和结果，开始写入之前为null
+     */
+    private volatile ReindexReport reindex;
+    /**
+     * 完成后的版本信息
+     */
+    private volatile IndexVersions versions;
+    /**
+     * 失败的原因，成功时为null
+     */
+    private volatile String error;
+}
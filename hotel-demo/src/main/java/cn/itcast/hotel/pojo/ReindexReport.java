@@ -0,0 +1,38 @@
+package cn.itcast.hotel.pojo;
+
+import lombok.Data;
+
+/**
+ * 一次全量重建索引的状态和结果，执行中时计数随批次完成更新
+ */
+@Data
+public class ReindexReport {
+    public enum Status {
+        RUNNING,
+        /** 全部写入成功 */
+        COMPLETED,
+        /** 读完了整张表，但有文档写入失败，见 failed；断点停在第一条失败的文档之前，可以续传 */
+        COMPLETED_WITH_ERRORS,
+        /** 中断，见 error */
+        FAILED
+    }
+
+    private String index;
+    private volatile Status status;
+    /**
+     * 断点续传时的起始id，从头开始时为0
+     */
+    private Long resumedFrom;
+    /**
+     * 断点：这个id及之前的文档都已写入成功，续传时从它之后开始
+     */
+    private Long lastId;
+    private volatile long indexed;
+    private volatile long failed;
+    private long elapsedMillis;
+    private double docsPerSecond;
+    /**
+     * 中断的原因，正常完成时为null
+     */
+    private volatile String error;
+}
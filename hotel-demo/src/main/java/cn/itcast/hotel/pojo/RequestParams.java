@@ -13,5 +13,12 @@ public class RequestParams {
     private String starName;
     private Integer minPrice;
     private Integer maxPrice;
-    private String location;
+    /**
+     * 用户位置，可以传 {"lat": 31.21, "lon": 121.5} 或 "31.21, 121.5"，解析时校验范围
+     */
+    private GeoLocation location;
+    /**
+     * 游标分页：null 使用 page/size 分页；空串开始游标分页；之后传上一页返回的 nextCursor
+     */
+    private String cursor;
 }
@@ -0,0 +1,19 @@
+package cn.itcast.hotel.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 搜索页一次返回的数据：结果列表和过滤项
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchPage {
+    private PageResult page;
+    private Map<String, List<String>> filters;
+}
@@ -0,0 +1,146 @@
+package cn.itcast.hotel.search;
+
+import cn.itcast.hotel.config.SearchProperties;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Cancellable;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseListener;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 异步的ES请求：请求在ES客户端的IO线程上完成，不占用调用方线程。
+ * 每个请求都有超时，超时或者被取消时同时取消底层的HTTP请求。
+ * 解析响应放在单独的线程池中，不占用IO线程
+ */
+@Component
+public class AsyncSearchClient {
+
+    @Autowired
+    private RestHighLevelClient client;
+
+    @Autowired
+    private SearchProperties properties;
+
+    private ScheduledExecutorService timer;
+
+    private ExecutorService decoder;
+
+    @PostConstruct
+    public void init() {
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "es-search-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger count = new AtomicInteger();
+        decoder = Executors.newFixedThreadPool(properties.getDecodeThreads(), r -> {
+            Thread thread = new Thread(r, "es-search-decode-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        timer.shutdownNow();
+        decoder.shutdownNow();
+    }
+
+    public CompletableFuture<SearchResponse> search(SearchRequest request) {
+        CompletableFuture<SearchResponse> future = new CompletableFuture<>();
+        Cancellable cancellable = client.searchAsync(request, RequestOptions.DEFAULT,
+                ActionListener.wrap(future::complete, future::completeExceptionally));
+        return withTimeout(future, cancellable);
+    }
+
+    /**
+     * 通过低级客户端发送请求，用于高级客户端还不支持的接口
+     */
+    public CompletableFuture<Response> perform(Request request) {
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        Cancellable cancellable = client.getLowLevelClient().performRequestAsync(request, new ResponseListener() {
+            @Override
+            public void onSuccess(Response response) {
+                future.complete(response);
+            }
+
+            @Override
+            public void onFailure(Exception exception) {
+                future.completeExceptionally(exception);
+            }
+        });
+        return withTimeout(future, cancellable);
+    }
+
+    private <T> CompletableFuture<T> withTimeout(CompletableFuture<T> future, Cancellable cancellable) {
+        long millis = properties.getTimeout().toMillis();
+        ScheduledFuture<?> task = timer.schedule(() ->
+                future.completeExceptionally(new TimeoutException("ES请求超过" + millis + "ms未响应")),
+                millis, TimeUnit.MILLISECONDS);
+        future.whenComplete((result, e) -> {
+            task.cancel(false);
+            // 超时或者被取消，底层请求也不用再等了
+            if (e != null) {
+                cancellable.cancel();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 和thenApply一样，但取消返回的future时也会取消source
+     */
+    public static <S, T> CompletableFuture<T> map(CompletableFuture<S> source, Function<? super S, ? extends T> fn) {
+        return cancelSource(source, source.thenApply(fn));
+    }
+
+    /**
+     * 和map一样，但fn在解析线程池中执行。
+     * 解析响应要反序列化大量文档，放在ES客户端的IO线程上会拖慢其他请求的收发
+     */
+    public <S, T> CompletableFuture<T> mapAsync(CompletableFuture<S> source, Function<? super S, ? extends T> fn) {
+        return cancelSource(source, source.thenApplyAsync(fn, decoder));
+    }
+
+    private static <S, T> CompletableFuture<T> cancelSource(CompletableFuture<S> source, CompletableFuture<T> result) {
+        result.whenComplete((r, e) -> {
+            if (result.isCancelled()) {
+                source.cancel(false);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 同步等待结果，异常原样抛出
+     */
+    public static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+}
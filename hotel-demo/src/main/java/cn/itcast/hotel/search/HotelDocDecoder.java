@@ -0,0 +1,72 @@
+package cn.itcast.hotel.search;
+
+import cn.itcast.hotel.pojo.HotelDoc;
+import cn.itcast.hotel.pojo.PageResult;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 把搜索结果中文档的source直接从UTF-8字节解析为HotelDoc。
+ * getSourceAsString() 会先把字节复制成一个String再交给fastjson解析，这里省掉了中间的String。
+ */
+public final class HotelDocDecoder {
+
+    private static final ObjectReader READER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .readerFor(HotelDoc.class);
+
+    private HotelDocDecoder() {
+    }
+
+    public static HotelDoc decode(SearchHit hit) {
+        return decode(hit.getSourceRef());
+    }
+
+    public static HotelDoc decode(BytesReference sourceRef) {
+        // 单个数组的source不会复制，只有分段存储时才会合并
+        BytesRef source = sourceRef.toBytesRef();
+        try {
+            return READER.readValue(source.bytes, source.offset, source.length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 解析一页搜索结果
+     * @param distanceIndex 距离排序在排序值中的下标，没有按距离排序时为-1
+     */
+    public static PageResult decodePage(SearchResponse response, int distanceIndex) {
+        //4. 解析响应
+        SearchHits searchHits = response.getHits();
+        //4.1. 获取总条数，不统计总数时为null
+        Long total = searchHits.getTotalHits() == null ? null : searchHits.getTotalHits().value;
+        //4.2. 文档数组
+        SearchHit[] hits = searchHits.getHits();
+        //4.3. 遍历
+        List<HotelDoc> hotels = new ArrayList<>();
+        for (SearchHit hit: hits) {
+            // 反序列化，直接解析source的字节
+            HotelDoc hotelDoc = decode(hit);
+            // 获取距离的排序值
+            if (distanceIndex >= 0){
+                Object sortValue = hit.getSortValues()[distanceIndex];
+                hotelDoc.setDistance(sortValue);
+            }
+            hotels.add(hotelDoc);
+        }
+        //4.4 封装返回
+        return new PageResult(total,hotels);
+    }
+}
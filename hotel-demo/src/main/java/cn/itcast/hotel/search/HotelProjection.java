@@ -0,0 +1,42 @@
+package cn.itcast.hotel.search;
+
+import org.elasticsearch.action.search.SearchRequest;
+
+/**
+ * 搜索结果返回的字段集合。不同页面只取自己要展示的字段，
+ * 减少ES读取source、网络传输和解析的开销
+ */
+public enum HotelProjection {
+    /**
+     * 列表页的酒店卡片，地图标记也用其中的id、名称和位置
+     */
+    CARD(new String[]{"id", "name", "address", "price", "score", "starName", "business", "location", "pic", "isAD"}, null),
+    /**
+     * 只在地图上打点
+     */
+    MARKER(new String[]{"id", "name", "price", "location"}, null),
+    /**
+     * 全部字段，只去掉自动补全用的suggestion
+     */
+    FULL(null, new String[]{"suggestion"});
+
+    private final String[] includes;
+    private final String[] excludes;
+
+    HotelProjection(String[] includes, String[] excludes) {
+        this.includes = includes;
+        this.excludes = excludes;
+    }
+
+    public void apply(SearchRequest request) {
+        request.source().fetchSource(includes, excludes);
+    }
+
+    public String[] getIncludes() {
+        return includes;
+    }
+
+    public String[] getExcludes() {
+        return excludes;
+    }
+}
@@ -0,0 +1,159 @@
+package cn.itcast.hotel.search;
+
+import cn.itcast.hotel.pojo.GeoLocation;
+import cn.itcast.hotel.pojo.MapParams;
+import cn.itcast.hotel.pojo.RequestParams;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.common.unit.DistanceUnit;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * 查询计划：根据请求参数决定用哪种查询。
+ * 没有关键字时是纯过滤查询，发送constant_score并开启request_cache；
+ * 广告置顶不再通过function_score算分，而是按isAD的doc_values排序。
+ * 排序结果因此有变化：以前广告的相关度乘以10，相关度很低的广告可能排在相关度高的普通酒店后面；
+ * 现在默认排序（没有位置）时所有命中的广告都排在普通酒店前面，广告之间、普通酒店之间再按相关度排序。
+ * 按价格、评分或距离排序时不考虑广告
+ */
+@Component
+public class HotelQueryPlanner {
+
+    public enum Plan {
+        /** 没有关键字，只有过滤条件 */
+        FILTER,
+        /** 有关键字，按相关度排序 */
+        SCORED,
+        /** 有关键字，按价格或评分排序，不需要算分 */
+        SORTED
+    }
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    public Plan plan(RequestParams params) {
+        if (isBlank(params.getKey())) {
+            return Plan.FILTER;
+        }
+        return isSorted(params) ? Plan.SORTED : Plan.SCORED;
+    }
+
+    /**
+     * 构建查询条件，纯过滤查询开启request_cache
+     * @param cacheable 是否允许ES缓存结果，point in time翻页时不缓存
+     */
+    public Plan query(RequestParams params, SearchRequest request, boolean cacheable) {
+        Plan plan = plan(params);
+        meterRegistry.counter("hotel.search.plan", "plan", plan.name().toLowerCase()).increment();
+        BoolQueryBuilder boolQuery = filters(params);
+        if (plan == Plan.FILTER) {
+            request.source().query(QueryBuilders.constantScoreQuery(boolQuery));
+            if (cacheable) {
+                request.requestCache(true);
+            }
+        } else if (plan == Plan.SORTED) {
+            // 不算分，关键字也放到filter中
+            request.source().query(boolQuery.filter(QueryBuilders.matchQuery("all", params.getKey())));
+        } else {
+            request.source().query(boolQuery.must(QueryBuilders.matchQuery("all", params.getKey())));
+        }
+        return plan;
+    }
+
+    /**
+     * 只有过滤条件的查询，用于聚合
+     */
+    public void filterQuery(RequestParams params, SearchRequest request) {
+        request.source().query(QueryBuilders.constantScoreQuery(keywordFilters(params)));
+        request.requestCache(true);
+    }
+
+    /**
+     * 地图查询：过滤条件加上视口范围，不算分
+     */
+    public void mapQuery(MapParams params, SearchRequest request) {
+        GeoLocation topLeft = params.getTopLeft();
+        GeoLocation bottomRight = params.getBottomRight();
+        BoolQueryBuilder boolQuery = keywordFilters(params)
+                .filter(QueryBuilders.geoBoundingBoxQuery("location")
+                        .setCorners(topLeft.getLat(), topLeft.getLon(), bottomRight.getLat(), bottomRight.getLon()));
+        request.source().query(QueryBuilders.constantScoreQuery(boolQuery));
+        request.requestCache(true);
+    }
+
+    /**
+     * 构建排序：按价格升序或评分降序时，距离作为第二排序条件；
+     * 默认排序时有位置按距离，否则广告在前，再按相关度。
+     * 按价格或评分排序时值相同的酒店很多，最后按id排序，否则分页时同一家酒店可能在相邻两页重复出现或漏掉
+     * @param tiebreaker 是否追加按id排序，search_after要求排序值唯一
+     * @return 距离排序在排序值中的下标，没有按距离排序时为-1
+     */
+    public int sort(RequestParams params, Plan plan, SearchRequest request, boolean tiebreaker) {
+        String sortBy = params.getSortBy();
+        if ("price".equals(sortBy)) {
+            request.source().sort(SortBuilders.fieldSort("price").order(SortOrder.ASC));
+        } else if ("score".equals(sortBy)) {
+            request.source().sort(SortBuilders.fieldSort("score").order(SortOrder.DESC));
+        }
+        int distanceIndex = -1;
+        GeoLocation location = params.getLocation();
+        if (location != null) {
+            distanceIndex = request.source().sorts() == null ? 0 : request.source().sorts().size();
+            request.source().sort(SortBuilders.geoDistanceSort("location", location.getLat(), location.getLon())
+                    .order(SortOrder.ASC)
+                    .unit(DistanceUnit.KILOMETERS));
+        } else if (!isSorted(params)) {
+            // 旧索引中可能没有isAD字段，按false处理，不报错
+            request.source().sort(SortBuilders.fieldSort("isAD").order(SortOrder.DESC).unmappedType("boolean"));
+            if (plan == Plan.SCORED) {
+                request.source().sort(SortBuilders.scoreSort());
+            }
+        }
+        if (tiebreaker || isSorted(params)) {
+            request.source().sort(SortBuilders.fieldSort("id").order(SortOrder.ASC));
+        }
+        return distanceIndex;
+    }
+
+    private BoolQueryBuilder keywordFilters(RequestParams params) {
+        BoolQueryBuilder boolQuery = filters(params);
+        if (!isBlank(params.getKey())) {
+            boolQuery.filter(QueryBuilders.matchQuery("all", params.getKey()));
+        }
+        return boolQuery;
+    }
+
+    private BoolQueryBuilder filters(RequestParams params) {
+        BoolQueryBuilder boolQuery = QueryBuilders.boolQuery();
+        // 城市条件
+        if (!isBlank(params.getCity())) {
+            boolQuery.filter(QueryBuilders.termQuery("city", params.getCity()));
+        }
+        // 品牌条件
+        if (!isBlank(params.getBrand())) {
+            boolQuery.filter(QueryBuilders.termQuery("brand", params.getBrand()));
+        }
+        // 星级条件
+        if (!isBlank(params.getStarName())) {
+            boolQuery.filter(QueryBuilders.termQuery("starName", params.getStarName()));
+        }
+        // 价格
+        if (params.getMaxPrice() != null && params.getMinPrice() != null) {
+            boolQuery.filter(QueryBuilders.rangeQuery("price").gte(params.getMinPrice()).lte(params.getMaxPrice()));
+        }
+        return boolQuery;
+    }
+
+    private static boolean isSorted(RequestParams params) {
+        return "price".equals(params.getSortBy()) || "score".equals(params.getSortBy());
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || "".equals(value);
+    }
+}
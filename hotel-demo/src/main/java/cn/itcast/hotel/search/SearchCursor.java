@@ -0,0 +1,60 @@
+package cn.itcast.hotel.search;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.apache.commons.lang3.StringUtils;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 游标分页的续页令牌：point in time的id加上一页最后一条的排序值，编码为URL安全的Base64，对前端不透明
+ */
+@Data
+@AllArgsConstructor
+public class SearchCursor {
+    private String pitId;
+    private Object[] sortValues;
+
+    public String encode() {
+        JSONObject json = new JSONObject();
+        json.put("pit", pitId);
+        json.put("after", sortValues);
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(JSON.toJSONBytes(json));
+    }
+
+    /**
+     * @throws IllegalArgumentException 令牌不是本类生成的，或者缺少point in time的id、排序值
+     */
+    public static SearchCursor decode(String token) {
+        JSONObject json;
+        JSONArray after;
+        try {
+            json = JSON.parseObject(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+            after = json == null ? null : json.getJSONArray("after");
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("无效的分页游标", e);
+        }
+        if (after == null || after.isEmpty() || StringUtils.isBlank(json.getString("pit"))) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+        Object[] sortValues = new Object[after.size()];
+        for (int i = 0; i < sortValues.length; i++) {
+            // search_after 不接受 BigDecimal/BigInteger，转换回排序值原来的类型
+            Object value = after.get(i);
+            if (value instanceof BigDecimal) {
+                value = ((BigDecimal) value).doubleValue();
+            } else if (value instanceof BigInteger) {
+                value = ((BigInteger) value).longValue();
+            }
+            sortValues[i] = value;
+        }
+        return new SearchCursor(json.getString("pit"), sortValues);
+    }
+}
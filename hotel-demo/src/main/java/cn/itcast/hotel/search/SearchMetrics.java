@@ -0,0 +1,150 @@
+package cn.itcast.hotel.search;
+
+import cn.itcast.hotel.config.SearchProperties;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 酒店服务的耗时统计：
+ * hotel.service.calls 每个服务方法的总耗时；
+ * hotel.search.stage 一次ES查询分阶段的耗时，build构建请求、network客户端等待响应、took ES自己统计的耗时、decode解析响应；
+ * hotel.search.hits 每次返回的文档数；hotel.search.errors 失败次数。
+ * 超过阈值的查询把DSL打印到 hotel.slow-query 日志
+ */
+@Component
+public class SearchMetrics {
+
+    private static final Logger SLOW_QUERY_LOG = LoggerFactory.getLogger("hotel.slow-query");
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private SearchProperties properties;
+
+    @Autowired
+    private AsyncSearchClient asyncClient;
+
+    /**
+     * 开始构建请求
+     */
+    public Timer.Sample startBuild() {
+        return Timer.start(meterRegistry);
+    }
+
+    /**
+     * 请求构建完成，发送请求
+     */
+    public CompletableFuture<SearchResponse> search(String operation, SearchRequest request, Timer.Sample build) {
+        build.stop(stage(operation, "build"));
+        long start = System.nanoTime();
+        CompletableFuture<SearchResponse> future = asyncClient.search(request);
+        future.whenComplete((response, e) -> {
+            long network = System.nanoTime() - start;
+            stage(operation, "network").record(network, TimeUnit.NANOSECONDS);
+            if (e != null) {
+                error(operation, e);
+            } else {
+                stage(operation, "took").record(response.getTook().millis(), TimeUnit.MILLISECONDS);
+                DistributionSummary.builder("hotel.search.hits")
+                        .tag("operation", operation)
+                        .publishPercentiles(0.5, 0.95, 0.99)
+                        .register(meterRegistry)
+                        .record(response.getHits().getHits().length);
+            }
+            long millis = TimeUnit.NANOSECONDS.toMillis(network);
+            if (millis >= properties.getSlowQueryThreshold().toMillis()) {
+                SLOW_QUERY_LOG.warn("[{}] 耗时{}ms, ES耗时{}ms, 失败: {}, DSL: {}", operation, millis,
+                        response == null ? -1 : response.getTook().millis(),
+                        e == null ? "无" : e.toString(), request.source());
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 统计解析响应的耗时
+     */
+    public <T> T decode(String operation, SearchResponse response, Function<SearchResponse, T> decoder) {
+        try {
+            return stage(operation, "decode").record(() -> decoder.apply(response));
+        } catch (RuntimeException e) {
+            error(operation, e);
+            throw e;
+        }
+    }
+
+    /**
+     * 统计异步服务方法的总耗时
+     */
+    public <T> CompletableFuture<T> recordAsync(String method, Supplier<CompletableFuture<T>> call) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            sample.stop(call(method, e));
+            throw e;
+        }
+        future.whenComplete((result, e) -> sample.stop(call(method, e)));
+        return future;
+    }
+
+    /**
+     * 统计同步服务方法的总耗时
+     */
+    public <T> T record(String method, Supplier<T> call) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Throwable error = null;
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            error = e;
+            throw e;
+        } finally {
+            sample.stop(call(method, error));
+        }
+    }
+
+    public void record(String method, Runnable call) {
+        record(method, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    private Timer stage(String operation, String stage) {
+        return Timer.builder("hotel.search.stage")
+                .tag("operation", operation)
+                .tag("stage", stage)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    private Timer call(String method, Throwable error) {
+        return Timer.builder("hotel.service.calls")
+                .tag("method", method)
+                .tag("outcome", error == null ? "success" : "error")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    private void error(String operation, Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        meterRegistry.counter("hotel.search.errors",
+                "operation", operation, "exception", cause.getClass().getSimpleName()).increment();
+    }
+}
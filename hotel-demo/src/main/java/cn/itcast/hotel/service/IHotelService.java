@@ -1,21 +1,65 @@
 package cn.itcast.hotel.service;
 
 import cn.itcast.hotel.pojo.Hotel;
+import cn.itcast.hotel.pojo.MapParams;
+import cn.itcast.hotel.pojo.MapResult;
 import cn.itcast.hotel.pojo.PageResult;
 import cn.itcast.hotel.pojo.RequestParams;
+import cn.itcast.hotel.pojo.SearchPage;
 import com.baomidou.mybatisplus.extension.service.IService;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 public interface IHotelService extends IService<Hotel> {
     PageResult search(RequestParams params) ;
 
+    /**
+     * 异步搜索，不占用调用线程等待ES响应
+     */
+    CompletableFuture<PageResult> searchAsync(RequestParams params);
+
     Map<String, List<String>> filters(RequestParams params);
 
+    CompletableFuture<Map<String, List<String>>> filtersAsync(RequestParams params);
+
+    /**
+     * 结果列表和过滤项一起查，尽量只发一次ES请求
+     */
+    CompletableFuture<SearchPage> searchPageAsync(RequestParams params);
+
+    /**
+     * 地图视口内的酒店：缩放级别低时按网格聚合，放大后返回单个酒店的标记
+     */
+    CompletableFuture<MapResult> mapAsync(MapParams params);
+
     List<String> getSuggestions(String prefix);
 
     void insertById(Long id);
 
-    void deleteById(Long id);
+    /**
+     * 删除酒店的文档
+     * @param deleteTime 酒店被删除的时间（数据库的时钟），作为删除的版本号，
+     *                   之后用同一个id重新创建的酒店不会被这次删除影响；为null时由数据库判断，同 insertById
+     */
+    void deleteById(Long id, LocalDateTime deleteTime);
+
+    /**
+     * 批量同步酒店到索引库：一次查询数据库，一次bulk请求
+     * @param ids         新增、修改或删除的酒店id，由数据库判断：行还在就写入最新数据，不在了就删除
+     * @param deleteTimes 删除消息中的删除时间，行不在时作为删除的版本号；没有删除时间的用数据库的当前时间
+     * @return 同步失败的酒店id
+     */
+    Set<Long> bulkSync(Collection<Long> ids, Map<Long, LocalDateTime> deleteTimes);
+
+    /**
+     * 直接用已经读出的行写入索引库，不再查询数据库
+     * @param hotels 新增或修改后的酒店
+     * @return 同步失败的酒店id
+     */
+    Set<Long> bulkUpsert(Collection<Hotel> hotels);
 }
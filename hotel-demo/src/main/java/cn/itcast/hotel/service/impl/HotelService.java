@@ -1,32 +1,66 @@
 package cn.itcast.hotel.service.impl;
 
+import cn.itcast.hotel.cache.SearchResultCache;
+import cn.itcast.hotel.config.MapProperties;
+import cn.itcast.hotel.config.SearchProperties;
+import cn.itcast.hotel.constants.HotelConstants;
+import cn.itcast.hotel.facet.FacetIndex;
+import cn.itcast.hotel.index.HotelDocConverter;
+import cn.itcast.hotel.index.HotelIndexManager;
 import cn.itcast.hotel.mapper.HotelMapper;
+import cn.itcast.hotel.pojo.GeoLocation;
 import cn.itcast.hotel.pojo.Hotel;
+import cn.itcast.hotel.pojo.HotelChangeEvent;
 import cn.itcast.hotel.pojo.HotelDoc;
+import cn.itcast.hotel.pojo.MapCluster;
+import cn.itcast.hotel.pojo.MapParams;
+import cn.itcast.hotel.pojo.MapResult;
 import cn.itcast.hotel.pojo.PageResult;
 import cn.itcast.hotel.pojo.RequestParams;
+import cn.itcast.hotel.pojo.SearchPage;
+import cn.itcast.hotel.search.AsyncSearchClient;
+import cn.itcast.hotel.search.HotelDocDecoder;
+import cn.itcast.hotel.search.HotelProjection;
+import cn.itcast.hotel.search.HotelQueryPlanner;
+import cn.itcast.hotel.search.SearchCursor;
+import cn.itcast.hotel.search.SearchMetrics;
 import cn.itcast.hotel.service.IHotelService;
+import cn.itcast.hotel.suggest.SuggestionIndex;
 import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import io.micrometer.core.instrument.Timer;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.Request;
 import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseListener;
 import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.geo.GeoBoundingBox;
 import org.elasticsearch.common.geo.GeoPoint;
-import org.elasticsearch.common.unit.DistanceUnit;
-import org.elasticsearch.common.xcontent.XContentType;
-import org.elasticsearch.index.query.BoolQueryBuilder;
-import org.elasticsearch.index.query.QueryBuilders;
-import org.elasticsearch.index.query.functionscore.FunctionScoreQueryBuilder;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.query.functionscore.ScoreFunctionBuilder;
-import org.elasticsearch.index.query.functionscore.ScoreFunctionBuilders;
+import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.search.SearchHit;
-import org.elasticsearch.search.SearchHits;
 import org.elasticsearch.search.aggregations.AggregationBuilders;
 import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.bucket.geogrid.GeoGrid;
+import org.elasticsearch.search.aggregations.bucket.geogrid.GeoTileUtils;
 import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.metrics.GeoCentroid;
+import org.elasticsearch.search.builder.PointInTimeBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.sort.SortBuilder;
 import org.elasticsearch.search.sort.SortBuilders;
 import org.elasticsearch.search.sort.SortOrder;
@@ -35,13 +69,22 @@ import org.elasticsearch.search.suggest.SuggestBuilder;
 import org.elasticsearch.search.suggest.SuggestBuilders;
 import org.elasticsearch.search.suggest.completion.CompletionSuggestion;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 public class HotelService extends ServiceImpl<HotelMapper, Hotel> implements IHotelService {
@@ -49,79 +92,329 @@ public class HotelService extends ServiceImpl<HotelMapper, Hotel> implements IHo
     @Autowired
     private RestHighLevelClient client;
 
+    @Autowired
+    private SearchResultCache searchResultCache;
+
+    @Autowired
+    private SearchProperties searchProperties;
+
+    @Autowired
+    private HotelQueryPlanner queryPlanner;
+
+    @Autowired
+    private AsyncSearchClient asyncClient;
+
+    @Autowired
+    private SearchMetrics searchMetrics;
+
+    @Autowired
+    private HotelIndexManager indexManager;
+
+    @Autowired
+    private FacetIndex facetIndex;
+
+    @Autowired
+    private SuggestionIndex suggestionIndex;
+
+    @Autowired
+    private MapProperties mapProperties;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Override
     public PageResult search(RequestParams params){
-        try {
-            //1. 准备request
-            SearchRequest request = new SearchRequest("hotel");
-            //2. 准备DSL
-            //2.1 query
-            // 构建BooleanQuery
-            buildBasicQuery(params,request);
-
-            //2.2 分页
-            int page = params.getPage();
-            int size = params.getSize();
-            request.source().from( (page -1) * size ).size(size);
-
-            //2.3 排序
-            String location = params.getLocation();
-            if (location != null && ! "".equals(location)){
-                request.source().sort(SortBuilders.geoDistanceSort("location",new GeoPoint(location))
-                        .order(SortOrder.ASC)
-                        .unit(DistanceUnit.KILOMETERS));
-            }
-            //3. 发送请求，得到响应
-            SearchResponse response = client.search(request, RequestOptions.DEFAULT);
-            //4. 解析响应
-            return handleResponse(response);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        return AsyncSearchClient.join(searchAsync(params));
+    }
+
+    @Override
+    public CompletableFuture<PageResult> searchAsync(RequestParams params){
+        return searchMetrics.recordAsync("search", () -> doSearchAsync(params));
+    }
+
+    private CompletableFuture<PageResult> doSearchAsync(RequestParams params){
+        // 游标分页每次都带着不同的游标，不缓存
+        if (params.getCursor() != null) {
+            return searchAfter(params);
+        }
+        // 先查本地缓存，缓存和ES都使用规范化后的条件
+        return searchResultCache.getAsync(params, key -> doSearch(key, null));
+    }
+
+    @Override
+    public CompletableFuture<SearchPage> searchPageAsync(RequestParams params){
+        return searchMetrics.recordAsync("searchPage", () -> doSearchPageAsync(params));
+    }
+
+    private CompletableFuture<SearchPage> doSearchPageAsync(RequestParams params){
+        // 游标翻页时两个请求并发发出
+        if (params.getCursor() != null) {
+            return searchAsync(params).thenCombine(filtersAsync(params), SearchPage::new);
+        }
+        // 没有关键字时过滤项用本地统计
+        Map<String, List<String>> local = facetIndex.filters(params);
+        if (local != null) {
+            return AsyncSearchClient.map(searchAsync(params), page -> new SearchPage(page, local));
+        }
+        // 列表和聚合放在一个请求里
+        CompletableFuture<Map<String, List<String>>> facets = new CompletableFuture<>();
+        AtomicBoolean loaded = new AtomicBoolean();
+        CompletableFuture<PageResult> page = searchResultCache.getAsync(params, key -> {
+            loaded.set(true);
+            return doSearch(key, facets);
+        });
+        // 列表命中缓存时没有发请求，过滤项单独查
+        return page.thenCombine(loaded.get() ? facets : filtersAsync(params), SearchPage::new);
+    }
+
+    /**
+     * @param facets 不为null时同一个请求里带上过滤项的聚合，结果通过它返回
+     */
+    private CompletableFuture<PageResult> doSearch(RequestParams params, CompletableFuture<Map<String, List<String>>> facets){
+        //1. 准备request
+        Timer.Sample build = searchMetrics.startBuild();
+        SearchRequest request = new SearchRequest(HotelConstants.INDEX_ALIAS);
+        //2. 准备DSL
+        //2.1 query
+        // 由查询计划决定是否算分
+        HotelQueryPlanner.Plan plan = queryPlanner.query(params, request, true);
+
+        //2.2 分页
+        int page = params.getPage();
+        int size = params.getSize();
+        request.source().from( (page -1) * size ).size(size);
+
+        //2.3 排序
+        int distanceIndex = queryPlanner.sort(params, plan, request, false);
+        // 只取卡片上展示的字段
+        HotelProjection.CARD.apply(request);
+        //2.4 聚合
+        if (facets != null) {
+            buildFilterAggregations(request);
+        }
+        //3. 发送请求
+        CompletableFuture<SearchResponse> response = searchMetrics.search("list", request, build);
+        if (facets != null) {
+            asyncClient.mapAsync(response, r -> searchMetrics.decode("filters", r, this::handleFilterAggregations))
+                    .whenComplete((value, e) -> {
+                        if (e != null) {
+                            facets.completeExceptionally(e);
+                        } else {
+                            facets.complete(value);
+                        }
+                    });
         }
+        //4. 解析响应
+        return asyncClient.mapAsync(response,
+                r -> searchMetrics.decode("list", r, x -> HotelDocDecoder.decodePage(x, distanceIndex)));
+    }
+
+    /**
+     * 游标分页：在point in time上用search_after翻页，翻到多深都和第一页的代价一样
+     */
+    private CompletableFuture<PageResult> searchAfter(RequestParams params){
+        SearchCursor cursor = params.getCursor().isEmpty() ? null : SearchCursor.decode(params.getCursor());
+        // 1.第一页时打开point in time，之后沿用游标里的
+        CompletableFuture<String> pitId = cursor == null
+                ? openPointInTime() : CompletableFuture.completedFuture(cursor.getPitId());
+        CompletableFuture<PageResult> result = pitId.thenCompose(id -> searchAfter(params, cursor, id));
+        if (cursor == null) {
+            // 第一页失败、超时或被取消时前端拿不到游标，立即关闭刚打开的point in time，不必等到过期
+            result.whenComplete((page, e) -> {
+                if (e != null) {
+                    pitId.thenAccept(this::closePointInTime);
+                }
+            });
+        }
+        return result;
+    }
+
+    private CompletableFuture<PageResult> searchAfter(RequestParams params, SearchCursor cursor, String pitId){
+        Timer.Sample build = searchMetrics.startBuild();
+        int size = params.getSize();
+        TimeValue keepAlive = TimeValue.timeValueMillis(searchProperties.getCursorKeepAlive().toMillis());
+        // 2.准备request，使用point in time时不能指定索引
+        SearchRequest request = new SearchRequest().source(new SearchSourceBuilder());
+        HotelQueryPlanner.Plan plan = queryPlanner.query(params, request, false);
+        request.source().size(size)
+                .pointInTimeBuilder(new PointInTimeBuilder(pitId).setKeepAlive(keepAlive));
+        int distanceIndex = queryPlanner.sort(params, plan, request, true);
+        HotelProjection.CARD.apply(request);
+        if (cursor != null) {
+            // 总条数第一页已经返回过了
+            request.source().searchAfter(cursor.getSortValues()).trackTotalHits(false);
+        }
+        // 3.发送请求
+        return asyncClient.mapAsync(searchMetrics.search("cursor", request, build), response -> {
+            // 4.解析响应，生成下一页的游标
+            PageResult result = searchMetrics.decode("cursor", response, r -> HotelDocDecoder.decodePage(r, distanceIndex));
+            SearchHit[] hits = response.getHits().getHits();
+            String nextPitId = response.pointInTimeId() != null ? response.pointInTimeId() : pitId;
+            if (hits.length < size) {
+                closePointInTime(nextPitId);
+            } else {
+                result.setNextCursor(new SearchCursor(nextPitId, hits[hits.length - 1].getSortValues()).encode());
+            }
+            return result;
+        });
+    }
+
+    private CompletableFuture<String> openPointInTime() {
+        Request request = new Request("POST", "/" + HotelConstants.INDEX_ALIAS + "/_pit");
+        request.addParameter("keep_alive", searchProperties.getCursorKeepAlive().toMillis() + "ms");
+        return AsyncSearchClient.map(asyncClient.perform(request), response -> {
+            try {
+                return JSON.parseObject(EntityUtils.toString(response.getEntity())).getString("id");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void closePointInTime(String pitId) {
+        Request request = new Request("DELETE", "/_pit");
+        JSONObject body = new JSONObject();
+        body.put("id", pitId);
+        request.setJsonEntity(body.toJSONString());
+        // 关闭失败也没关系，到期后ES会自动释放
+        client.getLowLevelClient().performRequestAsync(request, new ResponseListener() {
+            @Override
+            public void onSuccess(Response response) {
+            }
+
+            @Override
+            public void onFailure(Exception exception) {
+            }
+        });
     }
 
     @Override
     public Map<String, List<String>> filters(RequestParams params) {
-        try {
-            SearchRequest request = new SearchRequest("hotel");
-            buildBasicQuery(params,request);
-            request.source().size(0);
-            buildAggregation(request,"brandAgg","brand",100);
-            buildAggregation(request,"cityAgg","city",100);
-            buildAggregation(request,"starNameAgg","starName",100);
-            SearchResponse response = client.search(request, RequestOptions.DEFAULT);
-            Map<String,List<String>> result = new HashMap<>();
-            //根据名称获取品牌的结果
-            Aggregations aggregations = response.getAggregations();
-            List<String> brandList = getAggByName(aggregations,"brandAgg");
-            List<String> cityList = getAggByName(aggregations,"cityAgg");
-            List<String> starNameList = getAggByName(aggregations,"starNameAgg");
-            result.put("brand",brandList);
-            result.put("city",cityList);
-            result.put("starName",starNameList);
+        return AsyncSearchClient.join(filtersAsync(params));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, List<String>>> filtersAsync(RequestParams params) {
+        return searchMetrics.recordAsync("filters", () -> doFiltersAsync(params));
+    }
+
+    private CompletableFuture<Map<String, List<String>>> doFiltersAsync(RequestParams params) {
+        // 没有关键字时直接用本地统计
+        Map<String, List<String>> local = facetIndex.filters(params);
+        if (local != null) {
+            return CompletableFuture.completedFuture(local);
+        }
+        Timer.Sample build = searchMetrics.startBuild();
+        SearchRequest request = new SearchRequest(HotelConstants.INDEX_ALIAS);
+        // 聚合不需要算分
+        queryPlanner.filterQuery(params, request);
+        request.source().size(0);
+        buildFilterAggregations(request);
+        return asyncClient.mapAsync(searchMetrics.search("filters", request, build),
+                response -> searchMetrics.decode("filters", response, this::handleFilterAggregations));
+    }
+
+    private void buildFilterAggregations(SearchRequest request) {
+        buildAggregation(request,"brandAgg","brand",100);
+        buildAggregation(request,"cityAgg","city",100);
+        buildAggregation(request,"starNameAgg","starName",100);
+    }
+
+    private Map<String, List<String>> handleFilterAggregations(SearchResponse response) {
+        Map<String,List<String>> result = new HashMap<>();
+        //根据名称获取品牌的结果
+        Aggregations aggregations = response.getAggregations();
+        List<String> brandList = getAggByName(aggregations,"brandAgg");
+        List<String> cityList = getAggByName(aggregations,"cityAgg");
+        List<String> starNameList = getAggByName(aggregations,"starNameAgg");
+        result.put("brand",brandList);
+        result.put("city",cityList);
+        result.put("starName",starNameList);
+
+        return result;
+    }
 
+    @Override
+    public CompletableFuture<MapResult> mapAsync(MapParams params) {
+        return searchMetrics.recordAsync("map", () -> doMapAsync(params));
+    }
+
+    private CompletableFuture<MapResult> doMapAsync(MapParams params) {
+        Timer.Sample build = searchMetrics.startBuild();
+        SearchRequest request = new SearchRequest(HotelConstants.INDEX_ALIAS);
+        // 1.视口范围和过滤条件，不算分
+        queryPlanner.mapQuery(params, request);
+        request.source().trackTotalHits(true);
+        boolean markers = params.getZoom() >= mapProperties.getMarkerZoom();
+        if (markers) {
+            // 2.放大后返回单个酒店，只取标记需要的字段
+            request.source().size(mapProperties.getMaxMarkers())
+                    .sort(SortBuilders.fieldSort("score").order(SortOrder.DESC));
+            HotelProjection.MARKER.apply(request);
+        } else {
+            // 2.按地图瓦片网格聚合，每个网格返回数量和中心点，不返回文档
+            int precision = Math.min(params.getZoom() + mapProperties.getPrecisionOffset(), GeoTileUtils.MAX_ZOOM);
+            GeoLocation topLeft = params.getTopLeft();
+            GeoLocation bottomRight = params.getBottomRight();
+            request.source().size(0).aggregation(AggregationBuilders.geotileGrid("clusters")
+                    .field("location")
+                    .precision(precision)
+                    .size(mapProperties.getMaxClusters())
+                    .setGeoBoundingBox(new GeoBoundingBox(new GeoPoint(topLeft.getLat(), topLeft.getLon()),
+                            new GeoPoint(bottomRight.getLat(), bottomRight.getLon())))
+                    .subAggregation(AggregationBuilders.geoCentroid("center").field("location")));
+        }
+        // 3.发送请求，解析结果
+        return asyncClient.mapAsync(searchMetrics.search("map", request, build),
+                response -> searchMetrics.decode("map", response, r -> handleMapResponse(r, markers)));
+    }
+
+    private MapResult handleMapResponse(SearchResponse response, boolean markers) {
+        MapResult result = new MapResult();
+        result.setTotal(response.getHits().getTotalHits().value);
+        if (markers) {
+            result.setMarkers(HotelDocDecoder.decodePage(response, -1).getHotels());
             return result;
-        } catch (IOException e) {
-            throw new RuntimeException(e);
         }
+        GeoGrid grid = response.getAggregations().get("clusters");
+        List<MapCluster> clusters = new ArrayList<>(grid.getBuckets().size());
+        for (GeoGrid.Bucket bucket : grid.getBuckets()) {
+            GeoCentroid center = bucket.getAggregations().get("center");
+            clusters.add(new MapCluster(bucket.getKeyAsString(), bucket.getDocCount(),
+                    new GeoLocation(center.centroid().getLat(), center.centroid().getLon())));
+        }
+        result.setClusters(clusters);
+        return result;
     }
 
     @Override
     public List<String> getSuggestions(String prefix) {
-        try {
-            // 1. 准备request
-            SearchRequest request = new SearchRequest("hotel");
-            //2。准备DSL
-            request.source().suggest(new SuggestBuilder()
-                    .addSuggestion("suggestion",
-                            SuggestBuilders.completionSuggestion("suggestion")
-                                    .prefix(prefix)
-                                    .skipDuplicates(true)
-                                    .size(10)));
-            //3.发起请求
-            SearchResponse response = client.search(request, RequestOptions.DEFAULT);
-            //4.解析结果
-            Suggest suggest = response.getSuggest();
+        return searchMetrics.record("getSuggestions", () -> doGetSuggestions(prefix));
+    }
+
+    private List<String> doGetSuggestions(String prefix) {
+        // 本地前缀树已加载时直接返回
+        List<String> local = suggestionIndex.suggest(prefix);
+        if (local != null) {
+            return local;
+        }
+        // 1. 准备request
+        Timer.Sample build = searchMetrics.startBuild();
+        SearchRequest request = new SearchRequest(HotelConstants.INDEX_ALIAS);
+        //2。准备DSL
+        request.source().suggest(new SuggestBuilder()
+                .addSuggestion("suggestion",
+                        SuggestBuilders.completionSuggestion("suggestion")
+                                .prefix(prefix)
+                                .skipDuplicates(true)
+                                .size(10)));
+        // 只用补全的文本，不需要文档的source
+        request.source().fetchSource(false);
+        //3.发起请求
+        SearchResponse response = AsyncSearchClient.join(searchMetrics.search("suggestion", request, build));
+        //4.解析结果
+        return searchMetrics.decode("suggestion", response, r -> {
+            Suggest suggest = r.getSuggest();
             //根据补全查询名称，获取补全结果
             CompletionSuggestion suggestions
                     = suggest.getSuggestion("suggestion");
@@ -134,40 +427,203 @@ public class HotelService extends ServiceImpl<HotelMapper, Hotel> implements IHo
                 list.add(text);
             }
             return list;
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        });
     }
 
     @Override
     public void insertById(Long id) {
+        searchMetrics.record("insertById", () -> doInsertById(id));
+    }
+
+    private void doInsertById(Long id) {
         try {
             // 0.根据id查询酒店数据
             Hotel hotel = getById(id);
+            if (hotel == null) {
+                // 消息重复投递或晚于删除到达时，数据库中已经没有这家酒店，和批量同步一样按删除处理。
+                // 之后重新创建的行修改时间晚于现在，不受这次删除影响
+                deleteDoc(id, HotelDocConverter.version(getBaseMapper().now()));
+                return;
+            }
             HotelDoc hotelDoc = new HotelDoc(hotel);
-            // 1. 准备request
-            IndexRequest request = new IndexRequest("hotel").id(id.toString());
-            // 2。准备DSL
-            request.source(JSON.toJSONString(hotelDoc), XContentType.JSON);
-            // 3.发起请求
-            client.index(request,RequestOptions.DEFAULT);
+            HotelDoc before = getDocs(Collections.singleton(id)).get(id);
+            byte[] source = JSON.toJSONBytes(hotelDoc);
+            boolean written = false;
+            for (String index : indexManager.writeIndices()) {
+                // 1. 准备request，修改时间作为版本号
+                IndexRequest request = HotelDocConverter.indexRequest(index, hotel, source);
+                // 2.发起请求，版本冲突说明索引中已经是更新的数据
+                written |= ignoreConflict(() -> client.index(request, RequestOptions.DEFAULT));
+            }
+            // 3.通知缓存等本地数据
+            if (written) {
+                eventPublisher.publishEvent(new HotelChangeEvent(id, before, hotelDoc));
+            }
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
     @Override
-    public void deleteById(Long id) {
+    public void deleteById(Long id, LocalDateTime deleteTime) {
+        if (deleteTime == null) {
+            searchMetrics.record("deleteById", () -> doInsertById(id));
+        } else {
+            searchMetrics.record("deleteById", () -> deleteDoc(id, HotelDocConverter.version(deleteTime)));
+        }
+    }
+
+    private void deleteDoc(Long id, long version) {
+        try {
+            HotelDoc before = getDocs(Collections.singleton(id)).get(id);
+            boolean written = false;
+            for (String index : indexManager.writeIndices()) {
+                // 1. 准备request，删除时间作为版本号，索引中已经是之后重新创建的文档时返回版本冲突
+                DeleteRequest request = HotelDocConverter.deleteRequest(index, id, version);
+                // 2.发起请求
+                written |= ignoreConflict(() -> client.delete(request, RequestOptions.DEFAULT));
+            }
+            // 3.通知缓存等本地数据
+            if (written) {
+                eventPublisher.publishEvent(new HotelChangeEvent(id, before, null));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public Set<Long> bulkSync(Collection<Long> ids, Map<Long, LocalDateTime> deleteTimes) {
+        return searchMetrics.record("bulkSync", () -> doBulkSync(ids, deleteTimes));
+    }
+
+    private Set<Long> doBulkSync(Collection<Long> ids, Map<Long, LocalDateTime> deleteTimes) {
+        // 一次查询出所有需要新增或修改的酒店
+        List<Hotel> hotels = ids.isEmpty() ? Collections.emptyList() : listByIds(ids);
+        // 数据库中已经不存在的酒店，按删除处理
+        Set<Long> removedIds = new HashSet<>(ids);
+        for (Hotel hotel : hotels) {
+            removedIds.remove(hotel.getId());
+        }
+        return bulkWrite(hotels, removedIds, deleteTimes);
+    }
+
+    @Override
+    public Set<Long> bulkUpsert(Collection<Hotel> hotels) {
+        return searchMetrics.record("bulkUpsert",
+                () -> bulkWrite(hotels, Collections.emptySet(), Collections.emptyMap()));
+    }
+
+    /**
+     * 一次bulk请求写入所有索引
+     * @param hotels      新增或修改后的酒店
+     * @param deleteIds   删除的酒店id
+     * @param deleteTimes 已知的删除时间，没有的用数据库的当前时间
+     */
+    private Set<Long> bulkWrite(Collection<Hotel> hotels, Collection<Long> deleteIds,
+                                Map<Long, LocalDateTime> deleteTimes) {
         try {
             // 1. 准备request
-            DeleteRequest request = new DeleteRequest("hotel",id.toString());
-            //3.发起请求
-            client.delete(request,RequestOptions.DEFAULT);
+            BulkRequest request = new BulkRequest();
+            List<String> indices = indexManager.writeIndices();
+            Map<Long, HotelDoc> afterDocs = new HashMap<>();
+            // 2. 转换新增或修改的酒店，修改时间作为版本号
+            List<Hotel> rows = new ArrayList<>(hotels);
+            List<HotelDoc> hotelDocs = HotelDocConverter.convert(rows);
+            for (int i = 0; i < rows.size(); i++) {
+                HotelDoc hotelDoc = hotelDocs.get(i);
+                afterDocs.put(hotelDoc.getId(), hotelDoc);
+                byte[] source = JSON.toJSONBytes(hotelDoc);
+                for (String index : indices) {
+                    request.add(HotelDocConverter.indexRequest(index, rows.get(i), source));
+                }
+            }
+            // 3. 删除的酒店，删除时间作为版本号，不知道删除时间的用数据库的当前时间
+            LocalDateTime now = null;
+            for (Long id : deleteIds) {
+                LocalDateTime deleteTime = deleteTimes.get(id);
+                if (deleteTime == null) {
+                    now = now != null ? now : getBaseMapper().now();
+                    deleteTime = now;
+                }
+                long version = HotelDocConverter.version(deleteTime);
+                for (String index : indices) {
+                    request.add(HotelDocConverter.deleteRequest(index, id, version));
+                }
+            }
+            if (request.numberOfActions() == 0) {
+                return Collections.emptySet();
+            }
+            Set<Long> allIds = new HashSet<>(afterDocs.keySet());
+            allIds.addAll(deleteIds);
+            Map<Long, HotelDoc> beforeDocs = getDocs(allIds);
+            // 4.发起请求
+            BulkResponse response = client.bulk(request, RequestOptions.DEFAULT);
+            // 5.收集失败的条目，成功的通知缓存等本地数据
+            // 版本冲突说明索引中已经是更新的数据，不算失败，也不通知
+            Set<Long> failed = new HashSet<>();
+            Set<Long> skipped = new HashSet<>();
+            if (response.hasFailures()) {
+                for (BulkItemResponse item : response.getItems()) {
+                    if (HotelDocConverter.isVersionConflict(item)) {
+                        skipped.add(Long.valueOf(item.getId()));
+                    } else if (item.isFailed()) {
+                        failed.add(Long.valueOf(item.getId()));
+                    }
+                }
+            }
+            for (Long id : allIds) {
+                if (!failed.contains(id) && !skipped.contains(id)) {
+                    eventPublisher.publishEvent(new HotelChangeEvent(id, beforeDocs.get(id), afterDocs.get(id)));
+                }
+            }
+            return failed;
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * 执行一次写入，版本冲突时返回false
+     */
+    private boolean ignoreConflict(IOAction action) throws IOException {
+        try {
+            action.run();
+            return true;
+        } catch (ElasticsearchStatusException e) {
+            if (e.status() != RestStatus.CONFLICT) {
+                throw e;
+            }
+            return false;
+        }
+    }
+
+    private interface IOAction {
+        void run() throws IOException;
+    }
+
+    /**
+     * 批量查询索引库中当前的文档，用来得到变化前的数据
+     */
+    private Map<Long, HotelDoc> getDocs(Collection<Long> ids) throws IOException {
+        Map<Long, HotelDoc> docs = new HashMap<>();
+        if (ids.isEmpty()) {
+            return docs;
+        }
+        MultiGetRequest request = new MultiGetRequest();
+        for (Long id : ids) {
+            request.add(HotelConstants.INDEX_ALIAS, id.toString());
+        }
+        MultiGetResponse response = client.mget(request, RequestOptions.DEFAULT);
+        for (MultiGetItemResponse item : response.getResponses()) {
+            if (!item.isFailed() && item.getResponse().isExists()) {
+                HotelDoc hotelDoc = HotelDocDecoder.decode(item.getResponse().getSourceAsBytesRef());
+                docs.put(Long.valueOf(item.getId()), hotelDoc);
+            }
+        }
+        return docs;
+    }
+
     private List<String> getAggByName(Aggregations aggregations,String aggName) {
         Terms brandTerms = aggregations.get(aggName);
         List<? extends Terms.Bucket> buckets = brandTerms.getBuckets();
@@ -185,81 +641,4 @@ public class HotelService extends ServiceImpl<HotelMapper, Hotel> implements IHo
                 .field(fieldName)
                 .size(size));
     }
-
-    private void buildBasicQuery(RequestParams params, SearchRequest request) {
-        // 1。原始查询
-        BoolQueryBuilder boolQuery = QueryBuilders.boolQuery();
-        // 关键字搜索
-        String key = params.getKey();
-        String city = params.getCity();
-        String brand = params.getBrand();
-        String starName = params.getStarName();
-        Integer minPrice = params.getMinPrice();
-        Integer maxPrice = params.getMaxPrice();
-        if (key == null || "".equals(key)){
-            boolQuery.must(QueryBuilders.matchAllQuery());
-        }else {
-            boolQuery.must(
-                    QueryBuilders.matchQuery("all",key));
-        }
-        // 城市条件
-        if(city != null && !"".equals(city)){
-            boolQuery.filter(QueryBuilders.termQuery("city",city));
-        }
-        // 品牌条件
-        if(brand != null && !"".equals(brand)){
-            boolQuery.filter(QueryBuilders.termQuery("brand",brand));
-        }
-        // 星级条件
-        if(starName != null && !"".equals(starName)){
-            boolQuery.filter(QueryBuilders.termQuery("starName",starName));
-        }
-        // 价格
-        if (maxPrice != null && minPrice != null){
-            boolQuery.filter(QueryBuilders.rangeQuery("price").gte(minPrice).lte(maxPrice));
-        }
-
-        //2.算分控制
-        FunctionScoreQueryBuilder functionScoreQueryBuilder =
-                QueryBuilders.functionScoreQuery(
-                        // 原始查询
-                        boolQuery,
-                        // FunctionScore 的数组
-                        new FunctionScoreQueryBuilder.FilterFunctionBuilder[]{
-                                // 其中一个元素
-                            new FunctionScoreQueryBuilder.FilterFunctionBuilder(
-                                    // 过滤条件
-                                    QueryBuilders.termQuery("isAD",true),
-                                    // 算分函数
-                                    ScoreFunctionBuilders.weightFactorFunction(10)
-                            )
-        });
-        request.source().query(functionScoreQueryBuilder);
-    }
-
-    private PageResult handleResponse(SearchResponse response) {
-        //4. 解析响应
-        SearchHits searchHits = response.getHits();
-        //4.1. 获取总条数
-        long total = searchHits.getTotalHits().value;
-        //4.2. 文档数组
-        SearchHit[] hits = searchHits.getHits();
-        //4.3. 遍历
-        List<HotelDoc> hotels = new ArrayList<>();
-        for (SearchHit hit: hits) {
-            //获取文档source
-            String json = hit.getSourceAsString();
-            // 反序列化
-            HotelDoc hotelDoc = JSON.parseObject(json, HotelDoc.class);
-            // 获取排序值
-            Object[] sortValues = hit.getSortValues();
-            if (sortValues.length>0){
-                Object sortValue = sortValues[0];
-                hotelDoc.setDistance(sortValue);
-            }
-            hotels.add(hotelDoc);
-        }
-        //4.4 封装返回
-        return new PageResult(total,hotels);
-    }
 }
@@ -0,0 +1,69 @@
+package cn.itcast.hotel.suggest;
+
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinVCharType;
+import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 生成与索引库中拼音分词器（keep_original、keep_joined_full_pinyin、首字母）一致的补全词条
+ */
+public class PinyinUtils {
+
+    private static final HanyuPinyinOutputFormat FORMAT = new HanyuPinyinOutputFormat();
+
+    static {
+        FORMAT.setCaseType(HanyuPinyinCaseType.LOWERCASE);
+        FORMAT.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+        FORMAT.setVCharType(HanyuPinyinVCharType.WITH_V);
+    }
+
+    private PinyinUtils() {
+    }
+
+    /**
+     * @param text 补全的原文，例如 "如家"
+     * @return 小写的原文、全拼和首字母，例如 ["如家", "rujia", "rj"]
+     */
+    public static Set<String> terms(String text) {
+        Set<String> terms = new LinkedHashSet<>(3);
+        StringBuilder original = new StringBuilder(text.length());
+        StringBuilder full = new StringBuilder(text.length() * 4);
+        StringBuilder first = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (Character.isWhitespace(c)) {
+                continue;
+            }
+            original.append(c);
+            String pinyin = toPinyin(c);
+            if (pinyin == null) {
+                full.append(c);
+                first.append(c);
+            } else {
+                full.append(pinyin);
+                first.append(pinyin.charAt(0));
+            }
+        }
+        terms.add(original.toString());
+        terms.add(full.toString());
+        terms.add(first.toString());
+        terms.remove("");
+        return terms;
+    }
+
+    private static String toPinyin(char c) {
+        try {
+            // 多音字取第一个读音
+            String[] pinyins = PinyinHelper.toHanyuPinyinStringArray(c, FORMAT);
+            return pinyins == null || pinyins.length == 0 ? null : pinyins[0];
+        } catch (BadHanyuPinyinOutputFormatCombination e) {
+            return null;
+        }
+    }
+}
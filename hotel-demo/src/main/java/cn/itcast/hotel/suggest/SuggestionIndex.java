@@ -0,0 +1,140 @@
+package cn.itcast.hotel.suggest;
+
+import cn.itcast.hotel.config.SuggestionProperties;
+import cn.itcast.hotel.mapper.HotelMapper;
+import cn.itcast.hotel.pojo.Hotel;
+import cn.itcast.hotel.pojo.HotelChangeEvent;
+import cn.itcast.hotel.pojo.HotelDoc;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 本地自动补全索引，补全内容与 HotelDoc 的 suggestion 字段一致。
+ * 启动时从tb_hotel扫描建立，之后根据酒店变化事件增量维护。
+ */
+@Slf4j
+@Component
+public class SuggestionIndex {
+
+    @Autowired
+    private HotelMapper hotelMapper;
+
+    @Autowired
+    private SuggestionProperties properties;
+
+    private volatile SuggestionTrie trie;
+    /**
+     * 酒店id -> 它贡献的补全结果，修改和删除时用来扣减旧的权重
+     */
+    private Map<Long, List<String>> inputs = new HashMap<>();
+    /**
+     * 加载期间收到的变化事件，加载完成后重放
+     */
+    private List<HotelChangeEvent> pending;
+
+    /**
+     * 应用启动后异步扫描tb_hotel建立前缀树，失败时保持未加载状态，补全继续走ES
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        synchronized (this) {
+            pending = new ArrayList<>();
+        }
+        try {
+            long start = System.currentTimeMillis();
+            SuggestionTrie newTrie = new SuggestionTrie(properties.getSize());
+            Map<Long, List<String>> newInputs = new HashMap<>();
+            SuggestionTokenizer tokenizer = new SuggestionTokenizer();
+            long lastId = 0;
+            while (true) {
+                List<Hotel> hotels = hotelMapper.selectList(new LambdaQueryWrapper<Hotel>()
+                        .select(Hotel::getId, Hotel::getBrand, Hotel::getBusiness)
+                        .gt(Hotel::getId, lastId)
+                        .orderByAsc(Hotel::getId)
+                        .last("limit " + properties.getScanSize()));
+                for (Hotel hotel : hotels) {
+                    put(newTrie, newInputs, hotel.getId(), tokenizer.tokenize(hotel.getBrand(), hotel.getBusiness()));
+                }
+                if (hotels.size() < properties.getScanSize()) {
+                    break;
+                }
+                lastId = hotels.get(hotels.size() - 1).getId();
+            }
+            synchronized (this) {
+                inputs = newInputs;
+                trie = newTrie;
+                pending.forEach(this::apply);
+                pending = null;
+            }
+            log.info("自动补全索引加载完成，酒店数：{}，补全词数：{}，耗时：{}ms",
+                    newInputs.size(), newTrie.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            synchronized (this) {
+                pending = null;
+            }
+            log.warn("自动补全索引加载失败，自动补全将查询ES", e);
+        }
+    }
+
+    public boolean isLoaded() {
+        return trie != null;
+    }
+
+    /**
+     * @return 补全结果；尚未加载时返回null，由调用方查询ES
+     */
+    public List<String> suggest(String prefix) {
+        SuggestionTrie current = trie;
+        if (current == null) {
+            return null;
+        }
+        return current.top(prefix, properties.getSize());
+    }
+
+    @EventListener
+    public synchronized void onHotelChanged(HotelChangeEvent event) {
+        if (pending != null) {
+            pending.add(event);
+        }
+        apply(event);
+    }
+
+    private void apply(HotelChangeEvent event) {
+        if (trie == null) {
+            return;
+        }
+        HotelDoc after = event.getAfter();
+        put(trie, inputs, event.getId(), after == null ? null : after.getSuggestion());
+    }
+
+    private static void put(SuggestionTrie trie, Map<Long, List<String>> inputs, Long id, List<String> suggestion) {
+        List<String> old = inputs.remove(id);
+        if (old != null) {
+            old.forEach(trie::remove);
+        }
+        if (suggestion == null) {
+            return;
+        }
+        // 同一个酒店的重复词条只计一次，与skipDuplicates一致
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(suggestion));
+        distinct.removeAll(Collections.singleton(null));
+        distinct.forEach(trie::add);
+        inputs.put(id, distinct);
+    }
+}
@@ -0,0 +1,84 @@
+package cn.itcast.hotel.suggest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 生成 HotelDoc 的 suggestion 字段：品牌，加上商圈按 , / | 、 拆开的各个部分。
+ * 一次遍历、不用正则，去掉首尾空白、空词和重复词。
+ * 词的位置记在可复用的数组里，只为最终结果分配内存；实例不是线程安全的，批量转换时每个线程用一个
+ */
+public class SuggestionTokenizer {
+
+    /**
+     * 商圈中各个词的起止位置：[start0, end0, start1, end1, ...]
+     */
+    private int[] bounds = new int[16];
+
+    /**
+     * @param brand    品牌，例如 "如家"
+     * @param business 商圈，例如 "江湾、五角场商业区"
+     * @return 例如 ["如家", "江湾", "五角场商业区"]
+     */
+    public List<String> tokenize(String brand, String business) {
+        String first = brand == null ? null : brand.trim();
+        boolean hasBrand = first != null && !first.isEmpty();
+        int count = 0;
+        if (business != null) {
+            int length = business.length();
+            int start = 0;
+            for (int i = 0; i <= length; i++) {
+                if (i < length && !isDelimiter(business.charAt(i))) {
+                    continue;
+                }
+                int s = start;
+                int e = i;
+                start = i + 1;
+                while (s < e && Character.isWhitespace(business.charAt(s))) {
+                    s++;
+                }
+                while (e > s && Character.isWhitespace(business.charAt(e - 1))) {
+                    e--;
+                }
+                if (s == e || hasBrand && regionEquals(first, business, s, e) || seen(business, count, s, e)) {
+                    continue;
+                }
+                if (bounds.length < (count + 1) * 2) {
+                    bounds = Arrays.copyOf(bounds, bounds.length * 2);
+                }
+                bounds[count * 2] = s;
+                bounds[count * 2 + 1] = e;
+                count++;
+            }
+        }
+        List<String> tokens = new ArrayList<>(count + 1);
+        if (hasBrand) {
+            tokens.add(first);
+        }
+        for (int i = 0; i < count; i++) {
+            // 没有分隔符时就是business本身，不会复制
+            tokens.add(business.substring(bounds[i * 2], bounds[i * 2 + 1]));
+        }
+        return tokens;
+    }
+
+    private static boolean isDelimiter(char c) {
+        return c == ',' || c == '/' || c == '|' || c == '、';
+    }
+
+    private boolean seen(String business, int count, int start, int end) {
+        for (int i = 0; i < count; i++) {
+            int s = bounds[i * 2];
+            int e = bounds[i * 2 + 1];
+            if (e - s == end - start && business.regionMatches(s, business, start, end - start)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean regionEquals(String text, String business, int start, int end) {
+        return text.length() == end - start && business.regionMatches(start, text, 0, text.length());
+    }
+}
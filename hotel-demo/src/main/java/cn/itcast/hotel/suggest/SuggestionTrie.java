@@ -0,0 +1,192 @@
+package cn.itcast.hotel.suggest;
+
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 自动补全的前缀树。
+ * 每个补全结果（例如 "如家"）以原文、全拼、首字母三个词条挂在树上，权重是包含它的酒店数。
+ * 每个节点缓存自己子树中权重最高的结果，查询时只需沿前缀走到节点；结果变化时只清除它的词条路径上的缓存。
+ */
+public class SuggestionTrie {
+
+    private final int cacheSize;
+    private final Node root = new Node();
+    /**
+     * 补全结果 -> 权重
+     */
+    private final Map<String, Integer> weights = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * @param cacheSize 每个节点缓存的结果数，通常等于查询返回的条数
+     */
+    public SuggestionTrie(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * 增加一个补全结果的权重，不存在时插入
+     */
+    public void add(String output) {
+        lock.writeLock().lock();
+        try {
+            Integer weight = weights.merge(output, 1, Integer::sum);
+            for (String term : PinyinUtils.terms(output)) {
+                Node node = root;
+                node.top = null;
+                for (int i = 0; i < term.length(); i++) {
+                    node = node.children.computeIfAbsent(term.charAt(i), c -> new Node());
+                    node.top = null;
+                }
+                if (weight == 1) {
+                    node.outputs.add(output);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 减少一个补全结果的权重，减到0时从树上移除，并删掉路径上不再有结果的节点
+     */
+    public void remove(String output) {
+        lock.writeLock().lock();
+        try {
+            Integer weight = weights.get(output);
+            if (weight == null) {
+                return;
+            }
+            if (weight > 1) {
+                weights.put(output, weight - 1);
+            } else {
+                weights.remove(output);
+            }
+            for (String term : PinyinUtils.terms(output)) {
+                Node[] path = new Node[term.length() + 1];
+                Node node = root;
+                node.top = null;
+                path[0] = node;
+                int depth = 0;
+                while (depth < term.length() && node != null) {
+                    node = node.children.get(term.charAt(depth));
+                    if (node != null) {
+                        node.top = null;
+                        path[++depth] = node;
+                    }
+                }
+                if (node == null || weight > 1) {
+                    continue;
+                }
+                node.outputs.remove(output);
+                // 从叶子往上删除空节点，遇到还有结果或子节点的节点停止
+                for (int i = depth; i > 0 && path[i].outputs.isEmpty() && path[i].children.isEmpty(); i--) {
+                    path[i - 1].children.remove(term.charAt(i - 1));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查询前缀对应的补全结果，按权重降序，权重相同按文本升序，结果不重复
+     */
+    public List<String> top(String prefix, int size) {
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            String key = prefix.toLowerCase();
+            for (int i = 0; i < key.length() && node != null; i++) {
+                char c = key.charAt(i);
+                if (!Character.isWhitespace(c)) {
+                    node = node.children.get(c);
+                }
+            }
+            if (node == null) {
+                return Collections.emptyList();
+            }
+            if (size > cacheSize) {
+                return collect(node, size);
+            }
+            List<String> top = node.top;
+            if (top == null) {
+                // 读锁下可能有多个线程同时计算，结果相同，不影响正确性
+                top = collect(node, cacheSize);
+                node.top = top;
+            }
+            return top.size() > size ? top.subList(0, size) : top;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return weights.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 树上的节点数，不含根节点
+     */
+    public int nodeCount() {
+        lock.readLock().lock();
+        try {
+            int count = 0;
+            Deque<Node> stack = new ArrayDeque<>(root.children.values());
+            while (!stack.isEmpty()) {
+                Node node = stack.pop();
+                count++;
+                node.children.values().forEach(stack::push);
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<String> collect(Node start, int size) {
+        Set<String> outputs = new HashSet<>();
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(start);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            outputs.addAll(node.outputs);
+            for (Node child : node.children.values()) {
+                stack.push(child);
+            }
+        }
+        List<String> list = new ArrayList<>(outputs);
+        list.sort((a, b) -> {
+            int diff = weights.get(b) - weights.get(a);
+            return diff != 0 ? diff : a.compareTo(b);
+        });
+        return Collections.unmodifiableList(list.size() > size ? new ArrayList<>(list.subList(0, size)) : list);
+    }
+
+    private static class Node {
+        private final Map<Character, Node> children = new HashMap<>(4);
+        /**
+         * 词条在此结束的补全结果
+         */
+        private final Set<String> outputs = new HashSet<>(2);
+        /**
+         * 子树中权重最高的结果，null表示需要重新计算
+         */
+        private volatile List<String> top;
+    }
+}
@@ -0,0 +1,5 @@
+-- 修改时间列，任何途径修改行时由MySQL自动更新。增量同步（hotel.cdc.enabled）按它读取修改过的行，
+-- 写入ES时也用它作为文档的外部版本号
+ALTER TABLE `tb_hotel`
+  ADD COLUMN `update_time` datetime(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3) COMMENT '最后修改时间',
+  ADD KEY `idx_update_time_id` (`update_time`, `id`);
@@ -0,0 +1,87 @@
+package cn.itcast.hotel;
+
+import cn.itcast.hotel.config.SearchProperties;
+import cn.itcast.hotel.search.AsyncSearchClient;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpHost;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AsyncSearchClientTest {
+
+    private HttpServer server;
+    private RestHighLevelClient client;
+    private AsyncSearchClient asyncClient;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // 一个永远不响应的ES
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+        server.start();
+        client = new RestHighLevelClient(RestClient.builder(
+                new HttpHost("127.0.0.1", server.getAddress().getPort())));
+        SearchProperties properties = new SearchProperties();
+        properties.setTimeout(Duration.ofMillis(200));
+        asyncClient = new AsyncSearchClient();
+        ReflectionTestUtils.setField(asyncClient, "client", client);
+        ReflectionTestUtils.setField(asyncClient, "properties", properties);
+        asyncClient.init();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        release.countDown();
+        asyncClient.destroy();
+        client.close();
+        server.stop(0);
+    }
+
+    @Test
+    void testTimeout() {
+        CompletableFuture<SearchResponse> future = asyncClient.search(new SearchRequest("hotel"));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof TimeoutException);
+    }
+
+    @Test
+    void testCancelMappedFuture() {
+        CompletableFuture<SearchResponse> source = asyncClient.search(new SearchRequest("hotel"));
+        CompletableFuture<Long> mapped = AsyncSearchClient.map(source, response -> response.getTook().millis());
+        mapped.cancel(false);
+        assertTrue(source.isCancelled());
+    }
+
+    @Test
+    void testMapAsyncRunsOnDecodeThread() {
+        CompletableFuture<String> source = CompletableFuture.completedFuture("response");
+        String thread = asyncClient.mapAsync(source, response -> Thread.currentThread().getName()).join();
+        assertTrue(thread.startsWith("es-search-decode-"));
+    }
+}
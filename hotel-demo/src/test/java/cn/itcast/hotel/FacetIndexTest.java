@@ -0,0 +1,106 @@
+package cn.itcast.hotel;
+
+import cn.itcast.hotel.config.FacetProperties;
+import cn.itcast.hotel.facet.FacetIndex;
+import cn.itcast.hotel.mapper.HotelMapper;
+import cn.itcast.hotel.pojo.Hotel;
+import cn.itcast.hotel.pojo.HotelChangeEvent;
+import cn.itcast.hotel.pojo.HotelDoc;
+import cn.itcast.hotel.pojo.RequestParams;
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FacetIndexTest {
+
+    private FacetIndex facetIndex;
+
+    /**
+     * 没有启动Spring时，LambdaQueryWrapper需要的实体信息要手动初始化
+     */
+    @BeforeAll
+    static void initTableInfo() {
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), Hotel.class);
+    }
+
+    @BeforeEach
+    void setUp() {
+        HotelMapper hotelMapper = mock(HotelMapper.class);
+        when(hotelMapper.selectList(any())).thenReturn(Arrays.asList(
+                hotel(1L, "上海", "如家", "二钻", 200),
+                hotel(2L, "上海", "7天酒店", "二钻", 150),
+                hotel(3L, "北京", "如家", "三钻", 400),
+                hotel(4L, "北京", "如家", "二钻", 90)));
+        facetIndex = new FacetIndex();
+        ReflectionTestUtils.setField(facetIndex, "hotelMapper", hotelMapper);
+        ReflectionTestUtils.setField(facetIndex, "properties", new FacetProperties());
+        facetIndex.load();
+    }
+
+    @Test
+    void testFilters() {
+        RequestParams params = new RequestParams();
+        Map<String, List<String>> filters = facetIndex.filters(params);
+        assertEquals(Arrays.asList("如家", "7天酒店"), filters.get("brand"));
+        assertEquals(Arrays.asList("上海", "北京"), filters.get("city"));
+
+        params.setMinPrice(100);
+        params.setMaxPrice(300);
+        filters = facetIndex.filters(params);
+        assertEquals(Arrays.asList("二钻"), filters.get("starName"));
+        assertEquals(Arrays.asList("上海"), filters.get("city"));
+
+        params.setKey("如家");
+        assertNull(facetIndex.filters(params));
+    }
+
+    @Test
+    void testIncrementalUpdate() {
+        HotelDoc doc = new HotelDoc(hotel(2L, "深圳", "7天酒店", "二钻", 150));
+        facetIndex.onHotelChanged(new HotelChangeEvent(2L, null, doc));
+        facetIndex.onHotelChanged(new HotelChangeEvent(1L, null, null));
+
+        RequestParams params = new RequestParams();
+        params.setCity("上海");
+        assertEquals(0, facetIndex.filters(params).get("brand").size());
+        params.setCity("深圳");
+        assertEquals(Arrays.asList("7天酒店"), facetIndex.filters(params).get("brand"));
+    }
+
+    @Test
+    void testMoveBetweenGroups() {
+        RequestParams params = new RequestParams();
+        params.setCity("北京");
+        facetIndex.onHotelChanged(new HotelChangeEvent(3L, null, new HotelDoc(hotel(3L, "北京", "汉庭", "三钻", 400))));
+        facetIndex.onHotelChanged(new HotelChangeEvent(4L, null, null));
+
+        assertEquals(Arrays.asList("汉庭"), facetIndex.filters(params).get("brand"));
+        params.setCity("上海");
+        assertEquals(Arrays.asList("7天酒店", "如家"), facetIndex.filters(params).get("brand"));
+    }
+
+    private Hotel hotel(Long id, String city, String brand, String starName, int price) {
+        Hotel hotel = new Hotel();
+        hotel.setId(id);
+        hotel.setCity(city);
+        hotel.setBrand(brand);
+        hotel.setStarName(starName);
+        hotel.setPrice(price);
+        hotel.setBusiness("");
+        return hotel;
+    }
+}
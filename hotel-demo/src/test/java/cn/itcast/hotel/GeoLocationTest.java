@@ -0,0 +1,63 @@
+package cn.itcast.hotel;
+
+import cn.itcast.hotel.pojo.GeoLocation;
+import cn.itcast.hotel.pojo.Hotel;
+import cn.itcast.hotel.pojo.HotelDoc;
+import cn.itcast.hotel.pojo.RequestParams;
+import com.alibaba.fastjson.JSON;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GeoLocationTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void testRequestAcceptsObjectAndString() throws Exception {
+        RequestParams object = mapper.readValue("{\"location\": {\"lat\": 31.21, \"lon\": 121.5}}", RequestParams.class);
+        RequestParams string = mapper.readValue("{\"location\": \" 31.21, 121.5 \"}", RequestParams.class);
+        assertEquals(new GeoLocation(31.21, 121.5), object.getLocation());
+        assertEquals(object.getLocation(), string.getLocation());
+        assertNull(mapper.readValue("{\"location\": \"\"}", RequestParams.class).getLocation());
+    }
+
+    @Test
+    void testRejectInvalidLocation() {
+        assertThrows(JsonMappingException.class,
+                () -> mapper.readValue("{\"location\": \"121.5, 31.21, x\"}", RequestParams.class));
+        assertThrows(JsonMappingException.class,
+                () -> mapper.readValue("{\"location\": {\"lat\": 121.5, \"lon\": 31.21}}", RequestParams.class));
+        assertNull(GeoLocation.of(null, 121.5));
+        assertNull(GeoLocation.of(95.0, 121.5));
+    }
+
+    @Test
+    void testHotelDocStoresGeoPoint() {
+        Hotel hotel = new Hotel();
+        hotel.setBrand("如家");
+        hotel.setBusiness("虹桥地区");
+        hotel.setLatitude(31.219306);
+        hotel.setLongitude(121.445427);
+        HotelDoc doc = new HotelDoc(hotel);
+        String json = JSON.toJSONString(doc);
+
+        assertTrue(json.contains("\"location\":{\"lat\":31.219306,\"lon\":121.445427}"));
+        assertEquals(9, doc.getGeohash().length());
+        assertTrue(doc.getGeohash().startsWith(doc.getLocation().geohash(6)));
+        assertEquals(doc.getLocation(), JSON.parseObject(json, HotelDoc.class).getLocation());
+    }
+
+    @Test
+    void testSnapToGeohashCell() {
+        GeoLocation a = new GeoLocation(31.2193, 121.4454);
+        GeoLocation b = new GeoLocation(31.2191, 121.4459);
+        assertEquals(a.snap(6), b.snap(6));
+        assertEquals(a.geohash(6), a.snap(6).geohash(6));
+    }
+}
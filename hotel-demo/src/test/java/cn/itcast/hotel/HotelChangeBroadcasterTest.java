@@ -0,0 +1,63 @@
+package cn.itcast.hotel;
+
+import cn.itcast.hotel.mq.HotelChangeBroadcaster;
+import cn.itcast.hotel.pojo.GeoLocation;
+import cn.itcast.hotel.pojo.HotelChangeEvent;
+import cn.itcast.hotel.pojo.HotelDoc;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class HotelChangeBroadcasterTest {
+
+    private HotelChangeBroadcaster broadcaster;
+    private RabbitTemplate rabbitTemplate;
+    private final List<Object> published = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        broadcaster = new HotelChangeBroadcaster();
+        rabbitTemplate = mock(RabbitTemplate.class);
+        ReflectionTestUtils.setField(broadcaster, "rabbitTemplate", rabbitTemplate);
+        ReflectionTestUtils.setField(broadcaster, "eventPublisher", (ApplicationEventPublisher) published::add);
+    }
+
+    @Test
+    void testRemoteEventIsRepublishedOnce() {
+        HotelDoc after = new HotelDoc();
+        after.setId(7L);
+        after.setCity("上海");
+        after.setLocation(new GeoLocation(31.2, 121.5));
+        broadcaster.onHotelChanged(new HotelChangeEvent(7L, null, after));
+        ArgumentCaptor<Object> body = ArgumentCaptor.forClass(Object.class);
+        verify(rabbitTemplate).convertAndSend(anyString(), eq(""), body.capture(), any(MessagePostProcessor.class));
+
+        // 自己发出的广播跳过，其他实例的广播作为本地事件发布
+        String origin = (String) ReflectionTestUtils.getField(broadcaster, "origin");
+        broadcaster.listenHotelChanged((String) body.getValue(), origin);
+        assertTrue(published.isEmpty());
+        broadcaster.listenHotelChanged((String) body.getValue(), "other");
+        assertEquals(1, published.size());
+        HotelChangeEvent event = (HotelChangeEvent) published.get(0);
+        assertTrue(event.isRemote());
+        assertNull(event.getBefore());
+        assertEquals(after, event.getAfter());
+
+        // 广播过来的事件不再转发
+        broadcaster.onHotelChanged(event);
+        verifyNoMoreInteractions(rabbitTemplate);
+    }
+}
@@ -1,11 +1,12 @@
 package cn.itcast.hotel;
 
+import cn.itcast.hotel.index.HotelReindexer;
 import cn.itcast.hotel.pojo.Hotel;
 import cn.itcast.hotel.pojo.HotelDoc;
+import cn.itcast.hotel.pojo.ReindexReport;
 import cn.itcast.hotel.service.IHotelService;
 import com.alibaba.fastjson.JSON;
 import org.apache.http.HttpHost;
-import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.get.GetRequest;
 import org.elasticsearch.action.get.GetResponse;
@@ -24,14 +25,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
 import java.io.IOException;
-import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 @SpringBootTest
 public class HotelDocumentTest {
     @Autowired
     private IHotelService hotelService;
+    @Autowired
+    private HotelReindexer reindexer;
     private RestHighLevelClient client;
 
     @Test
@@ -82,30 +84,11 @@ public class HotelDocumentTest {
     }
 
     @Test
-    void testBulkRequest() throws IOException {
-        // 1.创建Request
-        BulkRequest request = new BulkRequest();
-        // 2.准备参数，添加多个新增的Request
-            // 批量查询酒店数据
-        List<Hotel> list = hotelService.list();
-            // 转换为文档类型HotelDoc
-            //批量添加
-        list.stream().map((item) -> {
-            HotelDoc hotelDoc = new HotelDoc(item);
-            request.add(new IndexRequest("hotel")
-                    .id(hotelDoc.getId().toString())
-                    .source(JSON.toJSONString(hotelDoc), XContentType.JSON));
-            return hotelDoc;
-        }).collect(Collectors.toList());
-            //批量删除
-//        list.stream().map((item) -> {
-//            HotelDoc hotelDoc = new HotelDoc(item);
-//            request.add(new DeleteRequest("hotel")
-//                    .id(hotelDoc.getId().toString()));
-//            return hotelDoc;
-//        }).collect(Collectors.toList());
-        // 3.发送请求
-        client.bulk(request,RequestOptions.DEFAULT);
+    void testBulkRequest() {
+        // 分批读取tb_hotel，并发发送bulk请求，避免一次把整张表加载到内存
+        ReindexReport report = reindexer.reindex("hotel", false);
+        assertEquals(ReindexReport.Status.COMPLETED, report.getStatus());
+        assertEquals(0, report.getFailed());
     }
 
     @Test
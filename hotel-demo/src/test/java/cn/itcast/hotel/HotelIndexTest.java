@@ -1,6 +1,8 @@
 package cn.itcast.hotel;
 
 import org.apache.http.HttpHost;
+import org.elasticsearch.action.admin.indices.alias.Alias;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
 import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestClient;
@@ -13,8 +15,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.util.Set;
 
+import static cn.itcast.hotel.constants.HotelConstants.INDEX_ALIAS;
+import static cn.itcast.hotel.constants.HotelConstants.INDEX_PREFIX;
 import static cn.itcast.hotel.constants.HotelConstants.MAPPING_TEMPLATE;
+import static cn.itcast.hotel.constants.HotelConstants.WRITE_ALIAS;
 
 public class HotelIndexTest {
     private RestHighLevelClient client;
@@ -26,18 +32,24 @@ public class HotelIndexTest {
 
     @Test
     void testCreateHotelIndex() throws IOException {
-        //1.创建Request对象
-        CreateIndexRequest request = new CreateIndexRequest("hotel");
+        //1.创建Request对象，hotel是别名，索引使用第一个版本的名字
+        CreateIndexRequest request = new CreateIndexRequest(INDEX_PREFIX + 1);
         //2.请求参数，MAPPING_TEMPLATE是静态常量字符串，内容是创建索引库的DSL语句
         request.source(MAPPING_TEMPLATE, XContentType.JSON);
-        //3.发起请求
+        //3.查询和写入的别名都指向它
+        request.alias(new Alias(INDEX_ALIAS));
+        request.alias(new Alias(WRITE_ALIAS));
+        //4.发起请求
         client.indices().create(request, RequestOptions.DEFAULT);
     }
 
     @Test
     void testDeleteHotelIndex() throws IOException {
-        //1.创建Request对象
-        DeleteIndexRequest request = new DeleteIndexRequest("hotel");
+        //1.创建Request对象，删除别名指向的索引
+        Set<String> indices = client.indices()
+                .getAlias(new GetAliasesRequest(INDEX_ALIAS), RequestOptions.DEFAULT)
+                .getAliases().keySet();
+        DeleteIndexRequest request = new DeleteIndexRequest(indices.toArray(new String[0]));
         //2.发起请求
         client.indices().delete(request,RequestOptions.DEFAULT);
     }
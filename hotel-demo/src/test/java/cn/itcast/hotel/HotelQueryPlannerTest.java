@@ -0,0 +1,108 @@
+package cn.itcast.hotel;
+
+import cn.itcast.hotel.constants.HotelConstants;
+import cn.itcast.hotel.pojo.GeoLocation;
+import cn.itcast.hotel.pojo.MapParams;
+import cn.itcast.hotel.pojo.RequestParams;
+import cn.itcast.hotel.search.HotelQueryPlanner;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.index.query.ConstantScoreQueryBuilder;
+import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HotelQueryPlannerTest {
+
+    private HotelQueryPlanner planner;
+
+    @BeforeEach
+    void setUp() {
+        planner = new HotelQueryPlanner();
+        ReflectionTestUtils.setField(planner, "meterRegistry", new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testFilterOnlyIsConstantScoreAndCached() {
+        RequestParams params = new RequestParams();
+        params.setCity("上海");
+        SearchRequest request = new SearchRequest(HotelConstants.INDEX_ALIAS);
+        HotelQueryPlanner.Plan plan = planner.query(params, request, true);
+        int distanceIndex = planner.sort(params, plan, request, false);
+
+        assertEquals(HotelQueryPlanner.Plan.FILTER, plan);
+        assertTrue(request.source().query() instanceof ConstantScoreQueryBuilder);
+        assertTrue(request.requestCache());
+        assertEquals(-1, distanceIndex);
+        // 广告置顶靠排序，不再算分
+        String source = request.source().toString();
+        assertTrue(source.contains("\"isAD\""));
+        assertTrue(source.contains("\"unmapped_type\":\"boolean\""));
+        assertFalse(source.contains("function_score"));
+        assertFalse(source.contains("\"_score\""));
+    }
+
+    @Test
+    void testKeywordIsScoredAfterAds() {
+        RequestParams params = new RequestParams();
+        params.setKey("如家");
+        SearchRequest request = new SearchRequest(HotelConstants.INDEX_ALIAS);
+        HotelQueryPlanner.Plan plan = planner.query(params, request, true);
+        planner.sort(params, plan, request, true);
+
+        assertEquals(HotelQueryPlanner.Plan.SCORED, plan);
+        assertNull(request.requestCache());
+        assertEquals(3, request.source().sorts().size());
+        assertTrue(request.source().toString().contains("\"must\""));
+    }
+
+    @Test
+    void testMapQueryIsBoundedAndCached() {
+        MapParams params = new MapParams();
+        params.setKey("如家");
+        params.setTopLeft(new GeoLocation(31.3, 121.4));
+        params.setBottomRight(new GeoLocation(31.2, 121.5));
+        SearchRequest request = new SearchRequest(HotelConstants.INDEX_ALIAS);
+        planner.mapQuery(params, request);
+
+        assertTrue(request.source().query() instanceof ConstantScoreQueryBuilder);
+        assertTrue(request.requestCache());
+        String source = request.source().toString();
+        assertTrue(source.contains("geo_bounding_box"));
+        assertTrue(source.contains("\"all\""));
+    }
+
+    @Test
+    void testPriceSortKeepsDistanceSecondary() {
+        RequestParams params = new RequestParams();
+        params.setKey("如家");
+        params.setSortBy("price");
+        params.setLocation(new GeoLocation(31.21, 121.5));
+        SearchRequest request = new SearchRequest(HotelConstants.INDEX_ALIAS);
+        HotelQueryPlanner.Plan plan = planner.query(params, request, false);
+        int distanceIndex = planner.sort(params, plan, request, true);
+
+        assertEquals(HotelQueryPlanner.Plan.SORTED, plan);
+        assertEquals(1, distanceIndex);
+        assertEquals(3, request.source().sorts().size());
+        assertFalse(request.source().toString().contains("\"must\""));
+    }
+
+    @Test
+    void testOffsetScoreSortHasIdTiebreaker() {
+        RequestParams params = new RequestParams();
+        params.setSortBy("score");
+        SearchRequest request = new SearchRequest(HotelConstants.INDEX_ALIAS);
+        HotelQueryPlanner.Plan plan = planner.query(params, request, true);
+        planner.sort(params, plan, request, false);
+
+        assertEquals(2, request.source().sorts().size());
+        assertEquals("id", ((FieldSortBuilder) request.source().sorts().get(1)).getFieldName());
+    }
+}
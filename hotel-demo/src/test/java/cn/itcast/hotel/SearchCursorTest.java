@@ -0,0 +1,36 @@
+package cn.itcast.hotel;
+
+import cn.itcast.hotel.search.SearchCursor;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SearchCursorTest {
+
+    @Test
+    void testEncodeDecode() {
+        SearchCursor cursor = new SearchCursor("46ToAwMDaWR5", new Object[]{1.2345678, "2056105938"});
+        SearchCursor decoded = SearchCursor.decode(cursor.encode());
+        assertEquals("46ToAwMDaWR5", decoded.getPitId());
+        assertArrayEquals(new Object[]{1.2345678, "2056105938"}, decoded.getSortValues());
+    }
+
+    @Test
+    void testInvalidCursor() {
+        assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode("not a cursor"));
+        // 合法的JSON，但缺少排序值或point in time的id
+        assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode(encode("{\"pit\":\"46ToAwMDaWR5\"}")));
+        assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode(encode("{\"after\":[1.5]}")));
+        assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode(encode("{\"pit\":\"x\",\"after\":3}")));
+        assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode(""));
+    }
+
+    private static String encode(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
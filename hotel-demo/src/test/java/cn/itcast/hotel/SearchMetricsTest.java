@@ -0,0 +1,55 @@
+package cn.itcast.hotel;
+
+import cn.itcast.hotel.config.SearchProperties;
+import cn.itcast.hotel.search.SearchMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SearchMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private SearchMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        metrics = new SearchMetrics();
+        ReflectionTestUtils.setField(metrics, "meterRegistry", registry);
+        ReflectionTestUtils.setField(metrics, "properties", new SearchProperties());
+    }
+
+    @Test
+    void testCallOutcomes() {
+        assertEquals("ok", metrics.record("getSuggestions", () -> "ok"));
+        assertThrows(IllegalStateException.class, () -> metrics.record("getSuggestions", () -> {
+            throw new IllegalStateException();
+        }));
+        CompletableFuture<String> failed = new CompletableFuture<>();
+        metrics.recordAsync("search", () -> failed);
+        failed.completeExceptionally(new IllegalStateException());
+
+        assertEquals(1, registry.get("hotel.service.calls")
+                .tags("method", "getSuggestions", "outcome", "success").timer().count());
+        assertEquals(1, registry.get("hotel.service.calls")
+                .tags("method", "getSuggestions", "outcome", "error").timer().count());
+        assertEquals(1, registry.get("hotel.service.calls")
+                .tags("method", "search", "outcome", "error").timer().count());
+    }
+
+    @Test
+    void testDecodeErrorsCounted() {
+        assertThrows(IllegalArgumentException.class, () -> metrics.decode("list", null, r -> {
+            throw new IllegalArgumentException();
+        }));
+        assertEquals(1, registry.get("hotel.search.stage").tags("operation", "list", "stage", "decode").timer().count());
+        assertEquals(1.0, registry.get("hotel.search.errors")
+                .tags("operation", "list", "exception", "IllegalArgumentException").counter().count());
+    }
+}
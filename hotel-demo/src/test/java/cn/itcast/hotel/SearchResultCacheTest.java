@@ -0,0 +1,105 @@
+package cn.itcast.hotel;
+
+import cn.itcast.hotel.cache.SearchResultCache;
+import cn.itcast.hotel.config.SearchCacheProperties;
+import cn.itcast.hotel.pojo.GeoLocation;
+import cn.itcast.hotel.pojo.HotelChangeEvent;
+import cn.itcast.hotel.pojo.HotelDoc;
+import cn.itcast.hotel.pojo.PageResult;
+import cn.itcast.hotel.pojo.RequestParams;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchResultCacheTest {
+
+    private SearchResultCache cache;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        cache = new SearchResultCache();
+        ReflectionTestUtils.setField(cache, "properties", new SearchCacheProperties());
+        ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+        cache.init();
+    }
+
+    @Test
+    void testNearbyLocationsShareEntry() {
+        search(params("上海", "31.2193, 121.4454"));
+        search(params("上海", " 31.2191, 121.4459 "));
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.stats().hitCount());
+    }
+
+    @Test
+    void testInvalidateOnlyMatchingEntries() {
+        search(params("上海", null));
+        search(params("北京", null));
+        HotelDoc doc = new HotelDoc();
+        doc.setId(1L);
+        doc.setCity("北京");
+        doc.setPrice(300);
+        cache.onHotelChanged(new HotelChangeEvent(1L, null, doc));
+
+        search(params("上海", null));
+        search(params("北京", null));
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void testSharedEntrySortedByExactLocation() {
+        HotelDoc west = hotel(1L, 31.2190, 121.4440);
+        HotelDoc east = hotel(2L, 31.2190, 121.4470);
+        PageResult first = cache.get(params("上海", "31.2192, 121.4441"), key -> {
+            loads.incrementAndGet();
+            return new PageResult(2L, Arrays.asList(west, east));
+        });
+        PageResult second = cache.get(params("上海", "31.2192, 121.4469"), key -> {
+            throw new AssertionError("同一网格应命中缓存");
+        });
+        assertEquals(1, loads.get());
+        assertEquals(Arrays.asList(1L, 2L), ids(first));
+        assertEquals(Arrays.asList(2L, 1L), ids(second));
+        // 距离按各自的位置计算，缓存中的对象不被修改
+        assertTrue((Double) second.getHotels().get(0).getDistance() < 0.05);
+        assertNull(east.getDistance());
+    }
+
+    private static HotelDoc hotel(Long id, double lat, double lon) {
+        HotelDoc doc = new HotelDoc();
+        doc.setId(id);
+        doc.setCity("上海");
+        doc.setLocation(new GeoLocation(lat, lon));
+        return doc;
+    }
+
+    private static List<Long> ids(PageResult result) {
+        return result.getHotels().stream().map(HotelDoc::getId).collect(Collectors.toList());
+    }
+
+    private RequestParams params(String city, String location) {
+        RequestParams params = new RequestParams();
+        params.setPage(1);
+        params.setSize(5);
+        params.setCity(city);
+        params.setLocation(GeoLocation.parse(location));
+        return params;
+    }
+
+    private PageResult search(RequestParams params) {
+        return cache.get(params, key -> {
+            loads.incrementAndGet();
+            return new PageResult(0L, Collections.emptyList());
+        });
+    }
+}
@@ -0,0 +1,51 @@
+package cn.itcast.hotel;
+
+import cn.itcast.hotel.pojo.Hotel;
+import cn.itcast.hotel.pojo.HotelDoc;
+import cn.itcast.hotel.suggest.SuggestionTokenizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class SuggestionTokenizerTest {
+
+    private final SuggestionTokenizer tokenizer = new SuggestionTokenizer();
+
+    @Test
+    void testDelimiters() {
+        assertEquals(Arrays.asList("如家", "江湾", "五角场商业区"), tokenizer.tokenize("如家", "江湾、五角场商业区"));
+        assertEquals(Arrays.asList("汉庭", "天安门", "王府井地区"), tokenizer.tokenize("汉庭", "天安门/王府井地区"));
+        assertEquals(Arrays.asList("7天酒店", "会展中心", "CBD"), tokenizer.tokenize("7天酒店", "会展中心,CBD"));
+        // 只有竖线时也要拆开
+        assertEquals(Arrays.asList("希尔顿", "外滩", "南京东路"), tokenizer.tokenize("希尔顿", "外滩|南京东路"));
+    }
+
+    @Test
+    void testTrimDedupAndNull() {
+        assertEquals(Arrays.asList("如家", "虹桥", "机场"), tokenizer.tokenize(" 如家 ", "虹桥 / 机场,,虹桥|如家、 "));
+        assertEquals(Collections.singletonList("如家"), tokenizer.tokenize("如家", null));
+        assertEquals(Collections.singletonList("虹桥地区"), tokenizer.tokenize(null, "虹桥地区"));
+        assertEquals(Collections.emptyList(), tokenizer.tokenize("", " "));
+    }
+
+    @Test
+    void testReuseAcrossCalls() {
+        String business = "a,b,c,d,e,f,g,h,i,j,k,l,m,n,o,p,q,r,s,t";
+        assertEquals(21, tokenizer.tokenize("x", business).size());
+        String single = "静安寺地区";
+        // 没有分隔符时直接使用原字符串
+        assertSame(single, tokenizer.tokenize("如家", single).get(1));
+    }
+
+    @Test
+    void testHotelDoc() {
+        Hotel hotel = new Hotel();
+        hotel.setBrand("如家");
+        hotel.setBusiness("江湾、五角场商业区");
+        assertEquals(Arrays.asList("如家", "江湾", "五角场商业区"), new HotelDoc(hotel).getSuggestion());
+    }
+}
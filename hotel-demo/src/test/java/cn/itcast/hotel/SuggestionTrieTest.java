@@ -0,0 +1,58 @@
+package cn.itcast.hotel;
+
+import cn.itcast.hotel.suggest.SuggestionTrie;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SuggestionTrieTest {
+
+    @Test
+    void testPrefixAndPinyin() {
+        SuggestionTrie trie = new SuggestionTrie(10);
+        trie.add("如家");
+        trie.add("如家");
+        trie.add("瑞吉");
+        trie.add("虹桥");
+
+        assertEquals(Arrays.asList("如家", "瑞吉"), trie.top("r", 10));
+        assertEquals(Arrays.asList("如家"), trie.top("rujia", 10));
+        assertEquals(Arrays.asList("如家"), trie.top("如", 10));
+        assertEquals(Arrays.asList("虹桥"), trie.top("HQ", 10));
+        assertEquals(Collections.emptyList(), trie.top("x", 10));
+    }
+
+    @Test
+    void testRemoveUpdatesCachedTop() {
+        SuggestionTrie trie = new SuggestionTrie(10);
+        trie.add("如家");
+        trie.add("瑞吉");
+        trie.add("瑞吉");
+        assertEquals(Arrays.asList("瑞吉", "如家"), trie.top("r", 10));
+
+        trie.remove("瑞吉");
+        trie.remove("瑞吉");
+        assertEquals(Arrays.asList("如家"), trie.top("r", 10));
+        assertEquals(1, trie.size());
+    }
+
+    @Test
+    void testRemovePrunesEmptyNodes() {
+        SuggestionTrie trie = new SuggestionTrie(10);
+        trie.add("如家");
+        int nodes = trie.nodeCount();
+        trie.add("如家酒店");
+        trie.add("虹桥");
+        trie.remove("如家酒店");
+        trie.remove("虹桥");
+
+        assertEquals(nodes, trie.nodeCount());
+        assertEquals(Arrays.asList("如家"), trie.top("rujia", 10));
+        trie.remove("如家");
+        assertEquals(0, trie.nodeCount());
+        assertEquals(Collections.emptyList(), trie.top("r", 10));
+    }
+}
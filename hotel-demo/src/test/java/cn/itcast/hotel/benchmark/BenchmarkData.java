@@ -0,0 +1,121 @@
+package cn.itcast.hotel.benchmark;
+
+import cn.itcast.hotel.pojo.Hotel;
+import cn.itcast.hotel.pojo.HotelDoc;
+import cn.itcast.hotel.search.HotelProjection;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.io.Streams;
+import org.elasticsearch.common.xcontent.DeprecationHandler;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.common.xcontent.support.XContentMapValues;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 基准测试用的离线数据：模拟tb_hotel的行和ES返回的搜索结果，不需要MySQL和ES
+ */
+public class BenchmarkData {
+
+    private static final String[] BRANDS = {"如家", "7天酒店", "汉庭", "希尔顿", "万怡", "速8", "皇冠假日", "华美达"};
+    private static final String[] CITIES = {"上海", "北京", "深圳", "杭州"};
+    private static final String[] STARS = {"二钻", "三钻", "四钻", "五钻", "四星级", "五星级"};
+    private static final String[] BUSINESS = {"静安寺地区", "天安门/王府井地区", "燕莎/朝阳公园商业区", "会展中心/CBD",
+            "首都机场/新国展地区", "虹桥地区", "江湾、五角场商业区", "果园环岛/通州区"};
+
+    private BenchmarkData() {
+    }
+
+    public static List<Hotel> hotels(int count) {
+        Random random = new Random(42);
+        List<Hotel> hotels = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Hotel hotel = new Hotel();
+            hotel.setId(36934L + i);
+            hotel.setName(BRANDS[i % BRANDS.length] + "酒店(" + CITIES[i % CITIES.length] + "第" + i + "店)");
+            hotel.setAddress("松江荣乐东路" + (i + 1) + "号");
+            hotel.setPrice(100 + random.nextInt(2000));
+            hotel.setScore(35 + random.nextInt(15));
+            hotel.setBrand(BRANDS[i % BRANDS.length]);
+            hotel.setCity(CITIES[i % CITIES.length]);
+            hotel.setStarName(STARS[i % STARS.length]);
+            hotel.setBusiness(BUSINESS[i % BUSINESS.length]);
+            hotel.setLatitude(31.0 + random.nextDouble());
+            hotel.setLongitude(121.0 + random.nextDouble());
+            hotel.setPic("https://m.tuniucdn.com/fb2/t1/G1/M00/3E/40/Cii9EVkyLrKIXo1vAAHgrxo_pUcAALcKQLD688AAeDH564_w200_h200_c1_t0.jpg");
+            hotels.add(hotel);
+        }
+        return hotels;
+    }
+
+    /**
+     * ES返回的搜索结果的JSON，与按距离排序的 /hotel/list 请求一致
+     */
+    public static String searchResponseJson(int size) {
+        return searchResponseJson(size, null);
+    }
+
+    /**
+     * 按字段集合过滤source后的搜索结果，过滤方式和ES服务端一致
+     */
+    public static String searchResponseJson(int size, HotelProjection projection) {
+        JSONArray hits = new JSONArray();
+        for (Hotel hotel : hotels(size)) {
+            HotelDoc hotelDoc = new HotelDoc(hotel);
+            JSONObject hit = new JSONObject(true);
+            hit.put("_index", "hotel_v1");
+            hit.put("_type", "_doc");
+            hit.put("_id", hotel.getId().toString());
+            hit.put("_score", null);
+            Map<String, Object> source = JSON.parseObject(JSON.toJSONString(hotelDoc));
+            if (projection != null) {
+                source = XContentMapValues.filter(source, projection.getIncludes(), projection.getExcludes());
+            }
+            hit.put("_source", source);
+            JSONArray sort = new JSONArray();
+            sort.add(1.2345678);
+            hit.put("sort", sort);
+            hits.add(hit);
+        }
+        JSONObject total = new JSONObject(true);
+        total.put("value", 201);
+        total.put("relation", "eq");
+        JSONObject hitsObject = new JSONObject(true);
+        hitsObject.put("total", total);
+        hitsObject.put("max_score", null);
+        hitsObject.put("hits", hits);
+        JSONObject response = new JSONObject(true);
+        response.put("took", 3);
+        response.put("timed_out", false);
+        response.put("_shards", JSON.parseObject("{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0}"));
+        response.put("hits", hitsObject);
+        return response.toJSONString();
+    }
+
+    /**
+     * 录制的一页 /hotel/list 的ES响应：按距离排序，第一条是广告
+     */
+    public static String recordedResponseJson() throws IOException {
+        try (InputStream in = BenchmarkData.class.getResourceAsStream("/benchmark/hotel-list-response.json")) {
+            return Streams.copyToString(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+    }
+
+    public static SearchResponse parseSearchResponse(String json) throws IOException {
+        try (XContentParser parser = XContentType.JSON.xContent().createParser(
+                NamedXContentRegistry.EMPTY, DeprecationHandler.THROW_UNSUPPORTED_OPERATION, json)) {
+            return SearchResponse.fromXContent(parser);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package cn.itcast.hotel.benchmark;
+
+import cn.itcast.hotel.pojo.HotelDoc;
+import cn.itcast.hotel.search.HotelDocDecoder;
+import com.alibaba.fastjson.JSON;
+import org.elasticsearch.search.SearchHit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比解析搜索结果的两种方式：先转String再用fastjson解析，和直接解析source的字节。
+ * 加上 -prof gc 可以看到每页分配的字节数：
+ * mvn -P benchmark test-compile exec:exec -Dbenchmark="HitDecodingBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HitDecodingBenchmark {
+
+    @Param({"10", "50", "200"})
+    public int pageSize;
+
+    private SearchHit[] hits;
+
+    @Setup
+    public void setUp() throws IOException {
+        hits = BenchmarkData.parseSearchResponse(BenchmarkData.searchResponseJson(pageSize)).getHits().getHits();
+    }
+
+    @Benchmark
+    public void sourceAsString(Blackhole blackhole) {
+        for (SearchHit hit : hits) {
+            blackhole.consume(JSON.parseObject(hit.getSourceAsString(), HotelDoc.class));
+        }
+    }
+
+    @Benchmark
+    public void sourceBytes(Blackhole blackhole) {
+        for (SearchHit hit : hits) {
+            blackhole.consume(HotelDocDecoder.decode(hit));
+        }
+    }
+}
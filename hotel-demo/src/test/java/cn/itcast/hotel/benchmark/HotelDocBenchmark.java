@@ -0,0 +1,119 @@
+package cn.itcast.hotel.benchmark;
+
+import cn.itcast.hotel.index.HotelDocConverter;
+import cn.itcast.hotel.pojo.Hotel;
+import cn.itcast.hotel.pojo.HotelDoc;
+import cn.itcast.hotel.suggest.SuggestionTokenizer;
+import com.alibaba.fastjson.JSON;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 写入索引时每个酒店的开销：HotelDoc(Hotel) 转换（含商圈拆分），以及insertById、重建索引中的fastjson序列化。
+ * splitRegex 是原来用正则拆分商圈的做法，和 tokenize 对比。
+ * 结果按单个酒店计算：
+ * mvn -P benchmark test-compile exec:exec -Dbenchmark="HotelDocBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HotelDocBenchmark {
+
+    private static final int HOTELS = 100;
+
+    private List<Hotel> hotels;
+    private List<HotelDoc> docs;
+
+    @Setup
+    public void setUp() {
+        hotels = BenchmarkData.hotels(HOTELS);
+        docs = new ArrayList<>(HOTELS);
+        for (Hotel hotel : hotels) {
+            docs.add(new HotelDoc(hotel));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(HOTELS)
+    public void convert(Blackhole blackhole) {
+        for (Hotel hotel : hotels) {
+            blackhole.consume(new HotelDoc(hotel));
+        }
+    }
+
+    /**
+     * 重建索引和批量同步使用的方式，整批共用一个分词器
+     */
+    @Benchmark
+    @OperationsPerInvocation(HOTELS)
+    public List<HotelDoc> convertBatch() {
+        return HotelDocConverter.convert(hotels);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(HOTELS)
+    public void tokenize(Blackhole blackhole) {
+        SuggestionTokenizer tokenizer = new SuggestionTokenizer();
+        for (Hotel hotel : hotels) {
+            blackhole.consume(tokenizer.tokenize(hotel.getBrand(), hotel.getBusiness()));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(HOTELS)
+    public void splitRegex(Blackhole blackhole) {
+        for (Hotel hotel : hotels) {
+            String business = hotel.getBusiness();
+            List<String> suggestion;
+            if (business.contains("/") || business.contains("、") || business.contains(",")) {
+                suggestion = new ArrayList<>();
+                suggestion.add(hotel.getBrand());
+                Collections.addAll(suggestion, business.split("[,/|、]"));
+            } else {
+                suggestion = Arrays.asList(hotel.getBrand(), business);
+            }
+            blackhole.consume(suggestion);
+        }
+    }
+
+    /**
+     * insertById 和批量同步使用的方式
+     */
+    @Benchmark
+    @OperationsPerInvocation(HOTELS)
+    public void toJSONString(Blackhole blackhole) {
+        for (HotelDoc doc : docs) {
+            blackhole.consume(JSON.toJSONString(doc));
+        }
+    }
+
+    /**
+     * 重建索引使用的方式
+     */
+    @Benchmark
+    @OperationsPerInvocation(HOTELS)
+    public void toJSONBytes(Blackhole blackhole) {
+        for (HotelDoc doc : docs) {
+            blackhole.consume(JSON.toJSONBytes(doc));
+        }
+    }
+}
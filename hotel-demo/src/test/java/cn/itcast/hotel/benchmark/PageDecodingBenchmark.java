@@ -0,0 +1,49 @@
+package cn.itcast.hotel.benchmark;
+
+import cn.itcast.hotel.pojo.PageResult;
+import cn.itcast.hotel.search.HotelDocDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 解析一页搜索结果的开销：客户端把响应解析为SearchResponse，再转换为PageResult。
+ * recorded 是录制的一页真实酒店数据，数字是生成的指定大小的一页：
+ * mvn -P benchmark test-compile exec:exec -Dbenchmark="PageDecodingBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PageDecodingBenchmark {
+
+    @Param({"recorded", "10", "50"})
+    public String page;
+
+    private String json;
+
+    @Setup
+    public void setUp() throws IOException {
+        json = "recorded".equals(page)
+                ? BenchmarkData.recordedResponseJson()
+                : BenchmarkData.searchResponseJson(Integer.parseInt(page));
+    }
+
+    @Benchmark
+    public PageResult parseAndDecode() throws IOException {
+        return HotelDocDecoder.decodePage(BenchmarkData.parseSearchResponse(json), 0);
+    }
+}
@@ -0,0 +1,84 @@
+package cn.itcast.hotel.benchmark;
+
+import cn.itcast.hotel.constants.HotelConstants;
+import cn.itcast.hotel.pojo.GeoLocation;
+import cn.itcast.hotel.pojo.RequestParams;
+import cn.itcast.hotel.search.HotelProjection;
+import cn.itcast.hotel.search.HotelQueryPlanner;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 构建一次 /hotel/list 请求的开销：查询计划、排序、字段集合，以及序列化成发给ES的JSON
+ * mvn -P benchmark test-compile exec:exec -Dbenchmark="QueryBuildBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBuildBenchmark {
+
+    /**
+     * filter：只有过滤条件；keyword：关键字按相关度；sorted：关键字按价格排序并带位置
+     */
+    @Param({"filter", "keyword", "sorted"})
+    public String query;
+
+    private HotelQueryPlanner planner;
+    private RequestParams params;
+
+    @Setup
+    public void setUp() {
+        planner = new HotelQueryPlanner();
+        ReflectionTestUtils.setField(planner, "meterRegistry", new SimpleMeterRegistry());
+        params = new RequestParams();
+        params.setPage(1);
+        params.setSize(5);
+        params.setCity("上海");
+        params.setStarName("五钻");
+        params.setMinPrice(300);
+        params.setMaxPrice(600);
+        if (!"filter".equals(query)) {
+            params.setKey("外滩如家");
+        }
+        if ("sorted".equals(query)) {
+            params.setSortBy("price");
+            params.setLocation(new GeoLocation(31.21, 121.5));
+        }
+    }
+
+    @Benchmark
+    public SearchRequest build() {
+        SearchRequest request = new SearchRequest(HotelConstants.INDEX_ALIAS);
+        HotelQueryPlanner.Plan plan = planner.query(params, request, true);
+        request.source().from((params.getPage() - 1) * params.getSize()).size(params.getSize());
+        planner.sort(params, plan, request, false);
+        HotelProjection.CARD.apply(request);
+        return request;
+    }
+
+    @Benchmark
+    public BytesReference buildAndSerialize() throws IOException {
+        return XContentHelper.toXContent(build().source(), XContentType.JSON, false);
+    }
+}
@@ -0,0 +1,58 @@
+package cn.itcast.hotel.benchmark;
+
+import cn.itcast.hotel.search.HotelDocDecoder;
+import cn.itcast.hotel.search.HotelProjection;
+import org.elasticsearch.search.SearchHit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比不同字段集合下一页搜索结果的大小和解析开销。
+ * 每组参数开始时输出 bytesPerPage，即ES返回的一页响应体的字节数：
+ * mvn -P benchmark test-compile exec:exec -Dbenchmark="SourceProjectionBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SourceProjectionBenchmark {
+
+    @Param({"10", "50"})
+    public int pageSize;
+
+    @Param({"NONE", "FULL", "CARD", "MARKER"})
+    public String projection;
+
+    private String json;
+
+    @Setup
+    public void setUp() {
+        json = BenchmarkData.searchResponseJson(pageSize,
+                "NONE".equals(projection) ? null : HotelProjection.valueOf(projection));
+        System.out.printf("projection=%s pageSize=%d bytesPerPage=%d%n",
+                projection, pageSize, json.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    @Benchmark
+    public void parseAndDecode(Blackhole blackhole) throws IOException {
+        for (SearchHit hit : BenchmarkData.parseSearchResponse(json).getHits().getHits()) {
+            blackhole.consume(HotelDocDecoder.decode(hit));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package cn.itcast.hotel.cdc;
+
+import cn.itcast.hotel.load.FakeElasticsearch;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 使用H2和ES替身，验证增量同步读完已有数据、发现之后的修改并记录断点
+ */
+@ActiveProfiles("load")
+@SpringBootTest
+class HotelChangePollerTest {
+
+    private static FakeElasticsearch elasticsearch;
+    private static Path checkpoint;
+
+    @Autowired
+    private HotelChangePoller poller;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) throws IOException {
+        elasticsearch = new FakeElasticsearch(0, 0, 4);
+        checkpoint = Files.createTempFile("cdc", ".checkpoint");
+        Files.delete(checkpoint);
+        registry.add("hotel.es.hosts", elasticsearch::url);
+        registry.add("hotel.cdc.enabled", () -> "true");
+        registry.add("hotel.cdc.lag", () -> "0s");
+        registry.add("hotel.cdc.poll-interval", () -> "50ms");
+        registry.add("hotel.cdc.checkpoint-file", checkpoint::toString);
+    }
+
+    @AfterAll
+    static void cleanUp() throws IOException {
+        elasticsearch.close();
+        Files.deleteIfExists(checkpoint);
+    }
+
+    @Test
+    void testPollsExistingRowsThenChanges() throws Exception {
+        // 初始数据在同一条语句中写入，修改时间相同，按id读完最后一行
+        waitUntil(() -> poller.position().getId() == 2000);
+        assertTrue(Files.readAllLines(checkpoint).contains("id=2000"));
+
+        jdbcTemplate.update("UPDATE tb_hotel SET price = price + 1 WHERE id = 7");
+        waitUntil(() -> poller.position().getId() == 7);
+        assertTrue(Files.readAllLines(checkpoint).contains("id=7"));
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 100 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
@@ -0,0 +1,75 @@
+package cn.itcast.hotel.index;
+
+import cn.itcast.hotel.constants.HotelConstants;
+import cn.itcast.hotel.load.FakeElasticsearch;
+import cn.itcast.hotel.pojo.RebuildReport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 使用H2和ES替身，验证重建在后台执行，其他实例持有锁索引时返回冲突，任务结束后释放锁
+ */
+@ActiveProfiles("load")
+@SpringBootTest
+@AutoConfigureMockMvc
+class HotelIndexManagerTest {
+
+    private static FakeElasticsearch elasticsearch;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private HotelIndexManager indexManager;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) throws IOException {
+        elasticsearch = new FakeElasticsearch(0, 0, 4);
+        registry.add("hotel.es.hosts", elasticsearch::url);
+    }
+
+    @AfterAll
+    static void cleanUp() {
+        elasticsearch.close();
+    }
+
+    @Test
+    void testRebuildIsRejectedWhileAnotherInstanceHoldsTheLock() throws Exception {
+        elasticsearch.indices().add(HotelConstants.REBUILD_LOCK_INDEX);
+        try {
+            mockMvc.perform(post("/index/rebuild")).andExpect(status().isConflict());
+            mockMvc.perform(post("/index/rollback")).andExpect(status().isConflict());
+            // 锁属于其他实例，不能被删除
+            assertTrue(elasticsearch.indices().contains(HotelConstants.REBUILD_LOCK_INDEX));
+        } finally {
+            elasticsearch.indices().remove(HotelConstants.REBUILD_LOCK_INDEX);
+        }
+    }
+
+    @Test
+    void testRebuildRunsInBackgroundAndReleasesTheLock() throws Exception {
+        mockMvc.perform(post("/index/rebuild")).andExpect(status().isAccepted());
+
+        // 替身不支持读取索引版本，任务会失败，但锁要释放
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (indexManager.rebuildStatus().getStatus() == RebuildReport.Status.RUNNING
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(RebuildReport.Status.FAILED, indexManager.rebuildStatus().getStatus());
+        assertFalse(elasticsearch.indices().contains(HotelConstants.REBUILD_LOCK_INDEX));
+    }
+}
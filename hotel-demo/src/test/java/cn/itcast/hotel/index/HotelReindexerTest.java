@@ -0,0 +1,92 @@
+package cn.itcast.hotel.index;
+
+import cn.itcast.hotel.load.FakeElasticsearch;
+import cn.itcast.hotel.pojo.ReindexReport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 使用H2和ES替身，验证写入失败时断点停在失败的文档之前，续传时重新写入；
+ * 版本冲突不算失败；以及后台执行的任务状态
+ */
+@ActiveProfiles("load")
+@SpringBootTest
+class HotelReindexerTest {
+
+    private static FakeElasticsearch elasticsearch;
+    private static Path checkpoint;
+
+    @Autowired
+    private HotelReindexer reindexer;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) throws IOException {
+        elasticsearch = new FakeElasticsearch(0, 0, 4);
+        checkpoint = Files.createTempFile("reindex", ".checkpoint");
+        registry.add("hotel.es.hosts", elasticsearch::url);
+        registry.add("hotel.reindex.chunk-size", () -> "100");
+        registry.add("hotel.reindex.checkpoint-file", checkpoint::toString);
+    }
+
+    @AfterAll
+    static void cleanUp() throws IOException {
+        elasticsearch.close();
+        Files.deleteIfExists(checkpoint);
+    }
+
+    @Test
+    void testCheckpointHoldsAtFirstFailure() throws IOException {
+        elasticsearch.failingIds().add("250");
+        elasticsearch.failingIds().add("1234");
+        ReindexReport report = reindexer.reindex("hotel_test", false);
+        assertEquals(ReindexReport.Status.COMPLETED_WITH_ERRORS, report.getStatus());
+        assertEquals(2, report.getFailed());
+        assertEquals(249L, report.getLastId());
+        assertTrue(Files.readAllLines(checkpoint).contains("lastId=249"));
+
+        elasticsearch.failingIds().clear();
+        report = reindexer.reindex("hotel_test", true);
+        assertEquals(ReindexReport.Status.COMPLETED, report.getStatus());
+        assertEquals(249L, report.getResumedFrom());
+        assertEquals(0, report.getFailed());
+        assertEquals(2000 - 249, report.getIndexed());
+        assertEquals(2000L, report.getLastId());
+    }
+
+    @Test
+    void testVersionConflictCountsAsIndexed() {
+        elasticsearch.conflictingIds().add("42");
+        try {
+            ReindexReport report = reindexer.reindex("hotel_test", false);
+            assertEquals(0, report.getFailed());
+            assertEquals(2000, report.getIndexed());
+            assertEquals(2000L, report.getLastId());
+            // 每条文档都带着修改时间作为版本号
+            assertTrue(elasticsearch.requestCounts().get("bulk.external_gte") >= 2000);
+        } finally {
+            elasticsearch.conflictingIds().clear();
+        }
+    }
+
+    @Test
+    void testSubmitRunsInBackground() throws InterruptedException {
+        ReindexReport report = reindexer.submit("hotel_test", false);
+        assertSame(report, reindexer.status());
+        for (int i = 0; i < 100 && report.getStatus() == ReindexReport.Status.RUNNING; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(ReindexReport.Status.COMPLETED, report.getStatus());
+        assertEquals(2000, report.getIndexed());
+    }
+}
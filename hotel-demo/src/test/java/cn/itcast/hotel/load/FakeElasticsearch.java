@@ -0,0 +1,425 @@
+package cn.itcast.hotel.load;
+
+import cn.itcast.hotel.benchmark.BenchmarkData;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 压测用的ES替身：只实现应用用到的REST接口，搜索返回录制的结果，
+ * 每个请求按配置的延迟（固定值加随机抖动）再响应
+ */
+public class FakeElasticsearch implements AutoCloseable {
+
+    private static final String SHARDS = "{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0}";
+    private static final String[] BRANDS = {"如家", "7天酒店", "汉庭", "希尔顿", "万怡", "速8", "皇冠假日", "华美达"};
+    private static final String[] CITIES = {"上海", "北京", "深圳", "杭州"};
+    private static final String[] STARS = {"二钻", "三钻", "四钻", "五钻", "四星级", "五星级"};
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final JSONArray recordedHits;
+    private final Map<String, LongAdder> requests = new ConcurrentHashMap<>();
+    private final Set<String> failingIds = ConcurrentHashMap.newKeySet();
+    private final Set<String> conflictingIds = ConcurrentHashMap.newKeySet();
+    private final Set<String> indices = ConcurrentHashMap.newKeySet();
+    private final Map<String, Long> versions = new ConcurrentHashMap<>();
+    private volatile boolean failSearches = false;
+
+    public FakeElasticsearch(long latencyMillis, long jitterMillis, int threads) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.recordedHits = JSON.parseObject(BenchmarkData.recordedResponseJson())
+                .getJSONObject("hits").getJSONArray("hits");
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        this.executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * 各类请求的次数
+     */
+    public Map<String, Long> requestCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        requests.forEach((name, count) -> counts.put(name, count.sum()));
+        return counts;
+    }
+
+    /**
+     * bulk请求中这些id的条目返回失败（429），用于测试失败处理
+     */
+    public Set<String> failingIds() {
+        return failingIds;
+    }
+
+    /**
+     * bulk请求中这些id的条目返回版本冲突（409），相当于索引中已经有更新的版本
+     */
+    public Set<String> conflictingIds() {
+        return conflictingIds;
+    }
+
+    /**
+     * 单条写入请求中每个id最近一次带的外部版本号
+     */
+    public Map<String, Long> versions() {
+        return versions;
+    }
+
+    /**
+     * 通过 PUT /{index} 创建、还没有删除的索引，只记录名字，不影响读写
+     */
+    public Set<String> indices() {
+        return indices;
+    }
+
+    /**
+     * 为true时所有搜索请求返回503
+     */
+    public void setFailSearches(boolean failSearches) {
+        this.failSearches = failSearches;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            String body = readBody(exchange);
+            sleep();
+            if (path.endsWith("/_search") && failSearches) {
+                count("search.failed");
+                respond(exchange, 503, "{\"error\":{\"root_cause\":[],\"type\":\"search_phase_execution_exception\","
+                        + "\"reason\":\"fake failure\"},\"status\":503}");
+            } else if (path.endsWith("/_search")) {
+                respond(exchange, 200, search(body.isEmpty() ? new JSONObject() : JSON.parseObject(body)));
+            } else if (path.endsWith("/_pit")) {
+                count("pit");
+                respond(exchange, 200, "DELETE".equals(method)
+                        ? "{\"succeeded\":true,\"num_freed\":1}" : "{\"id\":\"fake-pit\"}");
+            } else if (path.endsWith("/_mget")) {
+                respond(exchange, 200, mget(JSON.parseObject(body)));
+            } else if (path.endsWith("/_bulk")) {
+                respond(exchange, 200, bulk(body));
+            } else if (path.startsWith("/_alias/")) {
+                // 没有任何别名，和ES找不到别名时的响应一致
+                count("alias");
+                respond(exchange, 404, "{\"error\":\"alias [" + path.substring("/_alias/".length())
+                        + "] missing\",\"status\":404}");
+            } else if (path.lastIndexOf('/') == 0 && !path.startsWith("/_")
+                    && ("PUT".equals(method) || "DELETE".equals(method))) {
+                index(exchange, method, path.substring(1));
+            } else if (path.contains("/_doc/")) {
+                respond(exchange, 200, write(method, path, exchange.getRequestURI().getQuery()));
+            } else if ("/".equals(path)) {
+                respond(exchange, 200, "{\"name\":\"fake\",\"cluster_name\":\"fake\",\"version\":{\"number\":\"7.12.1\"},"
+                        + "\"tagline\":\"You Know, for Search\"}");
+            } else {
+                count("unsupported");
+                respond(exchange, 404, "{\"error\":\"unsupported " + method + " " + path + "\",\"status\":404}");
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private String search(JSONObject request) {
+        JSONObject response = new JSONObject(true);
+        response.put("took", latencyMillis);
+        response.put("timed_out", false);
+        response.put("_shards", JSON.parseObject(SHARDS));
+        if (request.containsKey("pit")) {
+            response.put("pit_id", "fake-pit");
+        }
+        int size = request.getIntValue("size");
+        if (!request.containsKey("size")) {
+            size = 10;
+        }
+        JSONArray hits = new JSONArray();
+        for (int i = 0; i < size; i++) {
+            hits.add(recordedHits.get(i % recordedHits.size()));
+        }
+        JSONObject hitsObject = new JSONObject(true);
+        JSONObject total = new JSONObject(true);
+        total.put("value", 2000);
+        total.put("relation", "eq");
+        hitsObject.put("total", total);
+        hitsObject.put("max_score", null);
+        hitsObject.put("hits", hits);
+        response.put("hits", hitsObject);
+        JSONObject aggs = request.containsKey("aggregations")
+                ? request.getJSONObject("aggregations") : request.getJSONObject("aggs");
+        if (aggs != null && aggs.containsKey("clusters")) {
+            count("search.clusters");
+            JSONObject aggregations = new JSONObject(true);
+            aggregations.put("geotile_grid#clusters", clusters(aggs.getJSONObject("clusters")));
+            response.put("aggregations", aggregations);
+        } else if (aggs != null) {
+            count(size > 0 ? "search.hits+aggs" : "search.aggs");
+            JSONObject aggregations = new JSONObject(true);
+            aggregations.put("sterms#brandAgg", terms(BRANDS));
+            aggregations.put("sterms#cityAgg", terms(CITIES));
+            aggregations.put("sterms#starNameAgg", terms(STARS));
+            response.put("aggregations", aggregations);
+        } else if (request.containsKey("suggest")) {
+            count("search.suggest");
+            response.put("suggest", suggest(request));
+        } else {
+            count("search.hits");
+        }
+        // 同一条录制的文档会重复出现，关掉循环引用检测，否则会输出成$ref
+        return JSON.toJSONString(response, SerializerFeature.DisableCircularReferenceDetect);
+    }
+
+    private JSONObject terms(String[] keys) {
+        JSONArray buckets = new JSONArray();
+        for (int i = 0; i < keys.length; i++) {
+            JSONObject bucket = new JSONObject(true);
+            bucket.put("key", keys[i]);
+            bucket.put("doc_count", 100 - i);
+            buckets.add(bucket);
+        }
+        JSONObject terms = new JSONObject(true);
+        terms.put("doc_count_error_upper_bound", 0);
+        terms.put("sum_other_doc_count", 0);
+        terms.put("buckets", buckets);
+        return terms;
+    }
+
+    /**
+     * 在请求的精度下，沿对角线返回几个网格
+     */
+    private JSONObject clusters(JSONObject request) {
+        int precision = request.getJSONObject("geotile_grid").getIntValue("precision");
+        JSONArray buckets = new JSONArray();
+        for (int i = 0; i < 8; i++) {
+            double lat = 31.0 + i * 0.1;
+            double lon = 121.0 + i * 0.1;
+            long tiles = 1L << precision;
+            long x = (long) ((lon + 180) / 360 * tiles);
+            long y = (long) ((1 - Math.log(Math.tan(Math.toRadians(lat)) + 1 / Math.cos(Math.toRadians(lat))) / Math.PI)
+                    / 2 * tiles);
+            JSONObject location = new JSONObject(true);
+            location.put("lat", lat);
+            location.put("lon", lon);
+            JSONObject centroid = new JSONObject(true);
+            centroid.put("location", location);
+            centroid.put("count", 100 - i);
+            JSONObject bucket = new JSONObject(true);
+            bucket.put("key", precision + "/" + x + "/" + y);
+            bucket.put("doc_count", 100 - i);
+            bucket.put("geo_centroid#center", centroid);
+            buckets.add(bucket);
+        }
+        JSONObject grid = new JSONObject();
+        grid.put("buckets", buckets);
+        return grid;
+    }
+
+    private JSONObject suggest(JSONObject request) {
+        String prefix = request.getJSONObject("suggest").getJSONObject("suggestion").getString("prefix");
+        JSONArray options = new JSONArray();
+        for (String brand : BRANDS) {
+            JSONObject option = new JSONObject(true);
+            option.put("text", brand);
+            option.put("_index", "hotel_v1");
+            option.put("_type", "_doc");
+            option.put("_id", "1");
+            option.put("_score", 1.0);
+            options.add(option);
+        }
+        JSONObject entry = new JSONObject(true);
+        entry.put("text", prefix);
+        entry.put("offset", 0);
+        entry.put("length", prefix == null ? 0 : prefix.length());
+        entry.put("options", options);
+        JSONArray entries = new JSONArray();
+        entries.add(entry);
+        JSONObject suggest = new JSONObject(true);
+        suggest.put("completion#suggestion", entries);
+        return suggest;
+    }
+
+    /**
+     * 索引里没有任何文档，变化前的数据都是空的
+     */
+    private String mget(JSONObject request) {
+        count("mget");
+        JSONArray docs = new JSONArray();
+        for (Object item : request.getJSONArray("docs")) {
+            JSONObject doc = (JSONObject) item;
+            JSONObject result = new JSONObject(true);
+            result.put("_index", doc.getString("_index"));
+            result.put("_type", "_doc");
+            result.put("_id", doc.getString("_id"));
+            result.put("found", false);
+            docs.add(result);
+        }
+        JSONObject response = new JSONObject();
+        response.put("docs", docs);
+        return response.toJSONString();
+    }
+
+    private String bulk(String body) {
+        count("bulk");
+        JSONArray items = new JSONArray();
+        boolean errors = false;
+        for (String line : body.split("\n")) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            JSONObject action = JSON.parseObject(line);
+            String type = action.keySet().iterator().next();
+            if (!"index".equals(type) && !"delete".equals(type)) {
+                // 文档内容的行
+                continue;
+            }
+            JSONObject meta = action.getJSONObject(type);
+            if (meta.containsKey("version_type")) {
+                count("bulk." + meta.getString("version_type"));
+            }
+            JSONObject item = new JSONObject();
+            if (failingIds.contains(meta.getString("_id"))) {
+                errors = true;
+                item.put(type, failedItem(meta.getString("_index"), meta.getString("_id"), 429,
+                        "{\"type\":\"es_rejected_execution_exception\",\"reason\":\"fake rejection\"}"));
+            } else if (conflictingIds.contains(meta.getString("_id"))) {
+                errors = true;
+                item.put(type, failedItem(meta.getString("_index"), meta.getString("_id"), 409,
+                        "{\"type\":\"version_conflict_engine_exception\",\"reason\":\"fake conflict\"}"));
+            } else {
+                item.put(type, itemResult(meta.getString("_index"), meta.getString("_id"),
+                        "index".equals(type) ? "created" : "deleted", "index".equals(type) ? 201 : 200));
+            }
+            items.add(item);
+        }
+        JSONObject response = new JSONObject(true);
+        response.put("took", latencyMillis);
+        response.put("errors", errors);
+        response.put("items", items);
+        return response.toJSONString();
+    }
+
+    private void index(HttpExchange exchange, String method, String index) throws IOException {
+        if ("DELETE".equals(method)) {
+            count("index.delete");
+            indices.remove(index);
+            respond(exchange, 200, "{\"acknowledged\":true}");
+            return;
+        }
+        count("index.create");
+        if (indices.add(index)) {
+            respond(exchange, 200, "{\"acknowledged\":true,\"shards_acknowledged\":true,\"index\":\"" + index + "\"}");
+        } else {
+            respond(exchange, 400, "{\"error\":{\"root_cause\":[],\"type\":\"resource_already_exists_exception\","
+                    + "\"reason\":\"index [" + index + "] already exists\"},\"status\":400}");
+        }
+    }
+
+    private String write(String method, String path, String query) {
+        String[] parts = path.split("/");
+        boolean delete = "DELETE".equals(method);
+        count(delete ? "delete" : "index");
+        for (String param : query == null ? new String[0] : query.split("&")) {
+            if (param.startsWith("version=")) {
+                versions.put(parts[3], Long.valueOf(param.substring("version=".length())));
+            }
+        }
+        return itemResult(parts[1], parts[3], delete ? "deleted" : "created", delete ? 200 : 201).toJSONString();
+    }
+
+    private JSONObject itemResult(String index, String id, String result, int status) {
+        JSONObject item = new JSONObject(true);
+        item.put("_index", index);
+        item.put("_type", "_doc");
+        item.put("_id", id);
+        item.put("_version", 1);
+        item.put("result", result);
+        item.put("_shards", JSON.parseObject("{\"total\":1,\"successful\":1,\"failed\":0}"));
+        item.put("_seq_no", 0);
+        item.put("_primary_term", 1);
+        item.put("status", status);
+        return item;
+    }
+
+    private static JSONObject failedItem(String index, String id, int status, String error) {
+        JSONObject item = new JSONObject(true);
+        item.put("_index", index);
+        item.put("_type", "_doc");
+        item.put("_id", id);
+        item.put("status", status);
+        item.put("error", JSON.parseObject(error));
+        return item;
+    }
+
+    private void count(String name) {
+        requests.computeIfAbsent(name, k -> new LongAdder()).increment();
+    }
+
+    private void sleep() {
+        long millis = latencyMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0);
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 客户端开启了压缩，请求体可能是gzip的。
+     * 先读完整个请求体再解压：gzip流读到尾部就停止，不会读分块传输的结束块，提前响应会让客户端报错
+     */
+    private static String readBody(HttpExchange exchange) throws IOException {
+        byte[] body = StreamUtils.copyToByteArray(exchange.getRequestBody());
+        InputStream in = new ByteArrayInputStream(body);
+        if ("gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+            in = new GZIPInputStream(in);
+        }
+        return StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
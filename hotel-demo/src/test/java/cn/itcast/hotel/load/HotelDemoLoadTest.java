@@ -0,0 +1,155 @@
+package cn.itcast.hotel.load;
+
+import cn.itcast.hotel.cache.SearchResultCache;
+import cn.itcast.hotel.mq.HotelImportListener;
+import cn.itcast.hotel.mq.HotelListener;
+import cn.itcast.hotel.pojo.GeoLocation;
+import cn.itcast.hotel.pojo.MapParams;
+import cn.itcast.hotel.pojo.RequestParams;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 端到端压测：真实启动应用，ES换成本地替身（可配置延迟），MySQL换成H2，
+ * MQ消息直接调用监听器处理，按权重混合搜索、过滤项、地图、自动补全和MQ同步请求。
+ * 默认跳过，运行方式：
+ * mvn test -Dtest=HotelDemoLoadTest -Dload=true [-Dload.threads=32 -Dload.duration=60s -Dload.warmup=10s
+ * -Dload.es.latency=5 -Dload.es.jitter=10]
+ */
+@EnabledIfSystemProperty(named = "load", matches = "true")
+@ActiveProfiles("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class HotelDemoLoadTest {
+
+    private static final String[] KEYS = {"如家", "外滩", "希尔顿", "酒店", "陆家嘴", "汉庭", null};
+    private static final String[] CITIES = {"上海", "北京", "深圳", "杭州", null};
+    private static final String[] BRANDS = {"如家", "7天酒店", "汉庭", "希尔顿", null, null};
+    private static final String[] SORTS = {"default", "default", "price", "score"};
+    private static final String[] PREFIXES = {"r", "rj", "h", "ht", "x", "wt", "sh"};
+    private static final int HOTELS = 2000;
+
+    private static FakeElasticsearch elasticsearch;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private HotelListener hotelListener;
+
+    @Autowired
+    private HotelImportListener importListener;
+
+    @Autowired
+    private SearchResultCache searchResultCache;
+
+    private final RestTemplate restTemplate = new RestTemplate(new SimpleClientHttpRequestFactory());
+
+    @DynamicPropertySource
+    static void elasticsearch(DynamicPropertyRegistry registry) throws IOException {
+        elasticsearch = new FakeElasticsearch(Long.getLong("load.es.latency", 5),
+                Long.getLong("load.es.jitter", 10), Integer.getInteger("load.es.threads", 64));
+        registry.add("hotel.es.hosts", elasticsearch::url);
+    }
+
+    @AfterAll
+    static void stopElasticsearch() {
+        if (elasticsearch != null) {
+            elasticsearch.close();
+        }
+    }
+
+    @Test
+    void mixedLoad() throws InterruptedException {
+        String base = "http://127.0.0.1:" + port + "/hotel";
+        LoadDriver driver = new LoadDriver()
+                .add("list", 45, () -> restTemplate.postForObject(base + "/list", randomParams(), String.class))
+                .add("page", 20, () -> restTemplate.postForObject(base + "/page", randomParams(), String.class))
+                .add("filters", 10, () -> restTemplate.postForObject(base + "/filters", randomParams(), String.class))
+                .add("map", 10, () -> restTemplate.postForObject(base + "/map", randomMapParams(), String.class))
+                .add("suggestion", 15, () -> restTemplate.getForObject(base + "/suggestion?key={key}",
+                        String.class, PREFIXES[random().nextInt(PREFIXES.length)]))
+                .add("mq.insert", 8, () -> hotelListener.listenHotelInsertOrUpdate(randomId(), null))
+                .add("mq.delete", 2, () -> hotelListener.listenHotelDelete(randomId(), null, null))
+                .add("mq.batch", 2, () -> importListener.listenHotelBatch(randomIds(50)));
+
+        String report = driver.run(Integer.getInteger("load.threads", 32),
+                duration("load.warmup", "10s"), duration("load.duration", "60s"));
+        System.out.println(report);
+        System.out.println("ES请求数：" + elasticsearch.requestCounts());
+        System.out.println("搜索结果缓存：" + searchResultCache.stats());
+    }
+
+    private static RequestParams randomParams() {
+        ThreadLocalRandom random = random();
+        RequestParams params = new RequestParams();
+        params.setKey(pick(KEYS));
+        params.setCity(pick(CITIES));
+        params.setBrand(pick(BRANDS));
+        params.setSortBy(pick(SORTS));
+        params.setPage(1 + random.nextInt(5));
+        params.setSize(10);
+        if (random.nextInt(4) == 0) {
+            int minPrice = 100 * random.nextInt(10);
+            params.setMinPrice(minPrice);
+            params.setMaxPrice(minPrice + 500);
+        }
+        if (random.nextBoolean()) {
+            params.setLocation(new GeoLocation(31.0 + random.nextDouble(), 121.0 + random.nextDouble()));
+        }
+        return params;
+    }
+
+    /**
+     * 上海范围内随机的视口，缩放级别10-17
+     */
+    private static MapParams randomMapParams() {
+        ThreadLocalRandom random = random();
+        MapParams params = new MapParams();
+        params.setCity(pick(CITIES));
+        params.setZoom(10 + random.nextInt(8));
+        double span = 360.0 / (1 << params.getZoom());
+        double lat = 31.0 + random.nextDouble();
+        double lon = 121.0 + random.nextDouble();
+        params.setTopLeft(new GeoLocation(lat + span / 2, lon));
+        params.setBottomRight(new GeoLocation(lat, lon + span));
+        return params;
+    }
+
+    private static long randomId() {
+        return 1 + random().nextInt(HOTELS);
+    }
+
+    private static long[] randomIds(int count) {
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = randomId();
+        }
+        return ids;
+    }
+
+    private static String pick(String[] values) {
+        return values[random().nextInt(values.length)];
+    }
+
+    private static ThreadLocalRandom random() {
+        return ThreadLocalRandom.current();
+    }
+
+    private static Duration duration(String property, String defaultValue) {
+        return DurationStyle.detectAndParse(System.getProperty(property, defaultValue));
+    }
+}
@@ -0,0 +1,130 @@
+package cn.itcast.hotel.mq;
+
+import cn.itcast.hotel.config.MqRetryProperties;
+import cn.itcast.hotel.constants.MqConstants;
+import cn.itcast.hotel.service.IHotelService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 验证批量消费的去重、失败后投递到延迟重试队列，以及重试次数用完后投递到死信队列
+ */
+class HotelBatchListenerTest {
+
+    private HotelBatchListener listener;
+    private IHotelService hotelService;
+    private RabbitTemplate rabbitTemplate;
+    private final SimpleMessageConverter converter = new SimpleMessageConverter();
+
+    @BeforeEach
+    void setUp() {
+        hotelService = mock(IHotelService.class);
+        rabbitTemplate = mock(RabbitTemplate.class);
+        MqRetryProperties properties = new MqRetryProperties();
+        properties.setMaxRetries(2);
+        properties.setInterval(100);
+        HotelSyncRetry syncRetry = new HotelSyncRetry();
+        ReflectionTestUtils.setField(syncRetry, "rabbitTemplate", rabbitTemplate);
+        ReflectionTestUtils.setField(syncRetry, "properties", properties);
+        listener = new HotelBatchListener();
+        ReflectionTestUtils.setField(listener, "hotelService", hotelService);
+        ReflectionTestUtils.setField(listener, "syncRetry", syncRetry);
+    }
+
+    @Test
+    void testDeleteThenInsertOfSameIdIsDecidedByDatabase() {
+        when(hotelService.bulkSync(anyList(), anyMap())).thenReturn(Collections.emptySet());
+
+        listener.listenHotelChanges(Arrays.asList(
+                message(MqConstants.HOTEL_DELETE_QUEUE, 5L, 0),
+                message(MqConstants.HOTEL_INSERT_QUEUE, 5L, 0),
+                message(MqConstants.HOTEL_INSERT_QUEUE, 6L, 0)));
+
+        // 先删除后重新创建的酒店不会被当成删除丢掉
+        verify(hotelService).bulkSync(Arrays.asList(5L, 6L), Collections.emptyMap());
+        verifyNoInteractions(rabbitTemplate);
+    }
+
+    @Test
+    void testFailedIdIsRetriedWithBackoff() {
+        when(hotelService.bulkSync(anyList(), anyMap())).thenReturn(Collections.singleton(6L));
+
+        listener.listenHotelChanges(Arrays.asList(
+                message(MqConstants.HOTEL_INSERT_QUEUE, 5L, 0),
+                message(MqConstants.HOTEL_DELETE_QUEUE, 6L, 1)));
+
+        ArgumentCaptor<MessagePostProcessor> postProcessor = ArgumentCaptor.forClass(MessagePostProcessor.class);
+        verify(rabbitTemplate).convertAndSend(eq(MqConstants.HOTEL_RETRY_EXCHANGE), eq(MqConstants.HOTEL_DELETE_KEY),
+                eq((Object) 6L), postProcessor.capture());
+        verifyNoMoreInteractions(rabbitTemplate);
+        MessageProperties retried = postProcessor.getValue()
+                .postProcessMessage(new Message(new byte[0], new MessageProperties()))
+                .getMessageProperties();
+        assertEquals(2, HotelSyncRetry.retries(retried));
+        assertEquals("200", retried.getExpiration());
+    }
+
+    @Test
+    void testDeleteTimeIsPassedOnAndKeptOnRetry() {
+        when(hotelService.bulkSync(anyList(), anyMap())).thenReturn(Collections.singleton(6L));
+        LocalDateTime first = LocalDateTime.of(2021, 5, 1, 12, 0);
+        LocalDateTime second = first.plusSeconds(1);
+        Message delete = message(MqConstants.HOTEL_DELETE_QUEUE, 6L, 0);
+        delete.getMessageProperties().setHeader(MqConstants.DELETE_TIME_HEADER, first.toString());
+        Message deleteAgain = message(MqConstants.HOTEL_DELETE_QUEUE, 6L, 0);
+        deleteAgain.getMessageProperties().setHeader(MqConstants.DELETE_TIME_HEADER, second.toString());
+
+        listener.listenHotelChanges(Arrays.asList(delete, deleteAgain));
+
+        // 同一个id删除多次时用最晚的删除时间
+        verify(hotelService).bulkSync(Collections.singletonList(6L), Collections.singletonMap(6L, second));
+        ArgumentCaptor<MessagePostProcessor> postProcessor = ArgumentCaptor.forClass(MessagePostProcessor.class);
+        verify(rabbitTemplate).convertAndSend(eq(MqConstants.HOTEL_RETRY_EXCHANGE), eq(MqConstants.HOTEL_DELETE_KEY),
+                eq((Object) 6L), postProcessor.capture());
+        MessageProperties retried = postProcessor.getValue()
+                .postProcessMessage(new Message(new byte[0], new MessageProperties()))
+                .getMessageProperties();
+        assertEquals(second, HotelSyncRetry.deleteTime(retried));
+    }
+
+    @Test
+    void testWholeBatchIsRetriedThenDeadLettered() {
+        when(hotelService.bulkSync(anyList(), anyMap())).thenThrow(new IllegalStateException("ES不可用"));
+
+        assertDoesNotThrow(() -> listener.listenHotelChanges(Arrays.asList(
+                message(MqConstants.HOTEL_INSERT_QUEUE, 5L, 0),
+                message(MqConstants.HOTEL_INSERT_QUEUE, 6L, 2))));
+
+        verify(rabbitTemplate).convertAndSend(eq(MqConstants.HOTEL_RETRY_EXCHANGE), eq(MqConstants.HOTEL_INSERT_KEY),
+                eq((Object) 5L), any(MessagePostProcessor.class));
+        verify(rabbitTemplate).convertAndSend(MqConstants.HOTEL_EXCHANGE, MqConstants.HOTEL_ERROR_KEY + ".insert", (Object) 6L);
+        verifyNoMoreInteractions(rabbitTemplate);
+    }
+
+    private Message message(String queue, Long id, int retries) {
+        MessageProperties properties = new MessageProperties();
+        properties.setConsumerQueue(queue);
+        if (retries > 0) {
+            properties.setHeader(MqConstants.RETRY_HEADER, retries);
+        }
+        return converter.toMessage(id, properties);
+    }
+}
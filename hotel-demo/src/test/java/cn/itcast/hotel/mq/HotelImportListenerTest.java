@@ -0,0 +1,68 @@
+package cn.itcast.hotel.mq;
+
+import cn.itcast.hotel.config.MqRetryProperties;
+import cn.itcast.hotel.constants.MqConstants;
+import cn.itcast.hotel.service.IHotelService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 验证ES不可用时导入消息不抛给容器，失败的酒店逐条投递到延迟重试队列
+ */
+class HotelImportListenerTest {
+
+    private HotelImportListener listener;
+    private IHotelService hotelService;
+    private RabbitTemplate rabbitTemplate;
+
+    @BeforeEach
+    void setUp() {
+        hotelService = mock(IHotelService.class);
+        rabbitTemplate = mock(RabbitTemplate.class);
+        MqRetryProperties properties = new MqRetryProperties();
+        properties.setMaxRetries(2);
+        HotelSyncRetry syncRetry = new HotelSyncRetry();
+        ReflectionTestUtils.setField(syncRetry, "rabbitTemplate", rabbitTemplate);
+        ReflectionTestUtils.setField(syncRetry, "properties", properties);
+        listener = new HotelImportListener();
+        ReflectionTestUtils.setField(listener, "hotelService", hotelService);
+        ReflectionTestUtils.setField(listener, "syncRetry", syncRetry);
+    }
+
+    @Test
+    void testFailureIsRetriedAsSingleInserts() {
+        when(hotelService.bulkSync(anyList(), anyMap())).thenThrow(new IllegalStateException("ES不可用"));
+
+        assertDoesNotThrow(() -> listener.listenHotelBatch(new long[]{1L, 2L}));
+
+        verify(hotelService, times(1)).bulkSync(anyList(), anyMap());
+        verify(rabbitTemplate).convertAndSend(eq(MqConstants.HOTEL_RETRY_EXCHANGE), eq(MqConstants.HOTEL_INSERT_KEY),
+                eq((Object) 1L), any(MessagePostProcessor.class));
+        verify(rabbitTemplate).convertAndSend(eq(MqConstants.HOTEL_RETRY_EXCHANGE), eq(MqConstants.HOTEL_INSERT_KEY),
+                eq((Object) 2L), any(MessagePostProcessor.class));
+        verifyNoMoreInteractions(rabbitTemplate);
+    }
+
+    @Test
+    void testOnlyFailedIdsAreRetried() {
+        when(hotelService.bulkSync(anyList(), anyMap())).thenReturn(Collections.singleton(2L));
+
+        listener.listenHotelBatch(new long[]{1L, 2L});
+
+        verify(rabbitTemplate).convertAndSend(eq(MqConstants.HOTEL_RETRY_EXCHANGE), eq(MqConstants.HOTEL_INSERT_KEY),
+                eq((Object) 2L), any(MessagePostProcessor.class));
+        verifyNoMoreInteractions(rabbitTemplate);
+    }
+}
@@ -0,0 +1,57 @@
+package cn.itcast.hotel.mq;
+
+import cn.itcast.hotel.index.HotelDocConverter;
+import cn.itcast.hotel.load.FakeElasticsearch;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 使用H2和ES替身，验证新增消息晚于删除到达时按删除处理，不会反复失败；
+ * 删除消息带删除时间时用它作为版本号
+ */
+@ActiveProfiles("load")
+@SpringBootTest
+class HotelListenerTest {
+
+    private static FakeElasticsearch elasticsearch;
+
+    @Autowired
+    private HotelListener hotelListener;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) throws IOException {
+        elasticsearch = new FakeElasticsearch(0, 0, 4);
+        registry.add("hotel.es.hosts", elasticsearch::url);
+    }
+
+    @AfterAll
+    static void cleanUp() {
+        elasticsearch.close();
+    }
+
+    @Test
+    void testInsertOfMissingHotelDeletesDocument() {
+        // 数据库中只有id 1-2000
+        assertDoesNotThrow(() -> hotelListener.listenHotelInsertOrUpdate(999999L, null));
+        assertEquals(1L, elasticsearch.requestCounts().get("delete"));
+        assertNull(elasticsearch.requestCounts().get("index"));
+    }
+
+    @Test
+    void testDeleteIsVersionedWithDeleteTime() {
+        // 删除之后又用同一个id重新创建，删除消息晚到时不能用处理时的时间作为版本号
+        LocalDateTime deleteTime = LocalDateTime.of(2021, 5, 1, 12, 0, 0, 123_000_000);
+        hotelListener.listenHotelDelete(888888L, null, deleteTime.toString());
+        assertEquals(HotelDocConverter.version(deleteTime), elasticsearch.versions().get("888888"));
+    }
+}
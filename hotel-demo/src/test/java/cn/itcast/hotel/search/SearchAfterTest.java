@@ -0,0 +1,59 @@
+package cn.itcast.hotel.search;
+
+import cn.itcast.hotel.load.FakeElasticsearch;
+import cn.itcast.hotel.pojo.RequestParams;
+import cn.itcast.hotel.service.IHotelService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 使用H2和ES替身，验证游标分页第一页失败时关闭刚打开的point in time
+ */
+@ActiveProfiles("load")
+@SpringBootTest
+class SearchAfterTest {
+
+    private static FakeElasticsearch elasticsearch;
+
+    @Autowired
+    private IHotelService hotelService;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) throws IOException {
+        elasticsearch = new FakeElasticsearch(0, 0, 4);
+        registry.add("hotel.es.hosts", elasticsearch::url);
+    }
+
+    @AfterAll
+    static void cleanUp() {
+        elasticsearch.close();
+    }
+
+    @Test
+    void testFirstPageFailureClosesPointInTime() throws InterruptedException {
+        elasticsearch.setFailSearches(true);
+        RequestParams params = new RequestParams();
+        params.setCursor("");
+        params.setSize(10);
+        CompletableFuture<?> future = hotelService.searchAsync(params);
+        assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+
+        // 打开一次，关闭一次
+        for (int i = 0; i < 50 && elasticsearch.requestCounts().getOrDefault("pit", 0L) < 2; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(2L, elasticsearch.requestCounts().get("pit"));
+    }
+}
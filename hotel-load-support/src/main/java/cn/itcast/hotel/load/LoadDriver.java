@@ -0,0 +1,160 @@
+package cn.itcast.hotel.load;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 压测驱动：多个线程按权重随机选择请求并发执行，先预热再统计，
+ * 最后按请求类型输出吞吐量和延迟分位数
+ */
+public class LoadDriver {
+
+    public interface Call {
+        void run() throws Exception;
+    }
+
+    /**
+     * 调用中抛出它表示这次没有可执行的请求（例如还没有可删除的数据），不计入统计
+     */
+    public static class Skip extends RuntimeException {
+        public Skip() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static class Operation {
+        private final String name;
+        private final int weight;
+        private final Call call;
+
+        Operation(String name, int weight, Call call) {
+            this.name = name;
+            this.weight = weight;
+            this.call = call;
+        }
+    }
+
+    /**
+     * 单个线程记录的延迟，结束后合并，避免压测过程中线程间竞争
+     */
+    private static class Recorder {
+        private final Map<String, long[]> latencies = new LinkedHashMap<>();
+        private final Map<String, Integer> counts = new LinkedHashMap<>();
+        private final Map<String, Integer> errors = new LinkedHashMap<>();
+
+        void record(String name, long nanos, boolean error) {
+            int count = counts.getOrDefault(name, 0);
+            long[] values = latencies.computeIfAbsent(name, k -> new long[1024]);
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+                latencies.put(name, values);
+            }
+            values[count] = nanos;
+            counts.put(name, count + 1);
+            if (error) {
+                errors.merge(name, 1, Integer::sum);
+            }
+        }
+    }
+
+    private final List<Operation> operations = new ArrayList<>();
+    private int totalWeight;
+
+    public LoadDriver add(String name, int weight, Call call) {
+        operations.add(new Operation(name, weight, call));
+        totalWeight += weight;
+        return this;
+    }
+
+    public String run(int threads, Duration warmup, Duration duration) throws InterruptedException {
+        // 预热时的结果丢弃
+        execute(threads, warmup);
+        List<Recorder> recorders = execute(threads, duration);
+        return report(recorders, duration);
+    }
+
+    private List<Recorder> execute(int threads, Duration duration) throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Recorder> recorders = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            Recorder recorder = new Recorder();
+            recorders.add(recorder);
+            pool.execute(() -> {
+                while (System.nanoTime() < deadline) {
+                    Operation operation = pick();
+                    long start = System.nanoTime();
+                    boolean error = false;
+                    try {
+                        operation.call.run();
+                    } catch (Skip e) {
+                        continue;
+                    } catch (Exception e) {
+                        error = true;
+                    }
+                    recorder.record(operation.name, System.nanoTime() - start, error);
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(duration.toMillis() + TimeUnit.MINUTES.toMillis(1), TimeUnit.MILLISECONDS);
+        return recorders;
+    }
+
+    private Operation pick() {
+        int value = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Operation operation : operations) {
+            value -= operation.weight;
+            if (value < 0) {
+                return operation;
+            }
+        }
+        return operations.get(operations.size() - 1);
+    }
+
+    private String report(List<Recorder> recorders, Duration duration) {
+        double seconds = duration.toMillis() / 1000.0;
+        StringBuilder report = new StringBuilder(String.format(Locale.ROOT,
+                "%-16s %9s %7s %9s %9s %9s %9s %9s%n",
+                "operation", "requests", "errors", "req/s", "p50(ms)", "p95(ms)", "p99(ms)", "max(ms)"));
+        long allCount = 0;
+        for (Operation operation : operations) {
+            long[] merged = new long[0];
+            int errors = 0;
+            for (Recorder recorder : recorders) {
+                int count = recorder.counts.getOrDefault(operation.name, 0);
+                if (count > 0) {
+                    int offset = merged.length;
+                    merged = Arrays.copyOf(merged, offset + count);
+                    System.arraycopy(recorder.latencies.get(operation.name), 0, merged, offset, count);
+                }
+                errors += recorder.errors.getOrDefault(operation.name, 0);
+            }
+            Arrays.sort(merged);
+            allCount += merged.length;
+            report.append(String.format(Locale.ROOT, "%-16s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    operation.name, merged.length, errors, merged.length / seconds,
+                    percentile(merged, 0.50), percentile(merged, 0.95), percentile(merged, 0.99),
+                    percentile(merged, 1.0)));
+        }
+        report.append(String.format(Locale.ROOT, "%-16s %9d %7s %9.1f%n", "total", allCount, "", allCount / seconds));
+        return report.toString();
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,38 @@
+-- 压测用的tb_hotel，结构和MySQL一致，生成2000条数据
+DROP TABLE IF EXISTS tb_hotel;
+CREATE TABLE tb_hotel (
+  id BIGINT NOT NULL PRIMARY KEY,
+  name VARCHAR(255) NOT NULL,
+  address VARCHAR(255) NOT NULL,
+  price INT NOT NULL,
+  score INT NOT NULL,
+  brand VARCHAR(32) NOT NULL,
+  city VARCHAR(32) NOT NULL,
+  star_name VARCHAR(16),
+  business VARCHAR(255),
+  latitude DOUBLE NOT NULL,
+  longitude DOUBLE NOT NULL,
+  pic VARCHAR(255),
+  update_time TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3)
+);
+CREATE INDEX idx_update_time_id ON tb_hotel (update_time, id);
+
+INSERT INTO tb_hotel (id, name, address, price, score, brand, city, star_name, business, latitude, longitude, pic)
+SELECT X,
+       CONCAT(CASE MOD(X, 8) WHEN 0 THEN '如家' WHEN 1 THEN '7天酒店' WHEN 2 THEN '汉庭' WHEN 3 THEN '希尔顿'
+                             WHEN 4 THEN '万怡' WHEN 5 THEN '速8' WHEN 6 THEN '皇冠假日' ELSE '华美达' END,
+              '酒店(', X, '店)'),
+       CONCAT('压测路', X, '号'),
+       100 + MOD(X * 37, 2900),
+       35 + MOD(X * 7, 15),
+       CASE MOD(X, 8) WHEN 0 THEN '如家' WHEN 1 THEN '7天酒店' WHEN 2 THEN '汉庭' WHEN 3 THEN '希尔顿'
+                      WHEN 4 THEN '万怡' WHEN 5 THEN '速8' WHEN 6 THEN '皇冠假日' ELSE '华美达' END,
+       CASE MOD(X, 4) WHEN 0 THEN '上海' WHEN 1 THEN '北京' WHEN 2 THEN '深圳' ELSE '杭州' END,
+       CASE MOD(X, 6) WHEN 0 THEN '二钻' WHEN 1 THEN '三钻' WHEN 2 THEN '四钻' WHEN 3 THEN '五钻'
+                      WHEN 4 THEN '四星级' ELSE '五星级' END,
+       CASE MOD(X, 5) WHEN 0 THEN '外滩地区' WHEN 1 THEN '人民广场地区' WHEN 2 THEN '陆家嘴'
+                      WHEN 3 THEN '虹桥地区' ELSE '静安寺/南京西路' END,
+       31.0 + MOD(X, 100) / 100.0,
+       121.0 + MOD(X * 13, 100) / 100.0,
+       'https://m.tuniucdn.com/fb2/t1/G1/M00/3E/40/Cii9EVkyLrKIXo1vAAHgrxo_pUcAALcKQLD688AAeDH564_w200_h200_c1_t0.jpg'
+FROM SYSTEM_RANGE(1, 2000);
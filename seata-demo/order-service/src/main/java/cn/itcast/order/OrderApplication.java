@@ -1,9 +1,12 @@
 package cn.itcast.order;
 
+import cn.itcast.id.SnowflakeIdGenerator;
 import org.mybatis.spring.annotation.MapperScan;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.openfeign.EnableFeignClients;
+import org.springframework.context.annotation.Bean;
 
 /**
  * @author 虎哥
@@ -15,4 +18,13 @@ public class OrderApplication {
     public static void main(String[] args) {
         SpringApplication.run(OrderApplication.class, args);
     }
+
+    /**
+     * 订单id按时间递增，IdType.ASSIGN_ID 使用。
+     * order.id.node-id 没有默认值，未配置时启动失败，避免多个实例都用0生成重复的id
+     */
+    @Bean
+    public SnowflakeIdGenerator idGenerator(@Value("${order.id.node-id}") long nodeId) {
+        return new SnowflakeIdGenerator(nodeId);
+    }
 }
@@ -11,7 +11,7 @@ import lombok.Data;
 @Data
 @TableName("order_tbl")
 public class Order {
-    @TableId(type = IdType.AUTO)
+    @TableId(type = IdType.ASSIGN_ID)
     private Long id;
     private String userId;
     private String commodityCode;
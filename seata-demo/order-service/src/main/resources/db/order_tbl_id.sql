@@ -0,0 +1,2 @@
+-- 订单id改为由应用生成的53位递增id，需要bigint
+ALTER TABLE `order_tbl` MODIFY COLUMN `id` bigint(20) NOT NULL;
@@ -0,0 +1,79 @@
+package cn.itcast.id;
+
+import com.baomidou.mybatisplus.core.incrementer.IdentifierGenerator;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 按时间递增的Snowflake风格id：[41位毫秒时间戳 | 5位节点 | 7位序号]，共53位。
+ * 不超过JavaScript的安全整数，页面上的id不会丢精度；新行总是追加在聚簇索引的末尾，不会引起页分裂。
+ * <p>
+ * 时间戳和序号放在一个AtomicLong里用CAS推进，没有锁：同一毫秒内序号加一，
+ * 序号用完时进位到下一毫秒（短暂借用未来的时间），时钟回拨时从上次的值继续递增，不会重复也不需要等待。
+ * 每个节点每毫秒最多128个id，持续超过这个速度时时间戳会领先于时钟，直到写入变慢。
+ * 不同实例必须配置不同的节点号；重启前后时钟回拨超过停机时间时可能重复。
+ * <p>
+ * hotel-admin 和 seata-demo 的 order-service 共用这个类
+ */
+public class SnowflakeIdGenerator implements IdentifierGenerator {
+
+    /**
+     * 时间戳的起点：2024-01-01T00:00:00Z，41位可以用到2093年
+     */
+    public static final long EPOCH = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    public static final int NODE_BITS = 5;
+    public static final int SEQUENCE_BITS = 7;
+    public static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long node;
+    private final LongSupplier clock;
+    /**
+     * (相对EPOCH的毫秒数 << SEQUENCE_BITS) | 序号
+     */
+    private final AtomicLong state = new AtomicLong();
+
+    public SnowflakeIdGenerator(long node) {
+        this(node, System::currentTimeMillis);
+    }
+
+    SnowflakeIdGenerator(long node, LongSupplier clock) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("节点号应在0到" + MAX_NODE + "之间：" + node);
+        }
+        this.node = node;
+        this.clock = clock;
+    }
+
+    public long nextId() {
+        while (true) {
+            long last = state.get();
+            long now = clock.getAsLong() - EPOCH;
+            // 新的毫秒从序号0开始，否则在上次的基础上加一，序号溢出时自然进位到时间戳
+            long next = now > last >>> SEQUENCE_BITS ? now << SEQUENCE_BITS : last + 1;
+            if (state.compareAndSet(last, next)) {
+                return (next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS)
+                        | node << SEQUENCE_BITS
+                        | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    @Override
+    public Long nextId(Object entity) {
+        return nextId();
+    }
+
+    /**
+     * id中的时间，毫秒
+     */
+    public static long timestampOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+
+    public static long nodeOf(long id) {
+        return (id >>> SEQUENCE_BITS) & MAX_NODE;
+    }
+}
@@ -0,0 +1,73 @@
+package cn.itcast.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnowflakeIdGeneratorTest {
+
+    private static final long MAX_SAFE_INTEGER = (1L << 53) - 1;
+
+    @Test
+    void testIdsAreUniqueAndIncreasingAcrossThreads() throws InterruptedException {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(3);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                long previous = 0;
+                for (int i = 0; i < 50000; i++) {
+                    long id = generator.nextId();
+                    assertTrue(id > previous);
+                    previous = id;
+                    ids.add(id);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(200000, ids.size());
+        long id = generator.nextId();
+        assertEquals(3, SnowflakeIdGenerator.nodeOf(id));
+        assertTrue(id <= MAX_SAFE_INTEGER);
+        assertTrue(Math.abs(SnowflakeIdGenerator.timestampOf(id) - System.currentTimeMillis()) < 60000);
+    }
+
+    @Test
+    void testSequenceOverflowAndClockBackwards() {
+        AtomicLong clock = new AtomicLong(SnowflakeIdGenerator.EPOCH + 1000);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, clock::get);
+        Set<Long> ids = new HashSet<>();
+        long previous = 0;
+        // 同一毫秒内超过128个时借用下一毫秒
+        for (int i = 0; i < 300; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            previous = id;
+            ids.add(id);
+        }
+        assertEquals(SnowflakeIdGenerator.EPOCH + 1002, SnowflakeIdGenerator.timestampOf(previous));
+        // 时钟回拨时继续递增
+        clock.addAndGet(-500);
+        long id = generator.nextId();
+        assertTrue(id > previous);
+        assertTrue(ids.add(id));
+        assertEquals(1, SnowflakeIdGenerator.nodeOf(id));
+    }
+
+    @Test
+    void testRejectsInvalidNode() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(32));
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(-1));
+    }
+}